@@ -45,7 +45,10 @@ public class SpanEntry {
         return CallType.convert(serverSpan.getCallType());
     }
 
-    public long getCost() {
+    /**
+     * @return 花费时间(单位:微秒)，旧版本的Span由毫秒换算
+     */
+    public long getCostMicros() {
         long resultCost = 0;
         switch (getCallType()) {
             case ASYNC:
@@ -67,7 +70,7 @@ public class SpanEntry {
 
     private long getClientCost() {
         if (clientSpan != null) {
-            return clientSpan.getCost();
+            return clientSpan.getCostMicros();
         }
 
         return 0;
@@ -75,7 +78,7 @@ public class SpanEntry {
 
     private long getServerCost() {
         if (serverSpan != null) {
-            return serverSpan.getCost();
+            return serverSpan.getCostMicros();
         }
 
         return 0;
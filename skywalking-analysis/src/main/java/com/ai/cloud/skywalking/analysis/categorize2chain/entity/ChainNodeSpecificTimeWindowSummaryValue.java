@@ -4,13 +4,17 @@ import com.ai.cloud.skywalking.analysis.categorize2chain.po.ChainNode;
 
 public class ChainNodeSpecificTimeWindowSummaryValue {
     private long totalCall;
+    // 总花费时间(单位:毫秒)，由totalCostTimeMicros换算，兼容只识别毫秒的读取端
     private long totalCostTime;
+    // 总花费时间(单位:微秒)，旧版本的统计结果中不存在
+    private long totalCostTimeMicros;
     private long correctNumber;
     private long humanInterruptionNumber;
 
     public ChainNodeSpecificTimeWindowSummaryValue() {
         totalCall = 0;
         totalCostTime = 0;
+        totalCostTimeMicros = 0;
         correctNumber = 0;
         humanInterruptionNumber = 0;
     }
@@ -23,6 +27,16 @@ public class ChainNodeSpecificTimeWindowSummaryValue {
         return totalCostTime;
     }
 
+    /**
+     * @return 总花费时间(单位:微秒)，旧版本的统计结果由毫秒换算
+     */
+    public long getTotalCostTimeMicros() {
+        if (totalCostTimeMicros == 0) {
+            return totalCostTime * 1000;
+        }
+        return totalCostTimeMicros;
+    }
+
     public long getCorrectNumber() {
         return correctNumber;
     }
@@ -39,13 +53,15 @@ public class ChainNodeSpecificTimeWindowSummaryValue {
         if (node.getStatus() == ChainNode.NodeStatus.HUMAN_INTERRUPTION) {
         	humanInterruptionNumber++;
         }
-        totalCostTime += node.getCost();
+        totalCostTimeMicros = getTotalCostTimeMicros() + node.getCostMicros();
+        totalCostTime = totalCostTimeMicros / 1000;
     }
 
     public void accumulate(ChainNodeSpecificTimeWindowSummaryValue value) {
         this.totalCall += value.getTotalCall();
         this.correctNumber += value.getCorrectNumber();
-        this.totalCostTime += value.getTotalCostTime();
+        this.totalCostTimeMicros = getTotalCostTimeMicros() + value.getTotalCostTimeMicros();
+        this.totalCostTime = totalCostTimeMicros / 1000;
         this.humanInterruptionNumber += value.getHumanInterruptionNumber();
     }
 }
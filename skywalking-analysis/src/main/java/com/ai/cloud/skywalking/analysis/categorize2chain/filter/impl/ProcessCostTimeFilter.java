@@ -8,7 +8,7 @@ import com.ai.cloud.skywalking.analysis.categorize2chain.util.SubLevelSpanCostCo
 public class ProcessCostTimeFilter extends SpanNodeProcessFilter {
 	@Override
 	public void doFilter(SpanEntry spanEntry, ChainNode node, SubLevelSpanCostCounter costMap) {
-		node.setCost(spanEntry.getCost());
+		node.setCostMicros(spanEntry.getCostMicros());
 		
 		this.saveCostAsSubNodeCost(spanEntry, node, costMap);
 		this.computeChainNodeCost(costMap, node);
@@ -18,7 +18,7 @@ public class ProcessCostTimeFilter extends SpanNodeProcessFilter {
 
 	private void saveCostAsSubNodeCost(SpanEntry spanEntry, ChainNode node,
 			SubLevelSpanCostCounter costMap) {
-		long subNodeCost = spanEntry.getCost();
+		long subNodeCost = spanEntry.getCostMicros();
 		if (costMap.exists(spanEntry.getParentLevelId())) {
 			subNodeCost += costMap.get(spanEntry.getParentLevelId());
 		}
@@ -34,7 +34,7 @@ public class ProcessCostTimeFilter extends SpanNodeProcessFilter {
 		levelId += node.getLevelId() + "";
 
 		if (costMap.exists(levelId)) {
-			node.setCost(node.getCost() - costMap.get(levelId));
+			node.setCostMicros(node.getCostMicros() - costMap.get(levelId));
 		}
 	}
 }
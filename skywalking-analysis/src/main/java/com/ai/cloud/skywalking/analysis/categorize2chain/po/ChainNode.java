@@ -11,7 +11,8 @@ public class ChainNode {
     @Expose
     private String businessKey;
 
-    private long cost;
+    // 花费时间(单位:微秒)
+    private long costMicros;
     private NodeStatus status;
     @Expose
     private String parentLevelId;
@@ -39,12 +40,12 @@ public class ChainNode {
         this.viewPoint = viewPoint;
     }
 
-    public long getCost() {
-        return cost;
+    public long getCostMicros() {
+        return costMicros;
     }
 
-    public void setCost(long cost) {
-        this.cost = cost;
+    public void setCostMicros(long costMicros) {
+        this.costMicros = costMicros;
     }
 
     public NodeStatus getStatus() {
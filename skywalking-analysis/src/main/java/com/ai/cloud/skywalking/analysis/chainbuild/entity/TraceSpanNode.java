@@ -49,6 +49,12 @@ public class TraceSpanNode {
     @Expose
     protected long cost = 0;
 
+    /**
+     * 微秒精度的花费时间，cost仍为毫秒
+     */
+    @Expose
+    protected long costMicros = 0;
+
     @Expose
     protected long callTimes = 0;
 
@@ -103,6 +109,7 @@ public class TraceSpanNode {
         this.levelId = span.getLevelId();
         this.viewPointId = span.getViewPointId();
         this.cost = span.getCost();
+        this.costMicros = span.getCostMicros();
         this.callTimes = 1;
         this.statusCode = span.getStatusCode();
         if (span.isReceiver()) {
@@ -167,6 +174,7 @@ public class TraceSpanNode {
     void mergeSpan(Span span) {
         if (CallType.convert(span.getCallType()) == CallType.ASYNC) {
             this.cost += span.getCost();
+            this.costMicros += span.getCostMicros();
         }
         if (span.getStatusCode() != 0 && !StringUtil.isBlank(span.getExceptionStack())) {
             if (span.isReceiver()) {
@@ -258,6 +266,10 @@ public class TraceSpanNode {
         return cost;
     }
 
+    public long getCostMicros() {
+        return costMicros;
+    }
+
     public byte getStatusCode() {
         return statusCode;
     }
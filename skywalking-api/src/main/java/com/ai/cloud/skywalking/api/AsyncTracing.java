@@ -0,0 +1,38 @@
+package com.ai.cloud.skywalking.api;
+
+import com.ai.cloud.skywalking.buriedpoint.AsyncBuriedPointReceiver;
+import com.ai.cloud.skywalking.buriedpoint.AsyncSpanHandle;
+import com.ai.cloud.skywalking.model.ContextData;
+import com.ai.cloud.skywalking.model.Identification;
+
+/**
+ * 创建不绑定线程上下文的埋点，埋点可在任意线程中结束
+ */
+public final class AsyncTracing {
+
+    private AsyncTracing() {
+        // Non
+    }
+
+    /**
+     * 创建当前线程上下文栈顶Span的子节点，不存在上下文时创建新的调用链<br/>
+     * 创建的埋点不压入当前线程的上下文
+     *
+     * @param id
+     * @return
+     */
+    public static IAsyncSpan start(Identification id) {
+        return AsyncSpanHandle.start(AsyncBuriedPointReceiver.capture(), id, false);
+    }
+
+    /**
+     * 根据远端传入的调用链上下文创建接收端的埋点，如异步的RPC服务端
+     *
+     * @param contextData 远端传入的调用链上下文，为null时创建新的调用链
+     * @param id
+     * @return
+     */
+    public static IAsyncSpan startReceived(ContextData contextData, Identification id) {
+        return AsyncSpanHandle.start(contextData, id, true);
+    }
+}
@@ -0,0 +1,31 @@
+package com.ai.cloud.skywalking.api;
+
+import com.ai.cloud.skywalking.model.ContextData;
+import com.ai.cloud.skywalking.model.Identification;
+
+/**
+ * 不绑定线程上下文的埋点，可在任意线程中结束<br/>
+ * 用于回调、事件循环等开始和结束不在同一线程的场景。结束之后的所有操作都将被忽略
+ */
+public interface IAsyncSpan extends IExceptionHandler {
+    /**
+     * 创建当前埋点的子节点，可在任意线程中调用
+     *
+     * @param id
+     * @return
+     */
+    IAsyncSpan startChild(Identification id);
+
+    /**
+     * @return 当前埋点的调用链上下文，用于传递给远端
+     */
+    ContextData getContextData();
+
+    void setBusinessKey(String businessKey);
+
+    /**
+     * 结束埋点并放入发送缓存，重复调用时只有第一次有效<br/>
+     * 结束之前的修改需对结束埋点的线程可见
+     */
+    void finish();
+}
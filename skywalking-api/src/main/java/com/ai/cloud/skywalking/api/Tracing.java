@@ -17,7 +17,9 @@ public class Tracing {
 
         Span spanData = Context.getLastSpan();
         if (spanData == null) {
-            return "";
+            // 未被采样的调用链仍保留traceId，用于日志关联
+            ContextData unsampledContextData = Context.getLastUnsampledContextData();
+            return unsampledContextData == null ? "" : unsampledContextData.getTraceId();
         }
 
         return spanData.getTraceId();
@@ -29,7 +31,8 @@ public class Tracing {
 
        Span spanData = Context.getLastSpan();
        if (spanData == null) {
-           return null;
+           ContextData unsampledContextData = Context.getLastUnsampledContextData();
+           return unsampledContextData == null ? null : unsampledContextData.toString();
        }
 
        ContextData contextData = new ContextData(spanData);
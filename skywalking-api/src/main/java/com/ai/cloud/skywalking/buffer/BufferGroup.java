@@ -1,119 +1,210 @@
 package com.ai.cloud.skywalking.buffer;
 
+import static com.ai.cloud.skywalking.conf.Config.Buffer.BLOCK_TIMEOUT;
 import static com.ai.cloud.skywalking.conf.Config.Buffer.BUFFER_MAX_SIZE;
+import static com.ai.cloud.skywalking.conf.Config.Buffer.OVERFLOW_POLICY;
 import static com.ai.cloud.skywalking.conf.Config.Consumer.CONSUMER_FAIL_RETRY_WAIT_INTERVAL;
 import static com.ai.cloud.skywalking.conf.Config.Consumer.MAX_CONSUMER;
+import static com.ai.cloud.skywalking.conf.Config.Consumer.MAX_DRAIN_SIZE;
 import static com.ai.cloud.skywalking.conf.Config.Consumer.MAX_WAIT_TIME;
+import static com.ai.cloud.skywalking.conf.Config.Sender.RETRY_GET_SENDER_WAIT_INTERVAL;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.ai.cloud.io.netty.buffer.ByteBuf;
+import com.ai.cloud.io.netty.buffer.ByteBufAllocator;
+import com.ai.cloud.io.netty.buffer.PooledByteBufAllocator;
 import com.ai.cloud.skywalking.conf.Config;
-import com.ai.cloud.skywalking.conf.Constants;
+import com.ai.cloud.skywalking.degrade.LoadShedder;
+import com.ai.cloud.skywalking.protocol.BatchFrame;
 import com.ai.cloud.skywalking.protocol.Span;
-import com.ai.cloud.skywalking.selfexamination.HeathReading;
-import com.ai.cloud.skywalking.selfexamination.SDKHealthCollector;
+import com.ai.cloud.skywalking.recycler.SpanRecycler;
+import com.ai.cloud.skywalking.selfexamination.SDKMetrics;
+import com.ai.cloud.skywalking.sender.AckedBatchTracker;
 import com.ai.cloud.skywalking.sender.DataSenderFactoryWithBalance;
-import com.ai.cloud.skywalking.util.AtomicRangeInteger;
+import com.ai.cloud.skywalking.sender.IDataSender;
+import com.ai.cloud.skywalking.sender.RetrySendQueue;
+import com.ai.cloud.skywalking.sender.SpanSerializer;
+import com.ai.cloud.skywalking.spool.DiskSpool;
+import com.ai.cloud.skywalking.util.OverflowPolicy;
+import com.ai.cloud.skywalking.util.ParkWaitStrategy;
+import com.ai.cloud.skywalking.util.RingBuffer;
 
 public class BufferGroup {
 	private static Logger logger = LogManager.getLogger(BufferGroup.class);
+	private static final ByteBufAllocator ALLOCATOR = PooledByteBufAllocator.DEFAULT;
+	static final int BATCH_HEADER_LENGTH = Config.Sender.ACK_ENABLE ? BatchFrame.HEADER_LENGTH : 0;
 	private String groupName;
-	private Span[] dataBuffer = new Span[BUFFER_MAX_SIZE];
-	AtomicRangeInteger index = new AtomicRangeInteger(0, BUFFER_MAX_SIZE);
+	private ConsumerWorker[] consumerWorkers;
 
 	public BufferGroup(String groupName) {
 		this.groupName = groupName;
 
-		int step = (int) Math.ceil(BUFFER_MAX_SIZE * 1.0 / MAX_CONSUMER);
-		int start = 0, end = 0;
-		while (true) {
-			if (end + step >= BUFFER_MAX_SIZE) {
-				new ConsumerWorker(start, BUFFER_MAX_SIZE).start();
-				break;
-			}
-			end += step;
-			new ConsumerWorker(start, end).start();
-			start = end;
+		// 每个消费线程独占一个RingBuffer
+		OverflowPolicy overflowPolicy = OverflowPolicy.convert(OVERFLOW_POLICY);
+		int ringBufferSize = (int) Math.ceil(BUFFER_MAX_SIZE * 1.0 / MAX_CONSUMER);
+		consumerWorkers = new ConsumerWorker[MAX_CONSUMER];
+		for (int i = 0; i < MAX_CONSUMER; i++) {
+			consumerWorkers[i] = new ConsumerWorker(new RingBuffer<Span>(ringBufferSize,
+					overflowPolicy, BLOCK_TIMEOUT, new ParkWaitStrategy()));
+			consumerWorkers[i].start();
 		}
 	}
 
 	public void save(Span span) {
-		int i = index.getAndIncrement();
-		if (dataBuffer[i] != null) {
-			logger.warn(
-					"Group[{}] index[{}] data collision, discard old data.",
-					groupName, i);
-			SDKHealthCollector.getCurrentHeathReading("BufferGroup").updateData(HeathReading.WARNING, "BufferGroup index[" + i + "] data collision, data been coverd.");
+		ConsumerWorker worker = consumerWorkers[(int) (Thread.currentThread().getId() % consumerWorkers.length)];
+		if (!worker.ringBuffer.offer(span)) {
+			SDKMetrics.SPANS_DROPPED.increment();
+			return;
+		}
+		SDKMetrics.SPANS_SAVED.increment();
+	}
+
+	/**
+	 * @return 各消费线程的RingBuffer中最高的占用率(百分比)
+	 */
+	public int getMaxOccupancy() {
+		int maxOccupancy = 0;
+		for (ConsumerWorker worker : consumerWorkers) {
+			maxOccupancy = Math.max(maxOccupancy, worker.ringBuffer.size() * 100 / worker.ringBuffer.getCapacity());
+		}
+		return maxOccupancy;
+	}
+
+	public long getDroppedCount() {
+		long droppedCount = 0;
+		for (ConsumerWorker worker : consumerWorkers) {
+			droppedCount += worker.ringBuffer.getDroppedCount();
 		}
-		dataBuffer[i] = span;
-		SDKHealthCollector.getCurrentHeathReading("BufferGroup").updateData(HeathReading.INFO, "save span");
+		return droppedCount;
+	}
+
+	/**
+	 * @return 被后写入的Span覆盖的数量，只在DROP_OLDEST策略下出现
+	 */
+	public long getOverwrittenCount() {
+		long overwrittenCount = 0;
+		for (ConsumerWorker worker : consumerWorkers) {
+			overwrittenCount += worker.ringBuffer.getOverwrittenCount();
+		}
+		return overwrittenCount;
 	}
 
 	class ConsumerWorker extends Thread {
-		private int start = 0;
-		private int end = BUFFER_MAX_SIZE;
+		private RingBuffer<Span> ringBuffer;
 
-		private ConsumerWorker(int start, int end) {
+		private ConsumerWorker(RingBuffer<Span> ringBuffer) {
 			super("ConsumerWorker");
-			this.start = start;
-			this.end = end;
+			this.ringBuffer = ringBuffer;
 		}
 
 		@Override
 		public void run() {
-			StringBuilder data = new StringBuilder();
+			List<Span> spans = new ArrayList<Span>(MAX_DRAIN_SIZE);
+			ByteBuf data = null;
 			while (true) {
-				boolean bool = false;
 				try {
-					for (int i = start; i < end; i++) {
-						if (dataBuffer[i] == null) {
-							continue;
-						}
-						bool = true;
-						if (data.length() + dataBuffer[i].toString().length() >= Config.Sender.MAX_SEND_LENGTH) {
-							while (!DataSenderFactoryWithBalance.getSender()
-									.send(data.toString())) {
-								try {
-									Thread.sleep(CONSUMER_FAIL_RETRY_WAIT_INTERVAL);
-								} catch (InterruptedException e) {
-									logger.error("Sleep Failure");
-								}
-							}
-							logger.debug("send buried-point data, size:{}", data.length());
-							data = new StringBuilder();
-						}
+					resendFailedData();
 
-						data.append(dataBuffer[i] + Constants.DATA_SPILT);
-						dataBuffer[i] = null;
+					if (ringBuffer.drainTo(spans, MAX_DRAIN_SIZE) == 0) {
+						ringBuffer.waitFor(MAX_WAIT_TIME);
+						continue;
 					}
 
-					if (data != null && data.length() > 0) {
-						while (!DataSenderFactoryWithBalance.getSender().send(
-								data.toString())) {
-							try {
-								Thread.sleep(CONSUMER_FAIL_RETRY_WAIT_INTERVAL);
-							} catch (InterruptedException e) {
-								logger.error("Sleep Failure");
-							}
+					data = newBatchBuffer();
+					for (Span span : spans) {
+						int spanStartIndex = data.writerIndex();
+						SpanSerializer.serialize(span, data);
+						if (data.writerIndex() >= Config.Sender.MAX_SEND_LENGTH && spanStartIndex > BATCH_HEADER_LENGTH) {
+							// 超出最大发送长度，先发送之前的数据，当前Span写入新的ByteBuf
+							data.writerIndex(spanStartIndex);
+							sendBatch(data);
+							logger.debug("send buried-point data, size:{}", data.readableBytes());
+							data.release();
+							data = null;
+							data = newBatchBuffer();
+							SpanSerializer.serialize(span, data);
 						}
-						data = new StringBuilder();
+					}
+
+					if (data.writerIndex() > BATCH_HEADER_LENGTH) {
+						sendBatch(data);
 					}
 				} catch (Throwable e) {
 					logger.error("buffer group running failed", e);
+				} finally {
+					for (Span span : spans) {
+						SpanRecycler.release(span);
+					}
+					spans.clear();
+					if (data != null) {
+						data.release();
+						data = null;
+					}
 				}
+			}
+		}
 
-				if (!bool) {
-					try {
-						Thread.sleep(MAX_WAIT_TIME);
-					} catch (InterruptedException e) {
-						logger.error("Sleep Failure");
-					}
+		/**
+		 * 重发异步写出失败的数据，应答模式下沿用原有的序号
+		 */
+		private void resendFailedData() {
+			ByteBuf failedData;
+			while ((failedData = RetrySendQueue.poll()) != null) {
+				try {
+					send(failedData);
+				} finally {
+					failedData.release();
 				}
 			}
 		}
 	}
 
+	/**
+	 * 应答模式下，在数据之前预留帧头
+	 */
+	static ByteBuf newBatchBuffer() {
+		ByteBuf data = ALLOCATOR.directBuffer(Config.Sender.MAX_SEND_LENGTH);
+		data.writerIndex(BATCH_HEADER_LENGTH);
+		return data;
+	}
+
+	static void sendBatch(ByteBuf data) {
+		if (Config.Sender.ACK_ENABLE) {
+			AckedBatchTracker.prepare(data);
+		}
+		send(data);
+	}
+
+	static void send(ByteBuf data) {
+		long startTime = System.currentTimeMillis();
+		while (true) {
+			IDataSender sender = DataSenderFactoryWithBalance.tryGetSender();
+			if (sender != null && sender.send(data)) {
+				LoadShedder.recordSendLatency(System.currentTimeMillis() - startTime);
+				return;
+			}
+			// 没有可用的Sender，写入磁盘缓存，待恢复之后重发
+			if (sender == null && Config.Spool.ENABLE && DiskSpool.append(data)) {
+				return;
+			}
+			// 埋点已关闭，不再重试，避免数据在内存中积压
+			if (LoadShedder.isOff()) {
+				LoadShedder.recordDiscardedBatch();
+				return;
+			}
+			try {
+				Thread.sleep(sender == null ? RETRY_GET_SENDER_WAIT_INTERVAL : CONSUMER_FAIL_RETRY_WAIT_INTERVAL);
+			} catch (InterruptedException e) {
+				logger.error("Sleep Failure");
+			}
+		}
+	}
+
 	public String getGroupName() {
 		return groupName;
 	}
@@ -1,6 +1,11 @@
 package com.ai.cloud.skywalking.buffer;
 
+import com.ai.cloud.skywalking.conf.Config;
+import com.ai.cloud.skywalking.degrade.LoadShedder;
 import com.ai.cloud.skywalking.protocol.Span;
+import com.ai.cloud.skywalking.recycler.SpanRecycler;
+import com.ai.cloud.skywalking.selfexamination.IGauge;
+import com.ai.cloud.skywalking.selfexamination.SDKMetrics;
 
 import java.util.concurrent.ThreadLocalRandom;
 
@@ -14,18 +19,49 @@ public class ContextBuffer {
 
     private static BufferPool pool = new BufferPool();
 
+    static {
+        SDKMetrics.registerGauge("spans collided", new IGauge() {
+            @Override
+            public long getValue() {
+                return pool.getOverwrittenCount();
+            }
+        });
+        SDKMetrics.registerGauge("buffer occupancy(%)", new IGauge() {
+            @Override
+            public long getValue() {
+                return pool.getMaxOccupancy();
+            }
+        });
+    }
+
     private ContextBuffer() {
         //non
     }
 
     public static void save(Span span) {
     	try{
+    		if (Config.Aggregation.ENABLE && SpanAggregator.aggregate(span)) {
+    			SDKMetrics.SPANS_AGGREGATED.increment();
+    			SpanRecycler.release(span);
+    			return;
+    		}
+    		if (!LoadShedder.isSpanAccepted(span)) {
+    			SDKMetrics.SPANS_DROPPED.increment();
+    			SpanRecycler.release(span);
+    			return;
+    		}
     		pool.save(span);
     	}catch(Throwable t){
     		logger.error("save span error.", t);
     	}
     }
 
+    /**
+     * @return 所有Buffer中最高的占用率(百分比)
+     */
+    public static int getMaxOccupancy() {
+        return pool.getMaxOccupancy();
+    }
 
     static class BufferPool {
         private static BufferGroup[] bufferGroups = new BufferGroup[POOL_SIZE];
@@ -39,6 +75,22 @@ public class ContextBuffer {
             bufferGroups[ThreadLocalRandom.current().nextInt(0, POOL_SIZE)].save(span);
         }
 
+        public int getMaxOccupancy() {
+            int maxOccupancy = 0;
+            for (BufferGroup bufferGroup : bufferGroups) {
+                maxOccupancy = Math.max(maxOccupancy, bufferGroup.getMaxOccupancy());
+            }
+            return maxOccupancy;
+        }
+
+        public long getOverwrittenCount() {
+            long overwrittenCount = 0;
+            for (BufferGroup bufferGroup : bufferGroups) {
+                overwrittenCount += bufferGroup.getOverwrittenCount();
+            }
+            return overwrittenCount;
+        }
+
     }
 }
 
@@ -0,0 +1,320 @@
+package com.ai.cloud.skywalking.buffer;
+
+import static com.ai.cloud.skywalking.conf.Config.Aggregation.COST_THRESHOLD;
+import static com.ai.cloud.skywalking.conf.Config.Aggregation.EXEMPLARS_PER_MINUTE;
+import static com.ai.cloud.skywalking.conf.Config.Aggregation.FLUSH_INTERVAL;
+import static com.ai.cloud.skywalking.conf.Config.Aggregation.MAX_VIEW_POINTS;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.ai.cloud.io.netty.buffer.ByteBuf;
+import com.ai.cloud.io.netty.util.internal.LongCounter;
+import com.ai.cloud.io.netty.util.internal.PlatformDependent;
+import com.ai.cloud.skywalking.conf.Config;
+import com.ai.cloud.skywalking.conf.Constants;
+import com.ai.cloud.skywalking.protocol.Span;
+import com.ai.cloud.skywalking.protocol.ViewPointMetric;
+import com.ai.cloud.skywalking.selfexamination.IGauge;
+import com.ai.cloud.skywalking.selfexamination.SDKMetrics;
+
+/**
+ * 将快速且成功的Span按(视点, 分钟)预聚合为{@link ViewPointMetric}，慢的、失败的、携带错误堆栈的Span以及每分钟的样例Span仍完整发送<br/>
+ * 热点路径上只做无锁计数；分钟切换时由写入线程CAS替换统计桶，被替换的桶在下一个周期才发送，等待仍在写入的线程完成<br/>
+ * 一分钟以上没有Span的视点由发送线程关闭并移出，不再占用MAX_VIEW_POINTS
+ */
+public final class SpanAggregator {
+    private static Logger logger = LogManager.getLogger(SpanAggregator.class);
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final byte[] DATA_SPILT = Constants.DATA_SPILT.getBytes(UTF_8);
+    private static final long MINUTE = 60 * 1000L;
+
+    // 发送端与接收端的Span分开统计
+    private static final ConcurrentMap<String, MetricSlot> SENDER_SLOTS = new ConcurrentHashMap<String, MetricSlot>();
+    private static final ConcurrentMap<String, MetricSlot> RECEIVER_SLOTS = new ConcurrentHashMap<String, MetricSlot>();
+
+    // 已被替换，等待发送的统计桶
+    private static final Queue<MinuteBucket> RETIRED_BUCKETS = new ConcurrentLinkedQueue<MinuteBucket>();
+
+    private static volatile boolean started = false;
+
+    static {
+        SDKMetrics.registerGauge("aggregated view points", new IGauge() {
+            @Override
+            public long getValue() {
+                return SENDER_SLOTS.size() + RECEIVER_SLOTS.size();
+            }
+        });
+    }
+
+    private SpanAggregator() {
+        // Non
+    }
+
+    /**
+     * @param span
+     * @return 是否已被聚合，为false时Span需完整发送
+     */
+    public static boolean aggregate(Span span) {
+        // 被忽略的异常状态码为0，但仍可能携带错误堆栈
+        if (span.getStatusCode() != 0 || span.hasExceptionStack() || span.getCost() >= COST_THRESHOLD) {
+            return false;
+        }
+        if (!started) {
+            start();
+        }
+
+        ConcurrentMap<String, MetricSlot> slots = span.isReceiver() ? RECEIVER_SLOTS : SENDER_SLOTS;
+        long minute = span.getStartDate() - span.getStartDate() % MINUTE;
+        MetricSlot slot = slots.get(span.getViewPointId());
+        if (slot == null) {
+            if (slots.size() >= MAX_VIEW_POINTS) {
+                return false;
+            }
+            MetricSlot newSlot = new MetricSlot(span, minute);
+            slot = slots.putIfAbsent(span.getViewPointId(), newSlot);
+            if (slot == null) {
+                slot = newSlot;
+            }
+        }
+
+        MinuteBucket bucket = slot.bucket(minute);
+        if (bucket == null || bucket.takeExemplar()) {
+            // 迟到的Span、已关闭视点的Span或样例Span完整发送
+            return false;
+        }
+        bucket.record(span.getCostMicros());
+        return true;
+    }
+
+    private static synchronized void start() {
+        if (started) {
+            return;
+        }
+        new MetricFlusher().start();
+        started = true;
+    }
+
+    static class MetricSlot {
+        private static final AtomicReferenceFieldUpdater<MetricSlot, MinuteBucket> BUCKET_UPDATER =
+                AtomicReferenceFieldUpdater.newUpdater(MetricSlot.class, MinuteBucket.class, "bucket");
+
+        private final String applicationId;
+        private final String userId;
+        private final String viewPointId;
+        private final String spanType;
+        private final String callType;
+        private final boolean isReceiver;
+        private final String processNo;
+        private final String address;
+
+        // 已关闭视点的桶，分钟大于任何Span，写入线程拿到null后完整发送
+        private final MinuteBucket closed = new MinuteBucket(this, Long.MAX_VALUE);
+
+        private volatile MinuteBucket bucket;
+
+        MetricSlot(Span span, long minute) {
+            this.applicationId = span.getApplicationId();
+            this.userId = span.getUserId();
+            this.viewPointId = span.getViewPointId();
+            this.spanType = span.getSpanType();
+            this.callType = span.getCallType();
+            this.isReceiver = span.isReceiver();
+            this.processNo = span.getProcessNo();
+            this.address = span.getAddress();
+            this.bucket = new MinuteBucket(this, minute);
+        }
+
+        /**
+         * @return 指定分钟的统计桶，早于当前桶的分钟返回null
+         */
+        MinuteBucket bucket(long minute) {
+            while (true) {
+                MinuteBucket current = bucket;
+                if (current.minute == minute) {
+                    return current;
+                }
+                if (current.minute > minute) {
+                    return null;
+                }
+                if (BUCKET_UPDATER.compareAndSet(this, current, new MinuteBucket(this, minute))) {
+                    RETIRED_BUCKETS.offer(current);
+                }
+            }
+        }
+
+        /**
+         * 已结束的一分钟内没有Span，或当前桶早于上一分钟时关闭视点，当前桶在下一个周期发送
+         *
+         * @return 是否已关闭
+         */
+        boolean closeIfIdle(long currentMinute) {
+            MinuteBucket current = bucket;
+            if (current.minute >= currentMinute || (current.minute == currentMinute - MINUTE && !current.isEmpty())) {
+                return false;
+            }
+            // 与写入线程的分钟切换竞争，失败说明视点又有了新的Span
+            if (!BUCKET_UPDATER.compareAndSet(this, current, closed)) {
+                return false;
+            }
+            RETIRED_BUCKETS.offer(current);
+            return true;
+        }
+
+        ViewPointMetric newMetric(long minute) {
+            return new ViewPointMetric(minute, applicationId, userId, viewPointId, spanType, callType, isReceiver,
+                    processNo, address);
+        }
+    }
+
+    static class MinuteBucket {
+        private static final AtomicIntegerFieldUpdater<MinuteBucket> EXEMPLARS_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(MinuteBucket.class, "exemplars");
+
+        private final MetricSlot slot;
+        private final long minute;
+        private final LongCounter count = PlatformDependent.newLongCounter();
+        private final LongCounter totalCostMicros = PlatformDependent.newLongCounter();
+        private final AtomicLongArray histogram = new AtomicLongArray(ViewPointMetric.HISTOGRAM_SIZE);
+
+        private volatile int exemplars = 0;
+
+        MinuteBucket(MetricSlot slot, long minute) {
+            this.slot = slot;
+            this.minute = minute;
+        }
+
+        /**
+         * @return 是否作为样例完整发送
+         */
+        boolean takeExemplar() {
+            if (exemplars >= EXEMPLARS_PER_MINUTE) {
+                return false;
+            }
+            return EXEMPLARS_UPDATER.incrementAndGet(this) <= EXEMPLARS_PER_MINUTE;
+        }
+
+        boolean isEmpty() {
+            return exemplars == 0 && count.value() == 0;
+        }
+
+        void record(long costMicros) {
+            count.increment();
+            totalCostMicros.add(costMicros);
+            histogram.incrementAndGet(ViewPointMetric.histogramIndex(costMicros));
+        }
+
+        /**
+         * @return 统计结果，没有聚合的Span时返回null
+         */
+        ViewPointMetric toMetric() {
+            long countValue = count.value();
+            if (countValue == 0) {
+                return null;
+            }
+            long[] histogramValue = new long[ViewPointMetric.HISTOGRAM_SIZE];
+            for (int i = 0; i < histogramValue.length; i++) {
+                histogramValue[i] = histogram.get(i);
+            }
+            ViewPointMetric metric = slot.newMetric(minute);
+            metric.record(countValue, totalCostMicros.value(), histogramValue);
+            return metric;
+        }
+    }
+
+    static class MetricFlusher extends Thread {
+        MetricFlusher() {
+            super("SpanAggregatorFlusher");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<MinuteBucket> pendingBuckets = new ArrayList<MinuteBucket>();
+            while (true) {
+                try {
+                    // 上一周期被替换的桶，此时已没有线程写入
+                    flush(pendingBuckets);
+                    pendingBuckets.clear();
+
+                    long currentMinute = System.currentTimeMillis() - System.currentTimeMillis() % MINUTE;
+                    retireEndedBuckets(SENDER_SLOTS, currentMinute);
+                    retireEndedBuckets(RECEIVER_SLOTS, currentMinute);
+                    MinuteBucket bucket;
+                    while ((bucket = RETIRED_BUCKETS.poll()) != null) {
+                        pendingBuckets.add(bucket);
+                    }
+                } catch (Throwable e) {
+                    logger.error("SpanAggregatorFlusher running failed.", e);
+                }
+
+                try {
+                    Thread.sleep(FLUSH_INTERVAL);
+                } catch (InterruptedException e) {
+                    logger.warn("sleep error.", e);
+                }
+            }
+        }
+
+        /**
+         * 没有新的Span写入时，由发送线程替换已结束分钟的桶；一分钟以上没有Span的视点关闭并移出<br/>
+         * 被移出视点的最后一个桶为空或早于上一分钟，重建的视点不会产生同一分钟的重复统计结果
+         */
+        private void retireEndedBuckets(ConcurrentMap<String, MetricSlot> slots, long currentMinute) {
+            Iterator<Map.Entry<String, MetricSlot>> iterator = slots.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, MetricSlot> entry = iterator.next();
+                MetricSlot slot = entry.getValue();
+                if (slot.closeIfIdle(currentMinute)) {
+                    slots.remove(entry.getKey(), slot);
+                } else {
+                    slot.bucket(currentMinute);
+                }
+            }
+        }
+
+        private void flush(List<MinuteBucket> buckets) {
+            ByteBuf data = null;
+            try {
+                for (MinuteBucket bucket : buckets) {
+                    ViewPointMetric metric = bucket.toMetric();
+                    if (metric == null) {
+                        continue;
+                    }
+                    byte[] record = metric.toString().getBytes(UTF_8);
+                    if (data != null && data.writerIndex() + record.length + DATA_SPILT.length > Config.Sender.MAX_SEND_LENGTH) {
+                        BufferGroup.sendBatch(data);
+                        data.release();
+                        data = null;
+                    }
+                    if (data == null) {
+                        data = BufferGroup.newBatchBuffer();
+                    }
+                    data.writeBytes(record);
+                    data.writeBytes(DATA_SPILT);
+                }
+                if (data != null) {
+                    BufferGroup.sendBatch(data);
+                }
+            } finally {
+                if (data != null) {
+                    data.release();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.ai.cloud.skywalking.buffer;
+
+import static com.ai.cloud.skywalking.conf.Config.TailSampling.CHECK_INTERVAL;
+import static com.ai.cloud.skywalking.conf.Config.TailSampling.KEEP_RATE;
+import static com.ai.cloud.skywalking.conf.Config.TailSampling.LATENCY_THRESHOLD;
+import static com.ai.cloud.skywalking.conf.Config.TailSampling.MAX_HELD_SIZE;
+import static com.ai.cloud.skywalking.conf.Config.TailSampling.MAX_HOLD_TIME;
+import static com.ai.cloud.skywalking.conf.Config.TailSampling.MAX_SEGMENT_SIZE;
+import static com.ai.cloud.skywalking.sampler.ProbabilisticSampler.MAX_RATE;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.ai.cloud.io.netty.buffer.ByteBuf;
+import com.ai.cloud.io.netty.buffer.PooledByteBufAllocator;
+import com.ai.cloud.skywalking.conf.Config;
+import com.ai.cloud.skywalking.context.Context;
+import com.ai.cloud.skywalking.protocol.Span;
+import com.ai.cloud.skywalking.recycler.SpanRecycler;
+import com.ai.cloud.skywalking.selfexamination.IGauge;
+import com.ai.cloud.skywalking.selfexamination.SDKMetrics;
+import com.ai.cloud.skywalking.sender.SpanSerializer;
+
+/**
+ * 尾部采样，线程内调用链片段的Span序列化到堆外内存中暂存，片段的根Span结束时再决定是否发送<br/>
+ * 片段中有异常或慢的Span时完整发送，否则按traceId的哈希以KEEP_RATE保留，同一调用链的各片段决定一致；
+ * 超出暂存时间、片段大小或总内存限制时，已暂存的数据直接发送，片段中后续的Span不再暂存<br/>
+ * 暂存的数据只由所属线程写入，超时的片段由发送线程取走，双方通过CAS交接
+ */
+public final class TraceSegmentBuffer {
+    private static Logger logger = LogManager.getLogger(TraceSegmentBuffer.class);
+
+    private static final int INITIAL_SEGMENT_CAPACITY = 1024;
+
+    private static final ThreadLocal<Segment> SEGMENT = new ThreadLocal<Segment>() {
+        @Override
+        protected Segment initialValue() {
+            return new Segment();
+        }
+    };
+
+    // 有暂存数据的片段，由发送线程检查是否超时
+    private static final Queue<Segment> HOLDING_SEGMENTS = new ConcurrentLinkedQueue<Segment>();
+    // 已决定保留，等待发送的片段数据
+    private static final Queue<ByteBuf> KEPT_SEGMENTS = new ConcurrentLinkedQueue<ByteBuf>();
+    // 暂存中以及等待发送的总字节数
+    private static final AtomicLong HELD_BYTES = new AtomicLong();
+
+    private static volatile boolean started = false;
+
+    static {
+        SDKMetrics.registerGauge("tail sampling held bytes", new IGauge() {
+            @Override
+            public long getValue() {
+                return HELD_BYTES.get();
+            }
+        });
+    }
+
+    private TraceSegmentBuffer() {
+        // Non
+    }
+
+    /**
+     * 保存已出栈的Span，未开启尾部采样时直接写入{@link ContextBuffer}
+     *
+     * @param span
+     */
+    public static void save(Span span) {
+        if (!Config.TailSampling.ENABLE) {
+            ContextBuffer.save(span);
+            return;
+        }
+        try {
+            SEGMENT.get().save(span, Context.isEmpty());
+        } catch (Throwable t) {
+            logger.error("save span to trace segment buffer error.", t);
+        }
+    }
+
+    /**
+     * 保存不属于线程内片段的Span，如异步句柄结束的Span，未开启尾部采样时直接写入{@link ContextBuffer}<br/>
+     * 这类Span不暂存，按{@link #isKept(Span)}立即决定发送或丢弃
+     *
+     * @param span
+     */
+    public static void saveDetached(Span span) {
+        if (!Config.TailSampling.ENABLE || isKept(span)) {
+            ContextBuffer.save(span);
+            return;
+        }
+        SDKMetrics.SPANS_TAIL_DISCARDED.increment();
+        SpanRecycler.release(span);
+    }
+
+    /**
+     * 不经过片段暂存时，Span是否保留：异常或慢的Span总是保留，否则与所属调用链的片段按traceId的哈希做出相同的决定
+     *
+     * @param span
+     * @return
+     */
+    public static boolean isKept(Span span) {
+        return isInteresting(span) || isKept(span.getTraceId());
+    }
+
+    private static boolean isInteresting(Span span) {
+        return span.getStatusCode() != 0 || span.hasExceptionStack()
+                || span.getCostMicros() >= LATENCY_THRESHOLD * 1000;
+    }
+
+    /**
+     * 按traceId的哈希决定是否保留，同一调用链在不同线程、不同进程中的决定相同
+     *
+     * @param traceId
+     * @return
+     */
+    private static boolean isKept(String traceId) {
+        if (KEEP_RATE >= MAX_RATE) {
+            return true;
+        }
+        if (KEEP_RATE <= 0 || traceId == null) {
+            return false;
+        }
+        // String.hashCode的算法是固定的，再打散一次避免traceId前缀相同时分布不均
+        int hash = traceId.hashCode();
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return (hash & Integer.MAX_VALUE) % MAX_RATE < KEEP_RATE;
+    }
+
+    /**
+     * 单个片段不超过一个批次的数据长度，保证保留的片段总能写入一个批次
+     *
+     * @return
+     */
+    private static int maxSegmentSize() {
+        return Math.min(MAX_SEGMENT_SIZE, Config.Sender.MAX_SEND_LENGTH - BufferGroup.BATCH_HEADER_LENGTH);
+    }
+
+    private static void keep(ByteBuf data) {
+        KEPT_SEGMENTS.offer(data);
+        if (!started) {
+            start();
+        }
+    }
+
+    private static synchronized void start() {
+        if (started) {
+            return;
+        }
+        new SegmentSender().start();
+        started = true;
+    }
+
+    static class Segment {
+        // 暂存的数据，所属线程写入期间以及被发送线程取走之后为null
+        private final AtomicReference<ByteBuf> data = new AtomicReference<ByteBuf>();
+        // 是否在HOLDING_SEGMENTS中
+        private final AtomicBoolean registered = new AtomicBoolean();
+        private volatile long startTime;
+
+        // 以下字段只由所属线程访问
+        // 已暂存的Span数量，大于0而data为null时，表示已被发送线程取走
+        private int spanCount;
+        // 片段已决定发送，后续的Span直接写入ContextBuffer
+        private boolean passthrough;
+
+        void save(Span span, boolean root) {
+            if (!passthrough) {
+                if (isInteresting(span)) {
+                    keepHeld();
+                    passthrough = true;
+                } else if (root) {
+                    ByteBuf held = data.getAndSet(null);
+                    boolean taken = held == null && spanCount > 0;
+                    if (taken || isKept(span.getTraceId())) {
+                        if (held != null) {
+                            keep(held);
+                        }
+                        spanCount = 0;
+                    } else {
+                        discard(held);
+                        SpanRecycler.release(span);
+                        return;
+                    }
+                } else if (hold(span)) {
+                    return;
+                } else {
+                    keepHeld();
+                    passthrough = true;
+                }
+            }
+
+            ContextBuffer.save(span);
+            if (root) {
+                passthrough = false;
+            }
+        }
+
+        /**
+         * @return 是否已暂存，超出限制或已被发送线程取走时返回false
+         */
+        private boolean hold(Span span) {
+            ByteBuf held = data.getAndSet(null);
+            if (held == null) {
+                if (spanCount > 0 || HELD_BYTES.get() >= MAX_HELD_SIZE) {
+                    return false;
+                }
+                held = PooledByteBufAllocator.DEFAULT.directBuffer(INITIAL_SEGMENT_CAPACITY);
+                startTime = System.currentTimeMillis();
+            } else if (HELD_BYTES.get() >= MAX_HELD_SIZE || System.currentTimeMillis() - startTime >= MAX_HOLD_TIME) {
+                data.set(held);
+                return false;
+            }
+
+            int spanStartIndex = held.writerIndex();
+            boolean fitted = false;
+            try {
+                SpanSerializer.serialize(span, held);
+                fitted = held.writerIndex() <= maxSegmentSize();
+            } finally {
+                // 超出片段大小时回退当前Span，已暂存的Span不受影响
+                if (!fitted) {
+                    held.writerIndex(spanStartIndex);
+                }
+                restore(held);
+            }
+            if (!fitted) {
+                return false;
+            }
+            HELD_BYTES.addAndGet(held.writerIndex() - spanStartIndex);
+            spanCount++;
+            SpanRecycler.release(span);
+            return true;
+        }
+
+        private void restore(ByteBuf held) {
+            if (!held.isReadable()) {
+                held.release();
+                return;
+            }
+            data.set(held);
+            if (registered.compareAndSet(false, true)) {
+                HOLDING_SEGMENTS.offer(this);
+                if (!started) {
+                    start();
+                }
+            }
+        }
+
+        private void keepHeld() {
+            ByteBuf held = data.getAndSet(null);
+            if (held != null) {
+                keep(held);
+            }
+            spanCount = 0;
+        }
+
+        private void discard(ByteBuf held) {
+            if (held != null) {
+                HELD_BYTES.addAndGet(-held.readableBytes());
+                held.release();
+            }
+            SDKMetrics.SPANS_TAIL_DISCARDED.add(spanCount + 1);
+            spanCount = 0;
+        }
+    }
+
+    /**
+     * 取走超时的片段，并将保留的片段按MAX_SEND_LENGTH合并发送
+     */
+    static class SegmentSender extends Thread {
+        SegmentSender() {
+            super("TraceSegmentSender");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    takeExpiredSegments();
+                    sendKeptSegments();
+                } catch (Throwable e) {
+                    logger.error("TraceSegmentSender running failed.", e);
+                }
+
+                try {
+                    Thread.sleep(CHECK_INTERVAL);
+                } catch (InterruptedException e) {
+                    logger.warn("sleep error.", e);
+                }
+            }
+        }
+
+        private void takeExpiredSegments() {
+            long now = System.currentTimeMillis();
+            Iterator<Segment> iterator = HOLDING_SEGMENTS.iterator();
+            while (iterator.hasNext()) {
+                Segment segment = iterator.next();
+                ByteBuf held = segment.data.get();
+                if (held == null) {
+                    iterator.remove();
+                    segment.registered.set(false);
+                    // 所属线程可能在移除之前再次写入
+                    if (segment.data.get() != null && segment.registered.compareAndSet(false, true)) {
+                        HOLDING_SEGMENTS.offer(segment);
+                    }
+                } else if (now - segment.startTime >= MAX_HOLD_TIME && segment.data.compareAndSet(held, null)) {
+                    KEPT_SEGMENTS.offer(held);
+                }
+            }
+        }
+
+        private void sendKeptSegments() {
+            ByteBuf batch = null;
+            try {
+                ByteBuf segment;
+                while ((segment = KEPT_SEGMENTS.poll()) != null) {
+                    try {
+                        if (batch != null && batch.writerIndex() + segment.readableBytes() > Config.Sender.MAX_SEND_LENGTH) {
+                            BufferGroup.sendBatch(batch);
+                            batch.release();
+                            batch = null;
+                        }
+                        if (batch == null) {
+                            batch = BufferGroup.newBatchBuffer();
+                        }
+                        // 片段不超过maxSegmentSize()，总能写入一个新的批次
+                        batch.writeBytes(segment, segment.readerIndex(), segment.readableBytes());
+                    } finally {
+                        HELD_BYTES.addAndGet(-segment.readableBytes());
+                        segment.release();
+                    }
+                }
+                if (batch != null) {
+                    BufferGroup.sendBatch(batch);
+                }
+            } finally {
+                if (batch != null) {
+                    batch.release();
+                }
+            }
+        }
+    }
+}
@@ -17,6 +17,14 @@ public class ApplicationExceptionHandler implements IExceptionHandler {
 
 	@Override
 	public void handleException(Throwable th) {
+		Span span = Context.getLastSpan();
+		if (span == null) {
+			return;
+		}
+		handleException(span, th);
+	}
+
+	static void handleException(Span span, Throwable th) {
 		if (exclusiveExceptionSet == null) {
 			Set<String> exclusiveExceptions = new HashSet<String>();
 			
@@ -27,9 +35,22 @@ public class ApplicationExceptionHandler implements IExceptionHandler {
 			exclusiveExceptionSet = exclusiveExceptions;
 		}
 
-		Span span = Context.getLastSpan();
-		span.handleException(th, exclusiveExceptionSet,
-				Config.BuriedPoint.MAX_EXCEPTION_STACK_LENGTH);
+		if (!Config.BuriedPoint.EXCEPTION_DEDUP_ENABLE) {
+			span.handleException(th, exclusiveExceptionSet,
+					Config.BuriedPoint.MAX_EXCEPTION_STACK_LENGTH);
+			return;
+		}
+
+		// 时间窗口内第一次出现的堆栈携带完整文本，之后只携带指纹和出现次数
+		long fingerprint = ExceptionDeduplicator.fingerprint(th);
+		int count = ExceptionDeduplicator.occur(fingerprint);
+		if (count == 1) {
+			span.handleException(th, exclusiveExceptionSet,
+					Config.BuriedPoint.MAX_EXCEPTION_STACK_LENGTH);
+			span.setExceptionFingerprint(Long.toHexString(fingerprint), count);
+		} else {
+			span.handleRepeatedException(th, exclusiveExceptionSet, Long.toHexString(fingerprint), count);
+		}
 	}
 
 }
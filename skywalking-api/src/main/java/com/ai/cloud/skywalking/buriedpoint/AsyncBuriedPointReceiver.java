@@ -0,0 +1,70 @@
+package com.ai.cloud.skywalking.buriedpoint;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.ai.cloud.skywalking.buffer.TraceSegmentBuffer;
+import com.ai.cloud.skywalking.conf.AuthDesc;
+import com.ai.cloud.skywalking.conf.Config;
+import com.ai.cloud.skywalking.context.Context;
+import com.ai.cloud.skywalking.model.ContextData;
+import com.ai.cloud.skywalking.model.Identification;
+import com.ai.cloud.skywalking.protocol.Span;
+import com.ai.cloud.skywalking.util.ContextGenerator;
+
+/**
+ * 跨线程的埋点：提交任务时捕获栈顶的调用链上下文，在执行任务的线程中恢复<br/>
+ * 任务在执行线程中记录为提交时栈顶Span的子节点，LevelId在提交时预留。无状态，可在多个任务间共享
+ */
+public class AsyncBuriedPointReceiver extends ApplicationExceptionHandler {
+    private static Logger logger = LogManager.getLogger(AsyncBuriedPointReceiver.class);
+
+    /**
+     * 捕获当前线程栈顶的调用链上下文
+     *
+     * @return 不存在上下文时返回null
+     */
+    public static ContextData capture() {
+        if (!AuthDesc.isAuth())
+            return null;
+
+        Span parentSpan = Context.getLastSpan();
+        if (parentSpan == null) {
+            // 未被采样的上下文不可变，直接传递
+            return Context.getLastUnsampledContextData();
+        }
+        return ContextData.newChildContextData(parentSpan, Context.reserveSubSpanLevelId());
+    }
+
+    public void beforeExecute(ContextData contextData, Identification id) {
+        if (!AuthDesc.isAuth())
+            return;
+
+        Span spanData = ContextGenerator.generateSpanFromContextData(contextData, id);
+        if (spanData == null) {
+            // 未被采样
+            return;
+        }
+        Context.appendRestored(spanData);
+    }
+
+    public void afterExecute() {
+        if (!AuthDesc.isAuth())
+            return;
+
+        Span spanData = Context.removeLastSpan();
+        if (spanData == null) {
+            return;
+        }
+        spanData.markEnd();
+
+        if (Config.BuriedPoint.PRINTF) {
+            logger.debug("TraceId:" + spanData.getTraceId() + "\tviewpointId:" + spanData.getViewPointId() + "\tParentLevelId:" + spanData.
+                    getParentLevel() + "\tLevelId:" + spanData.getLevelId());
+        }
+
+        if (!Config.Sender.IS_OFF) {
+            TraceSegmentBuffer.save(spanData);
+        }
+    }
+}
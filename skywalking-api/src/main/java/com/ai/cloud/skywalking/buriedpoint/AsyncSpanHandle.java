@@ -0,0 +1,177 @@
+package com.ai.cloud.skywalking.buriedpoint;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.ai.cloud.skywalking.api.IAsyncSpan;
+import com.ai.cloud.skywalking.buffer.TraceSegmentBuffer;
+import com.ai.cloud.skywalking.conf.AuthDesc;
+import com.ai.cloud.skywalking.conf.Config;
+import com.ai.cloud.skywalking.model.ContextData;
+import com.ai.cloud.skywalking.model.EmptyContextData;
+import com.ai.cloud.skywalking.model.Identification;
+import com.ai.cloud.skywalking.protocol.Span;
+import com.ai.cloud.skywalking.protocol.TraceId;
+import com.ai.cloud.skywalking.recycler.SpanRecycler;
+import com.ai.cloud.skywalking.sampler.Sampling;
+import com.ai.cloud.skywalking.util.ContextGenerator;
+import com.ai.cloud.skywalking.util.StringUtil;
+import com.ai.cloud.skywalking.util.TraceIdGenerator;
+
+/**
+ * {@link IAsyncSpan}的实现，Span不压入线程上下文，结束时直接放入发送缓存<br/>
+ * 状态和子节点的LevelId由CAS维护，不加锁：修改Span期间状态为MUTATING，结束时等待修改完成；
+ * 结束之后Span可能已被回收，不再修改
+ */
+public class AsyncSpanHandle implements IAsyncSpan {
+    private static Logger logger = LogManager.getLogger(AsyncSpanHandle.class);
+
+    private static final int IDLE = 0;
+    private static final int MUTATING = 1;
+    private static final int FINISHED = 2;
+
+    private static final AtomicIntegerFieldUpdater<AsyncSpanHandle> STATE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(AsyncSpanHandle.class, "state");
+    private static final AtomicIntegerFieldUpdater<AsyncSpanHandle> NEXT_SUB_SPAN_LEVEL_ID_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(AsyncSpanHandle.class, "nextSubSpanLevelId");
+
+    // 未授权时使用，所有操作均被忽略
+    private static final AsyncSpanHandle NOOP = new AsyncSpanHandle(null, new EmptyContextData());
+
+    // 未被采样时为null
+    private final Span span;
+    // 当前埋点的调用链上下文，未被采样时只含traceId
+    private final ContextData contextData;
+
+    private volatile int state = IDLE;
+    private volatile int nextSubSpanLevelId = 0;
+
+    private AsyncSpanHandle(Span span, ContextData contextData) {
+        this.span = span;
+        this.contextData = contextData;
+    }
+
+    /**
+     * @param contextData 新埋点所在位置的调用链上下文，为null时创建新的调用链
+     * @param id
+     * @param isReceiver  是否为接收端
+     * @return
+     */
+    public static AsyncSpanHandle start(ContextData contextData, Identification id, boolean isReceiver) {
+        if (!AuthDesc.isAuth())
+            return NOOP;
+
+        Span spanData;
+        if (contextData == null || StringUtil.isEmpty(contextData.getTraceId())) {
+            TraceId traceId = TraceIdGenerator.generateTraceId();
+            if (!Sampling.isSampled(id)) {
+                return new AsyncSpanHandle(null, ContextData.newUnsampledContextData(traceId));
+            }
+            spanData = SpanRecycler.newSpan(traceId, Config.SkyWalking.APPLICATION_CODE, Config.SkyWalking.USER_ID);
+        } else if (!contextData.isSampled()) {
+            // 遵循上游的采样结果
+            return new AsyncSpanHandle(null, contextData);
+        } else {
+            spanData = SpanRecycler.newSpan(contextData.getTraceId(), contextData.getParentLevel(),
+                    contextData.getLevelId(), Config.SkyWalking.APPLICATION_CODE, Config.SkyWalking.USER_ID);
+        }
+        ContextGenerator.initNewSpanData(spanData, id);
+        spanData.setReceiver(isReceiver);
+        return new AsyncSpanHandle(spanData, new ContextData(spanData));
+    }
+
+    @Override
+    public IAsyncSpan startChild(Identification id) {
+        if (this == NOOP) {
+            return NOOP;
+        }
+        if (span == null) {
+            // 子节点遵循当前埋点的采样结果
+            return new AsyncSpanHandle(null, contextData);
+        }
+        int levelId = NEXT_SUB_SPAN_LEVEL_ID_UPDATER.getAndIncrement(this);
+        return start(ContextData.newChildContextData(contextData, levelId), id, false);
+    }
+
+    @Override
+    public ContextData getContextData() {
+        return contextData;
+    }
+
+    @Override
+    public void setBusinessKey(String businessKey) {
+        if (span == null || !beginMutation()) {
+            return;
+        }
+        try {
+            if (businessKey.length() <= Config.BuriedPoint.BUSINESSKEY_MAX_LENGTH) {
+                span.setBusinessKey(businessKey);
+                return;
+            }
+            span.setBusinessKey(businessKey.substring(0, Config.BuriedPoint.BUSINESSKEY_MAX_LENGTH));
+        } finally {
+            endMutation();
+        }
+    }
+
+    @Override
+    public void handleException(Throwable th) {
+        if (span == null || !beginMutation()) {
+            return;
+        }
+        try {
+            ApplicationExceptionHandler.handleException(span, th);
+        } finally {
+            endMutation();
+        }
+    }
+
+    @Override
+    public void finish() {
+        if (span == null || !transitFromIdle(FINISHED)) {
+            return;
+        }
+        span.markEnd();
+
+        if (Config.BuriedPoint.PRINTF) {
+            logger.debug("TraceId:" + span.getTraceId() + "\tviewpointId:" + span.getViewPointId() + "\tParentLevelId:" + span.
+                    getParentLevel() + "\tLevelId:" + span.getLevelId());
+        }
+
+        // 放入发送缓存之后Span可能被回收，不再访问；尾部采样时与所属调用链一起保留或丢弃
+        if (!Config.Sender.IS_OFF) {
+            TraceSegmentBuffer.saveDetached(span);
+        }
+    }
+
+    /**
+     * @return 已结束时返回false
+     */
+    private boolean beginMutation() {
+        return transitFromIdle(MUTATING);
+    }
+
+    private void endMutation() {
+        state = IDLE;
+    }
+
+    /**
+     * 从IDLE切换到目标状态，其他线程修改Span期间自旋等待，修改只是赋值，等待时间很短
+     *
+     * @return 已结束时返回false
+     */
+    private boolean transitFromIdle(int target) {
+        while (true) {
+            int current = state;
+            if (current == FINISHED) {
+                return false;
+            }
+            if (current == IDLE && STATE_UPDATER.compareAndSet(this, IDLE, target)) {
+                return true;
+            }
+            Thread.yield();
+        }
+    }
+}
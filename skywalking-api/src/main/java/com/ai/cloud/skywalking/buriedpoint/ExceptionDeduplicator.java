@@ -0,0 +1,98 @@
+package com.ai.cloud.skywalking.buriedpoint;
+
+import static com.ai.cloud.skywalking.conf.Config.BuriedPoint.EXCEPTION_DEDUP_MAX_SIZE;
+import static com.ai.cloud.skywalking.conf.Config.BuriedPoint.EXCEPTION_DEDUP_WINDOW;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 错误堆栈去重<br/>
+ * 按异常类型和堆栈帧计算指纹，不生成堆栈文本；同一指纹在时间窗口内只有第一次需要发送完整堆栈
+ */
+final class ExceptionDeduplicator {
+    // 最多计算的cause层数，避免循环引用的异常链
+    private static final int MAX_CAUSE_DEPTH = 16;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final ConcurrentMap<Long, Occurrence> OCCURRENCES = new ConcurrentHashMap<Long, Occurrence>();
+
+    private ExceptionDeduplicator() {
+        // Non
+    }
+
+    /**
+     * 计算异常链的指纹，包含每一层的异常类型，以及堆栈帧的类名、方法名和行号
+     *
+     * @param e
+     * @return
+     */
+    static long fingerprint(Throwable e) {
+        long hash = FNV_OFFSET_BASIS;
+        Throwable cause = e;
+        for (int depth = 0; cause != null && depth < MAX_CAUSE_DEPTH; depth++) {
+            hash = mix(hash, cause.getClass().getName().hashCode());
+            for (StackTraceElement element : cause.getStackTrace()) {
+                hash = mix(hash, element.getClassName().hashCode());
+                hash = mix(hash, element.getMethodName().hashCode());
+                hash = mix(hash, element.getLineNumber());
+            }
+            cause = cause.getCause();
+        }
+        return hash;
+    }
+
+    /**
+     * 记录一次出现
+     *
+     * @param fingerprint
+     * @return 当前时间窗口内的出现次数，为1时需要发送完整堆栈
+     */
+    static int occur(long fingerprint) {
+        long now = System.currentTimeMillis();
+        Occurrence occurrence = OCCURRENCES.get(fingerprint);
+        if (occurrence == null) {
+            if (OCCURRENCES.size() >= EXCEPTION_DEDUP_MAX_SIZE) {
+                OCCURRENCES.clear();
+            }
+            occurrence = new Occurrence(now);
+            Occurrence existed = OCCURRENCES.putIfAbsent(fingerprint, occurrence);
+            if (existed != null) {
+                occurrence = existed;
+            }
+        }
+        return occurrence.occur(now);
+    }
+
+    private static long mix(long hash, int value) {
+        for (int i = 0; i < 4; i++) {
+            hash ^= (value >>> (i * 8)) & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static class Occurrence {
+        private volatile long windowStart;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private Occurrence(long windowStart) {
+            this.windowStart = windowStart;
+        }
+
+        private int occur(long now) {
+            if (now - windowStart >= EXCEPTION_DEDUP_WINDOW) {
+                synchronized (this) {
+                    if (now - windowStart >= EXCEPTION_DEDUP_WINDOW) {
+                        windowStart = now;
+                        count.set(0);
+                    }
+                }
+            }
+            return count.incrementAndGet();
+        }
+    }
+}
@@ -4,7 +4,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.ai.cloud.skywalking.api.IBuriedPointSender;
-import com.ai.cloud.skywalking.buffer.ContextBuffer;
+import com.ai.cloud.skywalking.buffer.TraceSegmentBuffer;
 import com.ai.cloud.skywalking.conf.AuthDesc;
 import com.ai.cloud.skywalking.conf.Config;
 import com.ai.cloud.skywalking.context.Context;
@@ -23,6 +23,10 @@ public class LocalBuriedPointSender extends ApplicationExceptionHandler implemen
             return new EmptyContextData();
 
         Span spanData = ContextGenerator.generateSpanFromThreadLocal(id);
+        if (spanData == null) {
+            // 未被采样时返回只含traceId的上下文，超过最大深度时返回最深栈帧的上下文
+            return Context.getLastContextData();
+        }
         // 将新创建的Context存放到ThreadLocal栈中。
         Context.append(spanData);
         // 并将当前的Context返回回去
@@ -40,7 +44,7 @@ public class LocalBuriedPointSender extends ApplicationExceptionHandler implemen
         }
 
         // 加上花费时间
-        spanData.setCost(System.currentTimeMillis() - spanData.getStartDate());
+        spanData.markEnd();
 
         if (Config.BuriedPoint.PRINTF) {
             logger.debug("TraceId:" + spanData.getTraceId() + "\tviewpointId:" + spanData.getViewPointId() + "\tParentLevelId:" + spanData.
@@ -49,7 +53,7 @@ public class LocalBuriedPointSender extends ApplicationExceptionHandler implemen
 
         // 存放到本地发送进程中
         if (!Config.Sender.IS_OFF) {
-            ContextBuffer.save(spanData);
+            TraceSegmentBuffer.save(spanData);
         }
     }
 }
@@ -4,7 +4,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.ai.cloud.skywalking.api.IBuriedPointReceiver;
-import com.ai.cloud.skywalking.buffer.ContextBuffer;
+import com.ai.cloud.skywalking.buffer.TraceSegmentBuffer;
 import com.ai.cloud.skywalking.conf.AuthDesc;
 import com.ai.cloud.skywalking.conf.Config;
 import com.ai.cloud.skywalking.context.Context;
@@ -23,10 +23,13 @@ public class RPCBuriedPointReceiver extends ApplicationExceptionHandler implemen
 
         // 获取上下文的栈顶中的元素
         Span spanData = Context.removeLastSpan();
+        if (spanData == null) {
+            return;
+        }
         // 填上必要信息
-        spanData.setCost(System.currentTimeMillis() - spanData.getStartDate());
+        spanData.markEnd();
         // 存放到本地发送进程中
-        ContextBuffer.save(spanData);
+        TraceSegmentBuffer.save(spanData);
     }
 
     public void beforeReceived(ContextData context, Identification id) {
@@ -34,6 +37,10 @@ public class RPCBuriedPointReceiver extends ApplicationExceptionHandler implemen
             return;
 
         Span spanData = ContextGenerator.generateSpanFromContextData(context, id);
+        if (spanData == null) {
+            // 未被采样
+            return;
+        }
         //设置是否为接收端
         spanData.setReceiver(true);
 
@@ -4,7 +4,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.ai.cloud.skywalking.api.IBuriedPointSender;
-import com.ai.cloud.skywalking.buffer.ContextBuffer;
+import com.ai.cloud.skywalking.buffer.TraceSegmentBuffer;
 import com.ai.cloud.skywalking.conf.AuthDesc;
 import com.ai.cloud.skywalking.conf.Config;
 import com.ai.cloud.skywalking.context.Context;
@@ -12,7 +12,9 @@ import com.ai.cloud.skywalking.model.ContextData;
 import com.ai.cloud.skywalking.model.EmptyContextData;
 import com.ai.cloud.skywalking.model.Identification;
 import com.ai.cloud.skywalking.protocol.Span;
+import com.ai.cloud.skywalking.sampler.Sampling;
 import com.ai.cloud.skywalking.util.BuriedPointMachineUtil;
+import com.ai.cloud.skywalking.util.CachedClock;
 import com.ai.cloud.skywalking.util.TraceIdGenerator;
 
 
@@ -21,6 +23,9 @@ public class ThreadBuriedPointSender extends ApplicationExceptionHandler impleme
 
     private Span span;
 
+    // 所在的调用链未被采样时的上下文，此时span为null
+    private ContextData unsampledContextData;
+
     public ThreadBuriedPointSender(int threadSeqId) {
         if (!AuthDesc.isAuth())
             return;
@@ -28,12 +33,16 @@ public class ThreadBuriedPointSender extends ApplicationExceptionHandler impleme
         // 从ThreadLocal中取出上下文
         final Span parentSpanData = Context.getLastSpan();
         if (parentSpanData == null) {
-            spanData = new Span(TraceIdGenerator.generate(), Config.SkyWalking.APPLICATION_CODE,
-                    Config.SkyWalking.USER_ID);
+            this.unsampledContextData = Context.getLastUnsampledContextData();
+            if (this.unsampledContextData != null) {
+                return;
+            }
+            spanData = new Span(null, Config.SkyWalking.APPLICATION_CODE, Config.SkyWalking.USER_ID);
+            spanData.setTraceId(TraceIdGenerator.generateTraceId());
         } else {
             // 如果不为空，则将当前的Context存放到上下文
-            spanData = new Span(parentSpanData.getTraceId(), Config.SkyWalking.APPLICATION_CODE,
-                    Config.SkyWalking.USER_ID);
+            spanData = new Span(null, Config.SkyWalking.APPLICATION_CODE, Config.SkyWalking.USER_ID);
+            spanData.inheritTraceId(parentSpanData);
             spanData.setParentLevel(parentSpanData.getParentLevel() + "." + parentSpanData.getLevelId());
             spanData.setLevelId(threadSeqId);
         }
@@ -44,10 +53,25 @@ public class ThreadBuriedPointSender extends ApplicationExceptionHandler impleme
         if (!AuthDesc.isAuth())
             return new EmptyContextData();
 
+        if (this.span != null && this.span.getParentLevel() == null && !Sampling.isSampled(id)) {
+            // 新创建的调用链未被采样
+            this.unsampledContextData = ContextData.newUnsampledContextData(this.span.getLazyTraceId());
+            this.span = null;
+        }
+        if (this.unsampledContextData != null) {
+            Context.appendUnsampled(this.unsampledContextData);
+            return this.unsampledContextData;
+        }
         if (this.span == null) {
             return null;
         }
-        span.setStartDate(System.currentTimeMillis());
+        if (Context.isFull()) {
+            // 超过最大深度，不记录该Span
+            Context.appendOverflow();
+            return Context.getLastContextData();
+        }
+        span.setStartDate(CachedClock.currentTimeMillis());
+        span.setStartNanoTime(System.nanoTime());
         span.setViewPointId(id.getViewPoint());
         span.setProcessNo(BuriedPointMachineUtil.getProcessNo());
         Context.append(span);
@@ -60,14 +84,14 @@ public class ThreadBuriedPointSender extends ApplicationExceptionHandler impleme
             return;
         }
         // 填上必要信息
-        span.setCost(System.currentTimeMillis() - span.getStartDate());
+        span.markEnd();
         if (Config.BuriedPoint.PRINTF) {
             logger.debug("viewpointId:" + span.getViewPointId() + "\tParentLevelId:" + span.
                     getParentLevel() + "\tLevelId:" + span.getLevelId());
         }
         // 存放到本地发送进程中
         if (!Config.Sender.IS_OFF) {
-            ContextBuffer.save(span);
+            TraceSegmentBuffer.save(span);
         }
     }
 
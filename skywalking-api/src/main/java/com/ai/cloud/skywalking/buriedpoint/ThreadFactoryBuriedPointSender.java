@@ -4,7 +4,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.ai.cloud.skywalking.api.IBuriedPointSender;
-import com.ai.cloud.skywalking.buffer.ContextBuffer;
+import com.ai.cloud.skywalking.buffer.TraceSegmentBuffer;
 import com.ai.cloud.skywalking.conf.AuthDesc;
 import com.ai.cloud.skywalking.conf.Config;
 import com.ai.cloud.skywalking.context.Context;
@@ -22,6 +22,10 @@ public class ThreadFactoryBuriedPointSender extends ApplicationExceptionHandler
             return new EmptyContextData();
 
         Span spanData = ContextGenerator.generateSpanFromThreadLocal(id);
+        if (spanData == null) {
+            // 未被采样时返回只含traceId的上下文，超过最大深度时返回最深栈帧的上下文
+            return Context.getLastContextData();
+        }
         // 将新创建的Context存放到ThreadLocal栈中。
         Context.append(spanData);
         // 并将当前的Context返回回去
@@ -38,14 +42,14 @@ public class ThreadFactoryBuriedPointSender extends ApplicationExceptionHandler
             return;
         }
         // 填上必要信息
-        spanData.setCost(System.currentTimeMillis() - spanData.getStartDate());
+        spanData.markEnd();
         if (Config.BuriedPoint.PRINTF) {
             logger.debug("viewpointId:" + spanData.getViewPointId() + "\tParentLevelId:" + spanData.
                     getParentLevel() + "\tLevelId:" + spanData.getLevelId());
         }
         // 存放到本地发送进程中
         if (!Config.Sender.IS_OFF) {
-            ContextBuffer.save(spanData);
+            TraceSegmentBuffer.save(spanData);
         }
     }
 }
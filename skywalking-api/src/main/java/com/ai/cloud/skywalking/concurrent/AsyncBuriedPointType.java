@@ -0,0 +1,27 @@
+package com.ai.cloud.skywalking.concurrent;
+
+import com.ai.cloud.skywalking.api.IBuriedPointType;
+import com.ai.cloud.skywalking.protocol.CallType;
+
+public class AsyncBuriedPointType implements IBuriedPointType {
+
+    private static final AsyncBuriedPointType INSTANCE = new AsyncBuriedPointType();
+
+    public static IBuriedPointType instance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public String getTypeName() {
+        return "T";
+    }
+
+    @Override
+    public CallType getCallType() {
+        return CallType.ASYNC;
+    }
+
+    private AsyncBuriedPointType() {
+        // Non
+    }
+}
@@ -0,0 +1,49 @@
+package com.ai.cloud.skywalking.concurrent;
+
+import java.util.concurrent.Callable;
+
+import com.ai.cloud.skywalking.buriedpoint.AsyncBuriedPointReceiver;
+import com.ai.cloud.skywalking.model.ContextData;
+
+/**
+ * 携带提交时调用链上下文的Callable，在执行线程中恢复上下文，执行结束后出栈，不在线程池的线程中残留栈帧
+ */
+public final class TracingCallable<V> implements Callable<V> {
+    private final Callable<V> delegate;
+    private final ContextData contextData;
+
+    private TracingCallable(Callable<V> delegate, ContextData contextData) {
+        this.delegate = delegate;
+        this.contextData = contextData;
+    }
+
+    /**
+     * 捕获当前线程的调用链上下文，不存在上下文时直接返回原任务
+     *
+     * @param task
+     * @return
+     */
+    public static <V> Callable<V> wrap(Callable<V> task) {
+        if (task == null || task instanceof TracingCallable) {
+            return task;
+        }
+        ContextData contextData = AsyncBuriedPointReceiver.capture();
+        if (contextData == null) {
+            return task;
+        }
+        return new TracingCallable<V>(task, contextData);
+    }
+
+    @Override
+    public V call() throws Exception {
+        TracingTasks.RECEIVER.beforeExecute(contextData, TracingTasks.identification(delegate));
+        try {
+            return delegate.call();
+        } catch (Exception | Error e) {
+            TracingTasks.RECEIVER.handleException(e);
+            throw e;
+        } finally {
+            TracingTasks.RECEIVER.afterExecute();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.ai.cloud.skywalking.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 传递调用链上下文的线程池，提交的任务在执行线程中记录为提交时栈顶Span的子节点<br/>
+ * 提交时不存在上下文的任务不做包装
+ */
+public class TracingExecutorService implements ExecutorService {
+    private final ExecutorService delegate;
+
+    protected TracingExecutorService(ExecutorService delegate) {
+        this.delegate = delegate;
+    }
+
+    public static ExecutorService wrap(ExecutorService executorService) {
+        if (executorService instanceof TracingExecutorService) {
+            return executorService;
+        }
+        return new TracingExecutorService(executorService);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        delegate.execute(TracingRunnable.wrap(command));
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        return delegate.submit(TracingRunnable.wrap(task));
+    }
+
+    @Override
+    public <T> Future<T> submit(Runnable task, T result) {
+        return delegate.submit(TracingRunnable.wrap(task), result);
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        return delegate.submit(TracingCallable.wrap(task));
+    }
+
+    @Override
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
+        return delegate.invokeAll(wrapAll(tasks));
+    }
+
+    @Override
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return delegate.invokeAll(wrapAll(tasks), timeout, unit);
+    }
+
+    @Override
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
+        return delegate.invokeAny(wrapAll(tasks));
+    }
+
+    @Override
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        return delegate.invokeAny(wrapAll(tasks), timeout, unit);
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        // 返回调用方提交的原任务，而不是内部的包装
+        List<Runnable> tasks = delegate.shutdownNow();
+        List<Runnable> unwrappedTasks = new ArrayList<Runnable>(tasks.size());
+        for (Runnable task : tasks) {
+            unwrappedTasks.add(TracingRunnable.unwrap(task));
+        }
+        return unwrappedTasks;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    private static <T> Collection<? extends Callable<T>> wrapAll(Collection<? extends Callable<T>> tasks) {
+        List<Callable<T>> wrappedTasks = new ArrayList<Callable<T>>(tasks.size());
+        for (Callable<T> task : tasks) {
+            wrappedTasks.add(TracingCallable.wrap(task));
+        }
+        return wrappedTasks;
+    }
+}
@@ -0,0 +1,57 @@
+package com.ai.cloud.skywalking.concurrent;
+
+import com.ai.cloud.skywalking.buriedpoint.AsyncBuriedPointReceiver;
+import com.ai.cloud.skywalking.model.ContextData;
+
+/**
+ * 携带提交时调用链上下文的Runnable，在执行线程中恢复上下文，执行结束后出栈，不在线程池的线程中残留栈帧
+ */
+public final class TracingRunnable implements Runnable {
+    private final Runnable delegate;
+    private final ContextData contextData;
+
+    private TracingRunnable(Runnable delegate, ContextData contextData) {
+        this.delegate = delegate;
+        this.contextData = contextData;
+    }
+
+    /**
+     * 捕获当前线程的调用链上下文，不存在上下文时直接返回原任务
+     *
+     * @param task
+     * @return
+     */
+    public static Runnable wrap(Runnable task) {
+        if (task == null || task instanceof TracingRunnable) {
+            return task;
+        }
+        ContextData contextData = AsyncBuriedPointReceiver.capture();
+        if (contextData == null) {
+            return task;
+        }
+        return new TracingRunnable(task, contextData);
+    }
+
+    /**
+     * 还原被包装的原任务，不是TracingRunnable时原样返回
+     *
+     * @param task
+     * @return
+     */
+    static Runnable unwrap(Runnable task) {
+        return task instanceof TracingRunnable ? ((TracingRunnable) task).delegate : task;
+    }
+
+    @Override
+    public void run() {
+        TracingTasks.RECEIVER.beforeExecute(contextData, TracingTasks.identification(delegate));
+        try {
+            delegate.run();
+        } catch (RuntimeException | Error e) {
+            TracingTasks.RECEIVER.handleException(e);
+            throw e;
+        } finally {
+            TracingTasks.RECEIVER.afterExecute();
+        }
+    }
+}
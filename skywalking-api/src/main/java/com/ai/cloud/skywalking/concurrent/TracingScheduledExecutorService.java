@@ -0,0 +1,46 @@
+package com.ai.cloud.skywalking.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 传递调用链上下文的定时线程池<br/>
+ * 周期任务的生命周期不属于提交时的调用链，不做包装，避免每次执行重复使用同一个LevelId
+ */
+public class TracingScheduledExecutorService extends TracingExecutorService implements ScheduledExecutorService {
+    private final ScheduledExecutorService delegate;
+
+    protected TracingScheduledExecutorService(ScheduledExecutorService delegate) {
+        super(delegate);
+        this.delegate = delegate;
+    }
+
+    public static ScheduledExecutorService wrap(ScheduledExecutorService executorService) {
+        if (executorService instanceof TracingScheduledExecutorService) {
+            return executorService;
+        }
+        return new TracingScheduledExecutorService(executorService);
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return delegate.schedule(TracingRunnable.wrap(command), delay, unit);
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        return delegate.schedule(TracingCallable.wrap(callable), delay, unit);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        return delegate.scheduleAtFixedRate(command, initialDelay, period, unit);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        return delegate.scheduleWithFixedDelay(command, initialDelay, delay, unit);
+    }
+}
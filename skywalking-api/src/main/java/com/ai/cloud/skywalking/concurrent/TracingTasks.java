@@ -0,0 +1,25 @@
+package com.ai.cloud.skywalking.concurrent;
+
+import com.ai.cloud.skywalking.buriedpoint.AsyncBuriedPointReceiver;
+import com.ai.cloud.skywalking.model.Identification;
+
+final class TracingTasks {
+    static final AsyncBuriedPointReceiver RECEIVER = new AsyncBuriedPointReceiver();
+
+    // 视点为任务的类名，按类缓存，随类卸载释放
+    private static final ClassValue<Identification> IDENTIFICATIONS = new ClassValue<Identification>() {
+        @Override
+        protected Identification computeValue(Class<?> type) {
+            return Identification.newBuilder().viewPoint(type.getName())
+                    .spanType(AsyncBuriedPointType.instance()).build();
+        }
+    };
+
+    private TracingTasks() {
+        // Non
+    }
+
+    static Identification identification(Object task) {
+        return IDENTIFICATIONS.get(task.getClass());
+    }
+}
@@ -1,5 +1,6 @@
 package com.ai.cloud.skywalking.conf;
 
+import com.ai.cloud.skywalking.degrade.LoadShedder;
 import com.ai.cloud.skywalking.selfexamination.SDKHealthCollector;
 
 public class AuthDesc {
@@ -10,6 +11,9 @@ public class AuthDesc {
         ConfigValidator.validate();
         
         SDKHealthCollector.init();
+        if (isAuth) {
+            LoadShedder.init();
+        }
     }
 
     public static boolean isAuth() {
@@ -20,11 +20,29 @@ public class Config {
 
         public static int MAX_EXCEPTION_STACK_LENGTH = 4000;
 
+        // 是否对相同的错误堆栈去重，需服务端支持按指纹还原堆栈
+        public static boolean EXCEPTION_DEDUP_ENABLE = false;
+
+        // 相同错误堆栈的去重时间窗口(单位:毫秒)，窗口内只有第一次发送完整堆栈
+        public static long EXCEPTION_DEDUP_WINDOW = 60 * 1000L;
+
+        // 去重时最多记录的堆栈指纹数量，超过之后清空重新记录
+        public static int EXCEPTION_DEDUP_MAX_SIZE = 1024;
+
         // Business Key 最大长度
         public static int BUSINESSKEY_MAX_LENGTH = 300;
 
         // 使用逗号分离
         public static String EXCLUSIVE_EXCEPTIONS = "";
+
+        // 单个线程内埋点上下文的最大深度，超过的埋点将被忽略
+        public static int MAX_CONTEXT_DEPTH = 512;
+
+        // 是否使用由后台线程定时更新的时钟作为Span的开始时间，耗时仍由System.nanoTime()计算
+        public static boolean CACHED_CLOCK_ENABLE = false;
+
+        // 缓存时钟的更新间隔(单位:毫秒)
+        public static long CACHED_CLOCK_INTERVAL = 1L;
     }
 
     public static class Consumer {
@@ -33,6 +51,9 @@ public class Config {
         // 消费者最大等待时间
         public static long MAX_WAIT_TIME = 5L;
 
+        // 消费者每次从Buffer中取出的最大数量
+        public static int MAX_DRAIN_SIZE = 512;
+
         //
         public static long CONSUMER_FAIL_RETRY_WAIT_INTERVAL = 50L;
     }
@@ -43,6 +64,78 @@ public class Config {
 
         // Buffer池的最大长度
         public static int POOL_SIZE = 5;
+
+        // Buffer写满时的处理策略：DROP_NEWEST, DROP_OLDEST, BLOCK
+        public static String OVERFLOW_POLICY = "DROP_NEWEST";
+
+        // BLOCK策略下，写入Buffer的最长等待时间(单位:毫秒)
+        public static long BLOCK_TIMEOUT = 5L;
+    }
+
+    public static class Recycler {
+        // 是否开启Span对象复用
+        public static boolean ENABLE = false;
+
+        // 每个线程缓存的Span的最大数量
+        public static int MAX_CAPACITY_PER_THREAD = 256;
+
+        // 全局溢出池缓存的Span的最大数量
+        public static int MAX_SHARED_CAPACITY = 4096;
+
+        // 调试模式，检测回收之后仍被使用的Span，回收的Span不再复用
+        public static boolean DEBUG = false;
+    }
+
+    public static class Sampler {
+        // 采样率（万分比），10000表示全部采样
+        public static int SAMPLE_RATE = 10000;
+
+        // 每秒最多采样的调用链数量，小于等于0表示不限制
+        public static int MAX_TRACES_PER_SECOND = -1;
+
+        // 按视点前缀配置的采样率（万分比），格式：视点前缀=采样率，多个规则用分号分离
+        public static String VIEWPOINT_RULES = "";
+
+        // 自定义采样器的类名，需实现ISampler接口，配置之后以上规则不再生效
+        public static String CLASS_NAME = "";
+    }
+
+    public static class Degrade {
+        // 是否开启自适应降级
+        public static boolean ENABLE = false;
+
+        // 降级状态的检查周期(单位:毫秒)
+        public static long CHECK_INTERVAL = 1000L;
+
+        // Buffer占用率(百分比)达到该值时，丢弃耗时低于COST_THRESHOLD的Span
+        public static int DROP_SPAN_OCCUPANCY = 50;
+
+        // Buffer占用率(百分比)达到该值时，按DEGRADE_SAMPLE_RATE采样
+        public static int SAMPLING_OCCUPANCY = 70;
+
+        // Buffer占用率(百分比)达到该值时，关闭埋点
+        public static int OFF_OCCUPANCY = 90;
+
+        // 发送耗时(单位:毫秒)达到该值时，丢弃耗时低于COST_THRESHOLD的Span
+        public static long DROP_SPAN_SEND_LATENCY = 200L;
+
+        // 发送耗时(单位:毫秒)达到该值时，按DEGRADE_SAMPLE_RATE采样
+        public static long SAMPLING_SEND_LATENCY = 1000L;
+
+        // 持续没有可用Sender的时间(单位:毫秒)达到该值时，关闭埋点
+        public static long OFF_SENDER_UNAVAILABLE_TIME = 10 * 1000L;
+
+        // 耗时(单位:毫秒)低于该值且没有异常的Span，在降级时被丢弃
+        public static long COST_THRESHOLD = 5L;
+
+        // 降级时的采样率（万分比）
+        public static int DEGRADE_SAMPLE_RATE = 1000;
+
+        // 恢复时，各项指标需低于阈值的百分比
+        public static int RECOVER_PERCENT = 80;
+
+        // 连续满足恢复条件的检查次数，每次恢复一级
+        public static int RECOVER_CHECK_TIMES = 5;
     }
 
     public static class Sender {
@@ -73,6 +166,105 @@ public class Config {
         public static long CHECKER_THREAD_WAIT_INTERVAL = 1000;
 
         public static long RETRY_FIND_CONNECTION_SENDER = 1000;
+
+        // 所有Sender共享的IO线程数
+        public static int EVENT_LOOP_THREADS = 1;
+
+        // 连接待发送数据的高水位(单位:字节)，超过之后连接不可写
+        public static int WRITE_BUFFER_HIGH_WATER_MARK = 1024 * 1024;
+
+        // 连接待发送数据的低水位(单位:字节)，低于之后连接恢复可写
+        public static int WRITE_BUFFER_LOW_WATER_MARK = 512 * 1024;
+
+        // 连接不可写时，发送线程的最长等待时间(单位:毫秒)
+        public static long WRITABLE_WAIT_TIMEOUT = 100L;
+
+        // 写出失败、等待重发的数据的最大批数，超过之后的数据被丢弃
+        public static int MAX_RETRY_BATCH_SIZE = 64;
+
+        // 是否开启应答模式，开启后每批数据只发送一份，超时未应答的数据发送到其他服务端
+        public static boolean ACK_ENABLE = false;
+
+        // 应答模式下，等待应答的超时时间(单位:毫秒)
+        public static long ACK_TIMEOUT = 5000L;
+
+        // 应答模式下，等待应答的最大批数，超过之后暂停发送
+        public static int MAX_UNACKED_BATCH_SIZE = 256;
+
+        // 是否开启字典编码，同一连接上重复的视点、地址等字符串只发送一次，需服务端支持
+        public static boolean DICTIONARY_ENABLE = false;
+
+        // 每个连接的字典最多分配的编号数量，用满之后淘汰最久未使用的编号
+        public static int DICTIONARY_MAX_SIZE = 4096;
+
+        // 字典编码的最小字符串长度(单位:字节)，更短的字符串直接发送原文
+        public static int DICTIONARY_MIN_LENGTH = 8;
+
+        // 自定义的IDataSender实现类，需提供无参构造函数；配置后不再连接服务端，如基准测试中使用的空发送器
+        public static String CLASS_NAME = "";
+    }
+    
+    public static class Aggregation {
+        // 是否将快速且成功的Span按(视点, 分钟)预聚合为统计结果发送，需服务端支持
+        public static boolean ENABLE = false;
+
+        // 服务端是否已部署读取视点统计表的作业，分析任务只统计完整的Span，没有该作业时不开启预聚合，避免被聚合的Span从统计中消失
+        public static boolean METRIC_CONSUMER_READY = false;
+
+        // 耗时低于该值(单位:毫秒)且状态成功的Span参与预聚合
+        public static long COST_THRESHOLD = 10L;
+
+        // 每个视点每分钟完整发送的样例Span数量，样例不计入统计结果
+        public static int EXEMPLARS_PER_MINUTE = 1;
+
+        // 预聚合的最大视点数量，超过之后新视点的Span完整发送；一分钟以上没有Span的视点会被移出，不占用数量
+        public static int MAX_VIEW_POINTS = 4096;
+
+        // 检查并发送已结束分钟的统计结果的周期(单位:毫秒)
+        public static long FLUSH_INTERVAL = 10 * 1000L;
+    }
+
+    public static class TailSampling {
+        // 是否开启尾部采样：线程内的调用链片段暂存到根Span结束，再决定是否发送
+        public static boolean ENABLE = false;
+
+        // 片段中有Span耗时(单位:毫秒)达到该值时，完整发送该片段
+        public static long LATENCY_THRESHOLD = 500L;
+
+        // 没有异常且不慢的片段的保留率（万分比）
+        public static int KEEP_RATE = 1000;
+
+        // 片段的最长暂存时间(单位:毫秒)，超过之后直接发送，不再等待根Span结束
+        public static long MAX_HOLD_TIME = 10 * 1000L;
+
+        // 单个片段的最大暂存字节数，超过之后直接发送；实际上限不超过Sender.MAX_SEND_LENGTH
+        public static int MAX_SEGMENT_SIZE = 16 * 1024;
+
+        // 所有片段暂存的最大总字节数，超过之后新的Span直接发送
+        public static long MAX_HELD_SIZE = 32 * 1024 * 1024L;
+
+        // 发送线程检查已决定保留的片段和超时片段的周期(单位:毫秒)
+        public static long CHECK_INTERVAL = 50L;
+    }
+
+    public static class Spool {
+        // 是否开启磁盘缓存，没有可用的Sender时，数据写入磁盘，恢复之后再发送
+        public static boolean ENABLE = false;
+
+        // 磁盘缓存目录，为空时使用java.io.tmpdir下的skywalking-spool目录
+        public static String DIRECTORY = "";
+
+        // 每个缓存文件的大小(单位:字节)
+        public static int SEGMENT_SIZE = 16 * 1024 * 1024;
+
+        // 缓存文件的最大总大小(单位:字节)，超过之后删除最早的缓存文件
+        public static long MAX_SIZE = 256 * 1024 * 1024L;
+
+        // 恢复之后，每秒最多重发的批数
+        public static int DRAIN_RATE = 20;
+
+        // 没有数据或没有可用Sender时，重发线程的等待时间(单位:毫秒)
+        public static long DRAIN_WAIT_INTERVAL = 1000L;
     }
     
     public static class HealthCollector {
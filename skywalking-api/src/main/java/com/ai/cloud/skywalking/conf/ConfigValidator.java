@@ -1,6 +1,11 @@
 package com.ai.cloud.skywalking.conf;
 
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 public class ConfigValidator {
+    private static Logger logger = Logger.getLogger(ConfigValidator.class.getName());
+
     private ConfigValidator() {
         // Non
     }
@@ -11,6 +16,13 @@ public class ConfigValidator {
                     "length of sending exception stack and the maximum length of sending business key.");
         }
 
+        if (Config.Aggregation.ENABLE && !Config.Aggregation.METRIC_CONSUMER_READY) {
+            // 没有作业读取统计结果时，被聚合的Span会从调用链统计中消失
+            logger.log(Level.SEVERE, "Span aggregation is disabled, because no job consumes the view point metrics. " +
+                    "Set aggregation.metric_consumer_ready=true after the metric consumer is deployed.");
+            Config.Aggregation.ENABLE = false;
+        }
+
         return true;
     }
 
@@ -1,9 +1,9 @@
 package com.ai.cloud.skywalking.context;
 
+import com.ai.cloud.skywalking.conf.Config;
+import com.ai.cloud.skywalking.model.ContextData;
 import com.ai.cloud.skywalking.protocol.Span;
 
-import java.util.Stack;
-
 public class Context {
     private static ThreadLocal<SpanNodeStack> nodes = new ThreadLocal<SpanNodeStack>();
 
@@ -12,76 +12,248 @@ public class Context {
     }
 
     public static void append(Span span) {
-        if (nodes.get() == null) {
-            nodes.set(new SpanNodeStack());
+        getOrCreateStack().push(span, null);
+    }
+
+    /**
+     * 压入从其他线程恢复的Span，保留其LevelId，不从上一栈帧分配
+     *
+     * @param span
+     */
+    public static void appendRestored(Span span) {
+        getOrCreateStack().push(span, null, true);
+    }
+
+    /**
+     * 压入超过最大深度的栈帧，不含Span与上下文，只用于保持出入栈平衡
+     */
+    public static void appendOverflow() {
+        getOrCreateStack().pushOverflow();
+    }
+
+    /**
+     * @return 埋点栈是否已达到最大深度，之后的埋点不再创建Span
+     */
+    public static boolean isFull() {
+        SpanNodeStack stack = nodes.get();
+        return stack != null && stack.isFull();
+    }
+
+    /**
+     * 返回传递给下游的调用链上下文，用于不创建Span的埋点<br/>
+     * 最深的栈帧未被采样时返回其上下文，否则为其Span的下一个子节点预留LevelId
+     *
+     * @return 栈为空时返回null
+     */
+    public static ContextData getLastContextData() {
+        SpanNodeStack stack = nodes.get();
+        if (stack == null) {
+            return null;
+        }
+        ContextData unsampledContextData = stack.peekUnsampled();
+        if (unsampledContextData != null) {
+            return unsampledContextData;
+        }
+        Span span = stack.peek();
+        if (span == null) {
+            return null;
+        }
+        return ContextData.newChildContextData(span, stack.reserveSubSpanLevelId());
+    }
+
+    /**
+     * 为栈顶Span的下一个子节点预留LevelId，用于跨线程传递的上下文，避免与当前线程后续的子节点冲突
+     *
+     * @return 栈顶不是Span时返回-1
+     */
+    public static int reserveSubSpanLevelId() {
+        SpanNodeStack stack = nodes.get();
+        if (stack == null) {
+            return -1;
+        }
+        return stack.reserveSubSpanLevelId();
+    }
+
+    /**
+     * 压入未被采样的栈帧，栈帧中不含Span，只保留调用链上下文，出栈时返回null
+     *
+     * @param contextData
+     */
+    public static void appendUnsampled(ContextData contextData) {
+        getOrCreateStack().push(null, contextData);
+    }
+
+    /**
+     * @return 栈顶为未被采样的栈帧时，返回其调用链上下文，否则返回null
+     */
+    public static ContextData getLastUnsampledContextData() {
+        SpanNodeStack stack = nodes.get();
+        if (stack == null) {
+            return null;
         }
-        nodes.get().push(span);
+        return stack.peekUnsampled();
     }
 
     public static Span getLastSpan() {
-        if (nodes.get() == null) {
+        SpanNodeStack stack = nodes.get();
+        if (stack == null) {
             return null;
         }
-        return nodes.get().peek();
+        return stack.peek();
     }
 
     public static Span removeLastSpan() {
-        if (nodes.get() == null) {
+        SpanNodeStack stack = nodes.get();
+        if (stack == null) {
             return null;
         }
-        return nodes.get().pop();
+        return stack.pop();
+    }
+
+    /**
+     * @return 当前线程的埋点栈是否为空，出栈之后为空表示线程内的调用链片段已结束
+     */
+    public static boolean isEmpty() {
+        SpanNodeStack stack = nodes.get();
+        return stack == null || stack.isEmpty();
     }
 
+    private static SpanNodeStack getOrCreateStack() {
+        SpanNodeStack stack = nodes.get();
+        if (stack == null) {
+            stack = new SpanNodeStack();
+            nodes.set(stack);
+        }
+        return stack;
+    }
+
+    /**
+     * 基于数组的埋点栈，栈帧在线程内复用<br/>
+     * 超过最大深度的埋点不入栈，出栈时返回null；此时栈顶视为最深的有效栈帧
+     */
     static class SpanNodeStack {
-        private Stack<SpanNode> spans = new Stack<SpanNode>();
+        private static final int INITIAL_DEPTH = 16;
+
+        private SpanNode[] spans = new SpanNode[INITIAL_DEPTH];
+        // 栈中有效的栈帧数量
+        private int depth = 0;
+        // 超过最大深度后，未入栈的埋点数量
+        private int overflowDepth = 0;
 
         public Span pop() {
-            Span span = spans.pop().getData();
-            if (!isEmpty()) {
-                spans.peek().incrementNextSubSpanLevelId();
+            if (overflowDepth > 0) {
+                overflowDepth--;
+                return null;
+            }
+            if (depth == 0) {
+                return null;
+            }
+
+            SpanNode node = spans[--depth];
+            Span span = node.getData();
+            node.reset();
+            if (depth > 0) {
+                spans[depth - 1].incrementNextSubSpanLevelId();
             }
             return span;
         }
 
-        public void push(Span span) {
-            if (!isEmpty()) {
-                spans.push(new SpanNode(span, spans.peek().getNextSubSpanLevelId()));
+        public void push(Span span, ContextData unsampledContextData) {
+            push(span, unsampledContextData, false);
+        }
+
+        public void push(Span span, ContextData unsampledContextData, boolean keepLevelId) {
+            if (isFull()) {
+                overflowDepth++;
+                return;
+            }
+
+            if (depth == spans.length) {
+                SpanNode[] newSpans = new SpanNode[Math.min(spans.length * 2, Config.BuriedPoint.MAX_CONTEXT_DEPTH)];
+                System.arraycopy(spans, 0, newSpans, 0, spans.length);
+                spans = newSpans;
+            }
+            SpanNode node = spans[depth];
+            if (node == null) {
+                node = new SpanNode();
+                spans[depth] = node;
+            }
+
+            if (span == null) {
+                node.setUnsampledContextData(unsampledContextData);
+            } else if (depth > 0 && !keepLevelId) {
+                node.setData(span, spans[depth - 1].getNextSubSpanLevelId());
             } else {
-                spans.push(new SpanNode(span));
+                node.setData(span);
             }
+            depth++;
+        }
+
+        public void pushOverflow() {
+            overflowDepth++;
+        }
 
+        public boolean isFull() {
+            return overflowDepth > 0 || depth >= Config.BuriedPoint.MAX_CONTEXT_DEPTH;
         }
 
         public Span peek() {
-            if (spans.isEmpty()) {
+            if (depth == 0) {
                 return null;
             }
-            return spans.peek().getData();
+            return spans[depth - 1].getData();
+        }
+
+        public ContextData peekUnsampled() {
+            if (depth == 0) {
+                return null;
+            }
+            return spans[depth - 1].getUnsampledContextData();
+        }
+
+        public int reserveSubSpanLevelId() {
+            if (depth == 0 || spans[depth - 1].getData() == null) {
+                return -1;
+            }
+            SpanNode node = spans[depth - 1];
+            int levelId = node.getNextSubSpanLevelId();
+            node.incrementNextSubSpanLevelId();
+            return levelId;
         }
 
         public boolean isEmpty() {
-            return spans.isEmpty();
+            return depth == 0 && overflowDepth == 0;
         }
     }
 
     static class SpanNode {
         private Span data;
+        // 未被采样时的调用链上下文，此时data为null
+        private ContextData unsampledContextData;
         //
         private int nextSubSpanLevelId = 0;
 
-        public SpanNode(Span data) {
+        public void setData(Span data) {
             this.data = data;
         }
 
-        public SpanNode(Span data, int levelId) {
+        public void setData(Span data, int levelId) {
             this.data = data;
             this.data.setLevelId(levelId);
         }
 
+        public void setUnsampledContextData(ContextData unsampledContextData) {
+            this.unsampledContextData = unsampledContextData;
+        }
+
         public Span getData() {
             return data;
         }
 
+        public ContextData getUnsampledContextData() {
+            return unsampledContextData;
+        }
+
         public int getNextSubSpanLevelId() {
             return nextSubSpanLevelId;
         }
@@ -89,6 +261,12 @@ public class Context {
         public void incrementNextSubSpanLevelId() {
             this.nextSubSpanLevelId++;
         }
+
+        void reset() {
+            this.data = null;
+            this.unsampledContextData = null;
+            this.nextSubSpanLevelId = 0;
+        }
     }
 
 }
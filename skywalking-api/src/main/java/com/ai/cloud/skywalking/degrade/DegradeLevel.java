@@ -0,0 +1,27 @@
+package com.ai.cloud.skywalking.degrade;
+
+/**
+ * 降级级别，按顺序逐级加重
+ */
+public enum DegradeLevel {
+    /**
+     * 正常埋点
+     */
+    NORMAL,
+    /**
+     * 丢弃耗时较短且没有异常的Span
+     */
+    DROP_FAST_SPANS,
+    /**
+     * 在DROP_FAST_SPANS的基础上，对新的调用链降级采样
+     */
+    SAMPLING,
+    /**
+     * 不再采样新的调用链，并丢弃所有Span
+     */
+    OFF;
+
+    DegradeLevel lower() {
+        return this == NORMAL ? NORMAL : values()[ordinal() - 1];
+    }
+}
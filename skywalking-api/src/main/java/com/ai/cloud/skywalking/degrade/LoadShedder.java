@@ -0,0 +1,209 @@
+package com.ai.cloud.skywalking.degrade;
+
+import static com.ai.cloud.skywalking.conf.Config.Degrade.CHECK_INTERVAL;
+import static com.ai.cloud.skywalking.conf.Config.Degrade.COST_THRESHOLD;
+import static com.ai.cloud.skywalking.conf.Config.Degrade.DEGRADE_SAMPLE_RATE;
+import static com.ai.cloud.skywalking.conf.Config.Degrade.DROP_SPAN_OCCUPANCY;
+import static com.ai.cloud.skywalking.conf.Config.Degrade.DROP_SPAN_SEND_LATENCY;
+import static com.ai.cloud.skywalking.conf.Config.Degrade.OFF_OCCUPANCY;
+import static com.ai.cloud.skywalking.conf.Config.Degrade.OFF_SENDER_UNAVAILABLE_TIME;
+import static com.ai.cloud.skywalking.conf.Config.Degrade.RECOVER_CHECK_TIMES;
+import static com.ai.cloud.skywalking.conf.Config.Degrade.RECOVER_PERCENT;
+import static com.ai.cloud.skywalking.conf.Config.Degrade.SAMPLING_OCCUPANCY;
+import static com.ai.cloud.skywalking.conf.Config.Degrade.SAMPLING_SEND_LATENCY;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.ai.cloud.skywalking.buffer.ContextBuffer;
+import com.ai.cloud.skywalking.conf.Config;
+import com.ai.cloud.skywalking.protocol.Span;
+import com.ai.cloud.skywalking.sampler.ProbabilisticSampler;
+import com.ai.cloud.skywalking.selfexamination.HeathReading;
+import com.ai.cloud.skywalking.selfexamination.SDKHealthCollector;
+import com.ai.cloud.skywalking.sender.DataSenderFactoryWithBalance;
+
+/**
+ * 自适应降级，根据Buffer占用率、发送耗时和Sender的可用性逐级降级：<br/>
+ * 丢弃低耗时的Span -> 降级采样 -> 关闭埋点<br/>
+ * 降级立即生效；恢复时各项指标需低于阈值的RECOVER_PERCENT，并连续满足RECOVER_CHECK_TIMES次，每次只恢复一级
+ */
+public class LoadShedder extends Thread {
+    private static Logger logger = LogManager.getLogger(LoadShedder.class);
+
+    private static volatile DegradeLevel level = DegradeLevel.NORMAL;
+
+    private static final ProbabilisticSampler DEGRADE_SAMPLER = new ProbabilisticSampler(DEGRADE_SAMPLE_RATE);
+
+    // 检查周期内的最大发送耗时
+    private static final AtomicLong maxSendLatency = new AtomicLong();
+
+    private static final AtomicLong droppedSpanCount = new AtomicLong();
+    private static final AtomicLong unsampledTraceCount = new AtomicLong();
+    private static final AtomicLong discardedBatchCount = new AtomicLong();
+
+    private int recoverCheckTimes = 0;
+    private long senderUnavailableSince = -1;
+
+    private LoadShedder() {
+        super("LoadShedder");
+        setDaemon(true);
+    }
+
+    public static void init() {
+        if (Config.Degrade.ENABLE) {
+            new LoadShedder().start();
+        }
+    }
+
+    public static DegradeLevel getLevel() {
+        return level;
+    }
+
+    public static boolean isOff() {
+        return level == DegradeLevel.OFF;
+    }
+
+    /**
+     * 新的调用链是否被采样
+     *
+     * @return
+     */
+    public static boolean isTraceSampled() {
+        DegradeLevel currentLevel = level;
+        if (currentLevel == DegradeLevel.NORMAL || currentLevel == DegradeLevel.DROP_FAST_SPANS) {
+            return true;
+        }
+        if (currentLevel == DegradeLevel.SAMPLING && DEGRADE_SAMPLER.isSampled(null)) {
+            return true;
+        }
+        unsampledTraceCount.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Span是否可以放入Buffer
+     *
+     * @param span
+     * @return
+     */
+    public static boolean isSpanAccepted(Span span) {
+        DegradeLevel currentLevel = level;
+        if (currentLevel == DegradeLevel.NORMAL) {
+            return true;
+        }
+        if (currentLevel != DegradeLevel.OFF && (span.getCost() >= COST_THRESHOLD || span.getStatusCode() != 0)) {
+            return true;
+        }
+        droppedSpanCount.incrementAndGet();
+        return false;
+    }
+
+    public static void recordSendLatency(long latency) {
+        long current;
+        while (latency > (current = maxSendLatency.get())) {
+            if (maxSendLatency.compareAndSet(current, latency)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 关闭埋点期间，发送失败的数据直接丢弃
+     */
+    public static void recordDiscardedBatch() {
+        discardedBatchCount.incrementAndGet();
+    }
+
+    public static long getDroppedSpanCount() {
+        return droppedSpanCount.get();
+    }
+
+    public static long getUnsampledTraceCount() {
+        return unsampledTraceCount.get();
+    }
+
+    public static long getDiscardedBatchCount() {
+        return discardedBatchCount.get();
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                check();
+            } catch (Throwable e) {
+                logger.error("LoadShedder check failed.", e);
+            }
+
+            try {
+                Thread.sleep(CHECK_INTERVAL);
+            } catch (InterruptedException e) {
+                logger.warn("sleep error.", e);
+            }
+        }
+    }
+
+    private void check() {
+        int occupancy = ContextBuffer.getMaxOccupancy();
+        long sendLatency = maxSendLatency.getAndSet(0);
+        long senderUnavailableTime = checkSenderUnavailableTime();
+
+        DegradeLevel currentLevel = level;
+        DegradeLevel expectedLevel = expectedLevel(occupancy, sendLatency, senderUnavailableTime, 100);
+        if (expectedLevel.compareTo(currentLevel) > 0) {
+            recoverCheckTimes = 0;
+            changeLevel(currentLevel, expectedLevel);
+        } else if (currentLevel != DegradeLevel.NORMAL
+                && expectedLevel(occupancy, sendLatency, senderUnavailableTime, RECOVER_PERCENT).compareTo(currentLevel) < 0) {
+            if (++recoverCheckTimes >= RECOVER_CHECK_TIMES) {
+                recoverCheckTimes = 0;
+                changeLevel(currentLevel, currentLevel.lower());
+            }
+        } else {
+            recoverCheckTimes = 0;
+        }
+
+        SDKHealthCollector.getCurrentHeathReading("LoadShedder").updateData(
+                level == DegradeLevel.NORMAL ? HeathReading.INFO : HeathReading.WARNING,
+                "degrade level:" + level + ", buffer occupancy:" + occupancy + "%, send latency:" + sendLatency
+                        + "ms, dropped spans:" + droppedSpanCount.get() + ", unsampled traces:"
+                        + unsampledTraceCount.get() + ", discarded batches:" + discardedBatchCount.get());
+    }
+
+    /**
+     * @param percent 各项阈值按该百分比计算，恢复时小于100
+     */
+    private static DegradeLevel expectedLevel(int occupancy, long sendLatency, long senderUnavailableTime, int percent) {
+        if (occupancy >= OFF_OCCUPANCY * percent / 100
+                || senderUnavailableTime >= OFF_SENDER_UNAVAILABLE_TIME * percent / 100) {
+            return DegradeLevel.OFF;
+        }
+        if (occupancy >= SAMPLING_OCCUPANCY * percent / 100 || sendLatency >= SAMPLING_SEND_LATENCY * percent / 100) {
+            return DegradeLevel.SAMPLING;
+        }
+        if (occupancy >= DROP_SPAN_OCCUPANCY * percent / 100 || sendLatency >= DROP_SPAN_SEND_LATENCY * percent / 100) {
+            return DegradeLevel.DROP_FAST_SPANS;
+        }
+        return DegradeLevel.NORMAL;
+    }
+
+    private long checkSenderUnavailableTime() {
+        if (DataSenderFactoryWithBalance.hasReadySender()) {
+            senderUnavailableSince = -1;
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        if (senderUnavailableSince < 0) {
+            senderUnavailableSince = now;
+        }
+        return now - senderUnavailableSince;
+    }
+
+    private static void changeLevel(DegradeLevel from, DegradeLevel to) {
+        level = to;
+        logger.warn("sky-walking degrade level changed from " + from + " to " + to);
+    }
+}
@@ -2,38 +2,108 @@ package com.ai.cloud.skywalking.model;
 
 
 import com.ai.cloud.skywalking.protocol.Span;
+import com.ai.cloud.skywalking.protocol.TraceId;
 
 public class ContextData {
+    // 未被采样时，序列化结果中追加的采样标识
+    private static final String UNSAMPLED_FLAG = "0";
+
     private String traceId;
+    private TraceId lazyTraceId;
     private String parentLevel;
     private int levelId;
     private String spanType;
+    private boolean sampled = true;
 
     ContextData() {
 
     }
 
     public ContextData(Span span) {
-        this.traceId = span.getTraceId();
+        this.lazyTraceId = span.getLazyTraceId();
+        if (this.lazyTraceId == null) {
+            this.traceId = span.getTraceId();
+        }
         this.parentLevel = span.getParentLevel();
         this.levelId = span.getLevelId();
         this.spanType = span.getSpanType();
     }
 
     public ContextData(String contextDataStr) {
-        // 反序列化参数
+        // 反序列化参数，未被采样时带有第5位的采样标识
         String[] value = contextDataStr.split("-");
-        if (value == null || value.length != 4) {
+        if (value == null || (value.length != 4 && value.length != 5)) {
             throw new IllegalArgumentException("illegal context data.");
         }
         this.traceId = value[0];
         this.parentLevel = value[1].trim();
         this.levelId = Integer.valueOf(value[2]);
         this.spanType = value[3];
+        if (value.length == 5) {
+            this.sampled = !UNSAMPLED_FLAG.equals(value[4]);
+        }
+    }
+
+    /**
+     * 创建未被采样的调用链上下文，只保留traceId
+     *
+     * @param traceId
+     * @return
+     */
+    public static ContextData newUnsampledContextData(TraceId traceId) {
+        ContextData contextData = new ContextData();
+        contextData.lazyTraceId = traceId;
+        contextData.sampled = false;
+        return contextData;
+    }
+
+    /**
+     * 创建parent的子节点的调用链上下文，用于跨线程传递
+     *
+     * @param parent
+     * @param levelId 为子节点预留的LevelId
+     * @return
+     */
+    public static ContextData newChildContextData(Span parent, int levelId) {
+        ContextData contextData = new ContextData();
+        contextData.lazyTraceId = parent.getLazyTraceId();
+        if (contextData.lazyTraceId == null) {
+            contextData.traceId = parent.getTraceId();
+        }
+        contextData.parentLevel = childParentLevel(parent.getParentLevel(), parent.getLevelId());
+        contextData.levelId = levelId;
+        contextData.spanType = parent.getSpanType();
+        return contextData;
+    }
 
+    /**
+     * 创建parent所描述节点的子节点的调用链上下文，parent必须已被采样
+     *
+     * @param parent
+     * @param levelId 为子节点预留的LevelId
+     * @return
+     */
+    public static ContextData newChildContextData(ContextData parent, int levelId) {
+        ContextData contextData = new ContextData();
+        contextData.lazyTraceId = parent.lazyTraceId;
+        contextData.traceId = parent.traceId;
+        contextData.parentLevel = childParentLevel(parent.parentLevel, parent.levelId);
+        contextData.levelId = levelId;
+        contextData.spanType = parent.spanType;
+        return contextData;
+    }
+
+    private static String childParentLevel(String parentLevel, int levelId) {
+        if (parentLevel == null || parentLevel.length() == 0) {
+            return String.valueOf(levelId);
+        }
+        return parentLevel + "." + levelId;
     }
 
     public String getTraceId() {
+        if (traceId == null && lazyTraceId != null) {
+            traceId = lazyTraceId.toString();
+        }
         return traceId;
     }
 
@@ -49,10 +119,14 @@ public class ContextData {
         return spanType;
     }
 
+    public boolean isSampled() {
+        return sampled;
+    }
+
     @Override
     public String toString() {
         StringBuilder stringBuilder = new StringBuilder();
-        stringBuilder.append(traceId);
+        stringBuilder.append(getTraceId());
         stringBuilder.append("-");
         if (parentLevel == null || parentLevel.length() == 0) {
             stringBuilder.append(" ");
@@ -63,6 +137,11 @@ public class ContextData {
         stringBuilder.append(levelId);
         stringBuilder.append("-");
         stringBuilder.append(spanType);
+        // 被采样时保持原有的4位格式，兼容旧版本的接收端
+        if (!sampled) {
+            stringBuilder.append("-");
+            stringBuilder.append(UNSAMPLED_FLAG);
+        }
         return stringBuilder.toString();
     }
 }
@@ -0,0 +1,158 @@
+package com.ai.cloud.skywalking.recycler;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.ai.cloud.skywalking.conf.Config;
+import com.ai.cloud.skywalking.protocol.Span;
+
+/**
+ * 可被{@link SpanRecycler}复用的Span<br/>
+ * 调试模式下，回收之后的修改操作会被记录
+ */
+public class RecyclableSpan extends Span {
+    private static Logger logger = LogManager.getLogger(RecyclableSpan.class);
+
+    private static final int IN_USE = 0;
+    private static final int RELEASED = 1;
+    private static final AtomicIntegerFieldUpdater<RecyclableSpan> STATE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(RecyclableSpan.class, "state");
+
+    private volatile int state = IN_USE;
+
+    RecyclableSpan() {
+    }
+
+    void init(String traceId, String parentLevelId, int levelId, String applicationId, String userId) {
+        this.state = IN_USE;
+        this.traceId = traceId;
+        this.parentLevel = parentLevelId;
+        this.levelId = levelId;
+        this.applicationId = applicationId;
+        this.userId = userId;
+    }
+
+    /**
+     * @return 是否由IN_USE状态变为RELEASED状态，重复回收时返回false
+     */
+    boolean markReleased() {
+        return STATE_UPDATER.compareAndSet(this, IN_USE, RELEASED);
+    }
+
+    // 覆盖以便SpanRecycler在同一个包内调用
+    @Override
+    protected void reset() {
+        super.reset();
+    }
+
+    private void ensureAccessible() {
+        if (Config.Recycler.DEBUG && state == RELEASED) {
+            logger.error("Span[" + traceId + "] is used after released.", new IllegalStateException());
+        }
+    }
+
+    @Override
+    public void setParentLevel(String parentLevel) {
+        ensureAccessible();
+        super.setParentLevel(parentLevel);
+    }
+
+    @Override
+    public void setLevelId(int levelId) {
+        ensureAccessible();
+        super.setLevelId(levelId);
+    }
+
+    @Override
+    public void setViewPointId(String viewPointId) {
+        ensureAccessible();
+        super.setViewPointId(viewPointId);
+    }
+
+    @Override
+    public void setStartDate(long startDate) {
+        ensureAccessible();
+        super.setStartDate(startDate);
+    }
+
+    @Override
+    public void setCost(long cost) {
+        ensureAccessible();
+        super.setCost(cost);
+    }
+
+    @Override
+    public void setCostMicros(long costMicros) {
+        ensureAccessible();
+        super.setCostMicros(costMicros);
+    }
+
+    @Override
+    public void setStartNanoTime(long startNanoTime) {
+        ensureAccessible();
+        super.setStartNanoTime(startNanoTime);
+    }
+
+    @Override
+    public void setAddress(String address) {
+        ensureAccessible();
+        super.setAddress(address);
+    }
+
+    @Override
+    public void setSpanType(String spanType) {
+        ensureAccessible();
+        super.setSpanType(spanType);
+    }
+
+    @Override
+    public void setReceiver(boolean receiver) {
+        ensureAccessible();
+        super.setReceiver(receiver);
+    }
+
+    @Override
+    public void setBusinessKey(String businessKey) {
+        ensureAccessible();
+        super.setBusinessKey(businessKey);
+    }
+
+    @Override
+    public void setProcessNo(String processNo) {
+        ensureAccessible();
+        super.setProcessNo(processNo);
+    }
+
+    @Override
+    public void setExceptionStack(String exceptionStack) {
+        ensureAccessible();
+        super.setExceptionStack(exceptionStack);
+    }
+
+    @Override
+    public void setExceptionFingerprint(String exceptionFingerprint, int exceptionCount) {
+        ensureAccessible();
+        super.setExceptionFingerprint(exceptionFingerprint, exceptionCount);
+    }
+
+    @Override
+    public void setCallType(String callType) {
+        ensureAccessible();
+        super.setCallType(callType);
+    }
+
+    @Override
+    public void handleException(Throwable e, Set<String> exclusiveExceptionSet, int maxExceptionStackLength) {
+        ensureAccessible();
+        super.handleException(e, exclusiveExceptionSet, maxExceptionStackLength);
+    }
+
+    @Override
+    public void handleRepeatedException(Throwable e, Set<String> exclusiveExceptionSet, String fingerprint, int count) {
+        ensureAccessible();
+        super.handleRepeatedException(e, exclusiveExceptionSet, fingerprint, count);
+    }
+}
@@ -0,0 +1,130 @@
+package com.ai.cloud.skywalking.recycler;
+
+import static com.ai.cloud.skywalking.conf.Config.Recycler.MAX_CAPACITY_PER_THREAD;
+import static com.ai.cloud.skywalking.conf.Config.Recycler.MAX_SHARED_CAPACITY;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.ai.cloud.skywalking.conf.Config;
+import com.ai.cloud.skywalking.protocol.Span;
+import com.ai.cloud.skywalking.protocol.TraceId;
+
+/**
+ * Span对象池，参照{@link com.ai.cloud.io.netty.util.Recycler}实现<br/>
+ * 每个线程持有一个有界的本地栈，本地栈满时回收到全局溢出池，本地栈空时从全局溢出池获取。<br/>
+ * 埋点线程创建Span，消费线程在Span序列化之后回收，Span经由全局溢出池回到埋点线程。
+ */
+public final class SpanRecycler {
+    private static Logger logger = LogManager.getLogger(SpanRecycler.class);
+
+    private static final ThreadLocal<SpanStack> LOCAL_STACK = new ThreadLocal<SpanStack>() {
+        @Override
+        protected SpanStack initialValue() {
+            return new SpanStack(MAX_CAPACITY_PER_THREAD);
+        }
+    };
+
+    private static final BlockingQueue<RecyclableSpan> SHARED_POOL =
+            new ArrayBlockingQueue<RecyclableSpan>(Math.max(1, MAX_SHARED_CAPACITY));
+
+    private SpanRecycler() {
+        // Non
+    }
+
+    public static Span newSpan(String traceId, String applicationId, String userId) {
+        return newSpan(traceId, null, 0, applicationId, userId);
+    }
+
+    public static Span newSpan(TraceId traceId, String applicationId, String userId) {
+        Span span = newSpan((String) null, null, 0, applicationId, userId);
+        span.setTraceId(traceId);
+        return span;
+    }
+
+    /**
+     * 创建与parent属于同一调用链的Span，不会因此生成parent的traceId字符串
+     */
+    public static Span newChildSpan(Span parent, String applicationId, String userId) {
+        Span span = newSpan((String) null, null, 0, applicationId, userId);
+        span.inheritTraceId(parent);
+        return span;
+    }
+
+    public static Span newSpan(String traceId, String parentLevelId, int levelId, String applicationId,
+                               String userId) {
+        if (!Config.Recycler.ENABLE) {
+            return new Span(traceId, parentLevelId, levelId, applicationId, userId);
+        }
+
+        RecyclableSpan span = LOCAL_STACK.get().pop();
+        if (span == null) {
+            span = SHARED_POOL.poll();
+            if (span == null) {
+                span = new RecyclableSpan();
+            }
+        }
+        span.init(traceId, parentLevelId, levelId, applicationId, userId);
+        return span;
+    }
+
+    /**
+     * 回收Span，回收之后不允许再使用该Span<br/>
+     * 非池化的Span和重复回收的Span将被忽略
+     *
+     * @param span
+     */
+    public static void release(Span span) {
+        if (!(span instanceof RecyclableSpan)) {
+            return;
+        }
+
+        RecyclableSpan recyclableSpan = (RecyclableSpan) span;
+        if (!recyclableSpan.markReleased()) {
+            if (Config.Recycler.DEBUG) {
+                logger.error("Span[" + span.getTraceId() + "] has been released more than once.",
+                        new IllegalStateException());
+            }
+            return;
+        }
+
+        // 调试模式下不复用，保留回收状态以便发现回收之后的使用
+        if (Config.Recycler.DEBUG) {
+            return;
+        }
+
+        recyclableSpan.reset();
+        if (!LOCAL_STACK.get().push(recyclableSpan)) {
+            SHARED_POOL.offer(recyclableSpan);
+        }
+    }
+
+    static class SpanStack {
+        private RecyclableSpan[] elements;
+        private int size = 0;
+
+        SpanStack(int maxCapacity) {
+            elements = new RecyclableSpan[Math.max(0, maxCapacity)];
+        }
+
+        boolean push(RecyclableSpan span) {
+            if (size == elements.length) {
+                return false;
+            }
+            elements[size++] = span;
+            return true;
+        }
+
+        RecyclableSpan pop() {
+            if (size == 0) {
+                return null;
+            }
+            RecyclableSpan span = elements[--size];
+            elements[size] = null;
+            return span;
+        }
+    }
+}
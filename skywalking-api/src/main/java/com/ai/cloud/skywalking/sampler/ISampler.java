@@ -0,0 +1,15 @@
+package com.ai.cloud.skywalking.sampler;
+
+import com.ai.cloud.skywalking.model.Identification;
+
+/**
+ * 采样器，在创建调用链的第一个埋点时决定整条调用链是否被采样<br/>
+ * 自定义的采样器需提供无参构造函数，并通过sampler.class_name配置
+ */
+public interface ISampler {
+    /**
+     * @param id 调用链第一个埋点的视点等信息，线程埋点等场景下可能为null
+     * @return 是否采样
+     */
+    boolean isSampled(Identification id);
+}
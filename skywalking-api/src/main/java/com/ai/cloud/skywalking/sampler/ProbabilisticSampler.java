@@ -0,0 +1,29 @@
+package com.ai.cloud.skywalking.sampler;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.ai.cloud.skywalking.model.Identification;
+
+/**
+ * 按万分比随机采样
+ */
+public class ProbabilisticSampler implements ISampler {
+    public static final int MAX_RATE = 10000;
+
+    private final int rate;
+
+    public ProbabilisticSampler(int rate) {
+        this.rate = rate;
+    }
+
+    @Override
+    public boolean isSampled(Identification id) {
+        if (rate >= MAX_RATE) {
+            return true;
+        }
+        if (rate <= 0) {
+            return false;
+        }
+        return ThreadLocalRandom.current().nextInt(MAX_RATE) < rate;
+    }
+}
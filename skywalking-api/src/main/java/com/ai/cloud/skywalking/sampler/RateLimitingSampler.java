@@ -0,0 +1,35 @@
+package com.ai.cloud.skywalking.sampler;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ai.cloud.skywalking.model.Identification;
+
+/**
+ * 限制每秒采样的调用链数量，超过之后的调用链在当前秒内均不采样
+ */
+public class RateLimitingSampler implements ISampler {
+    private final int maxTracesPerSecond;
+
+    private final AtomicLong currentSecond = new AtomicLong();
+    private final AtomicInteger sampledCount = new AtomicInteger();
+
+    public RateLimitingSampler(int maxTracesPerSecond) {
+        this.maxTracesPerSecond = maxTracesPerSecond;
+    }
+
+    @Override
+    public boolean isSampled(Identification id) {
+        long second = System.currentTimeMillis() / 1000;
+        long recentSecond = currentSecond.get();
+        if (second != recentSecond && currentSecond.compareAndSet(recentSecond, second)) {
+            // 进入新的一秒，由切换成功的线程清零计数
+            sampledCount.set(0);
+        }
+
+        if (sampledCount.get() >= maxTracesPerSecond) {
+            return false;
+        }
+        return sampledCount.incrementAndGet() <= maxTracesPerSecond;
+    }
+}
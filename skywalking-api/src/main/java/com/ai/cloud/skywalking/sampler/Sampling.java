@@ -0,0 +1,99 @@
+package com.ai.cloud.skywalking.sampler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.ai.cloud.skywalking.conf.Config;
+import com.ai.cloud.skywalking.degrade.LoadShedder;
+import com.ai.cloud.skywalking.model.Identification;
+import com.ai.cloud.skywalking.util.StringUtil;
+
+/**
+ * 采样入口，根据Config.Sampler中的配置构建采样器<br/>
+ * 配置了自定义采样器时，使用自定义采样器；否则先按视点规则（或默认采样率）随机采样，再按每秒最大数量限流
+ */
+public final class Sampling {
+    private static Logger logger = LogManager.getLogger(Sampling.class);
+
+    private static final String RULE_SPLIT = ";";
+    private static final String RULE_VALUE_SPLIT = "=";
+
+    private static volatile ISampler sampler;
+
+    private Sampling() {
+        // Non
+    }
+
+    public static boolean isSampled(Identification id) {
+        if (!LoadShedder.isTraceSampled()) {
+            return false;
+        }
+
+        ISampler currentSampler = sampler;
+        if (currentSampler == null) {
+            synchronized (Sampling.class) {
+                if (sampler == null) {
+                    sampler = buildSampler();
+                }
+                currentSampler = sampler;
+            }
+        }
+        try {
+            return currentSampler.isSampled(id);
+        } catch (Throwable e) {
+            logger.error("Failed to sample, the trace will be sampled.", e);
+            return true;
+        }
+    }
+
+    static ISampler buildSampler() {
+        if (!StringUtil.isEmpty(Config.Sampler.CLASS_NAME)) {
+            try {
+                return (ISampler) Class.forName(Config.Sampler.CLASS_NAME).newInstance();
+            } catch (Exception e) {
+                logger.error("Failed to create sampler[" + Config.Sampler.CLASS_NAME
+                        + "], use the configured rules instead.", e);
+            }
+        }
+
+        ISampler result = new ProbabilisticSampler(Config.Sampler.SAMPLE_RATE);
+        if (!StringUtil.isEmpty(Config.Sampler.VIEWPOINT_RULES)) {
+            result = buildViewPointSampler(Config.Sampler.VIEWPOINT_RULES, result);
+        }
+        if (Config.Sampler.MAX_TRACES_PER_SECOND > 0) {
+            final ISampler probabilisticSampler = result;
+            final ISampler rateLimitingSampler = new RateLimitingSampler(Config.Sampler.MAX_TRACES_PER_SECOND);
+            result = new ISampler() {
+                @Override
+                public boolean isSampled(Identification id) {
+                    return probabilisticSampler.isSampled(id) && rateLimitingSampler.isSampled(id);
+                }
+            };
+        }
+        return result;
+    }
+
+    private static ISampler buildViewPointSampler(String rules, ISampler defaultSampler) {
+        List<String> prefixes = new ArrayList<String>();
+        List<ISampler> samplers = new ArrayList<ISampler>();
+        for (String rule : rules.split(RULE_SPLIT)) {
+            int index = rule.lastIndexOf(RULE_VALUE_SPLIT);
+            if (index <= 0) {
+                logger.error("Illegal view point sampling rule[" + rule + "], it will be ignored.");
+                continue;
+            }
+            try {
+                int rate = Integer.parseInt(rule.substring(index + 1).trim());
+                prefixes.add(rule.substring(0, index).trim());
+                samplers.add(new ProbabilisticSampler(rate));
+            } catch (NumberFormatException e) {
+                logger.error("Illegal view point sampling rule[" + rule + "], it will be ignored.");
+            }
+        }
+        return new ViewPointSampler(prefixes.toArray(new String[prefixes.size()]),
+                samplers.toArray(new ISampler[samplers.size()]), defaultSampler);
+    }
+}
@@ -0,0 +1,34 @@
+package com.ai.cloud.skywalking.sampler;
+
+import com.ai.cloud.skywalking.model.Identification;
+
+/**
+ * 按视点前缀选择采样器，按配置顺序匹配第一个前缀，均未匹配时使用默认采样器
+ */
+public class ViewPointSampler implements ISampler {
+    private final String[] viewPointPrefixes;
+    private final ISampler[] samplers;
+    private final ISampler defaultSampler;
+
+    public ViewPointSampler(String[] viewPointPrefixes, ISampler[] samplers, ISampler defaultSampler) {
+        if (viewPointPrefixes.length != samplers.length) {
+            throw new IllegalArgumentException("the count of view point prefixes and samplers must be equal.");
+        }
+        this.viewPointPrefixes = viewPointPrefixes;
+        this.samplers = samplers;
+        this.defaultSampler = defaultSampler;
+    }
+
+    @Override
+    public boolean isSampled(Identification id) {
+        String viewPoint = id == null ? null : id.getViewPoint();
+        if (viewPoint != null) {
+            for (int i = 0; i < viewPointPrefixes.length; i++) {
+                if (viewPoint.startsWith(viewPointPrefixes[i])) {
+                    return samplers[i].isSampled(id);
+                }
+            }
+        }
+        return defaultSampler.isSampled(id);
+    }
+}
@@ -0,0 +1,8 @@
+package com.ai.cloud.skywalking.selfexamination;
+
+/**
+ * 瞬时值指标，只在{@link SDKHealthCollector}输出报告时读取
+ */
+public interface IGauge {
+    long getValue();
+}
@@ -59,6 +59,9 @@ public class SDKHealthCollector extends Thread {
 				for(String key : keyList){
 					log.append(heathReadingsSnapshot.get(key)).append("\n");
 				}
+				log.append("id<SDK-API,M:").append(BuriedPointMachineUtil.getHostDesc()).append(",P:")
+						.append(BuriedPointMachineUtil.getProcessNo()).append(",metrics>\n");
+				SDKMetrics.report(log);
 				log.append("------------------------------------------------\n");
 				
 				logger.info(log);
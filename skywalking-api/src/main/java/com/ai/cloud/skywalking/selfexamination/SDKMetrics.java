@@ -0,0 +1,90 @@
+package com.ai.cloud.skywalking.selfexamination;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.ai.cloud.io.netty.util.internal.LongCounter;
+import com.ai.cloud.io.netty.util.internal.PlatformDependent;
+
+/**
+ * SDK自身的运行指标<br/>
+ * 计数器在类加载时预先注册，热点路径上只做无锁计数，不拼接字符串、不查找Map；
+ * 由{@link SDKHealthCollector}定期读取并输出
+ */
+public final class SDKMetrics {
+    private static final Map<String, LongCounter> COUNTERS = new LinkedHashMap<String, LongCounter>();
+    private static final Map<String, IGauge> GAUGES = new LinkedHashMap<String, IGauge>();
+
+    /**
+     * 写入Buffer的Span数量
+     */
+    public static final LongCounter SPANS_SAVED = registerCounter("spans saved");
+    /**
+     * Buffer已满或降级时被丢弃的Span数量
+     */
+    public static final LongCounter SPANS_DROPPED = registerCounter("spans dropped");
+    /**
+     * 预聚合为统计结果，不再完整发送的Span数量
+     */
+    public static final LongCounter SPANS_AGGREGATED = registerCounter("spans aggregated");
+    /**
+     * 尾部采样时，所在片段未被保留而丢弃的Span数量
+     */
+    public static final LongCounter SPANS_TAIL_DISCARDED = registerCounter("spans tail discarded");
+    /**
+     * 写出完成的字节数
+     */
+    public static final LongCounter BYTES_SENT = registerCounter("bytes sent");
+    /**
+     * 发送失败的次数
+     */
+    public static final LongCounter SEND_FAILURES = registerCounter("send failures");
+    /**
+     * 为负载均衡切换Sender的次数
+     */
+    public static final LongCounter SENDER_SWITCHES = registerCounter("sender switches");
+
+    private SDKMetrics() {
+        // Non
+    }
+
+    private static LongCounter registerCounter(String name) {
+        LongCounter counter = PlatformDependent.newLongCounter();
+        COUNTERS.put(name, counter);
+        return counter;
+    }
+
+    /**
+     * 注册瞬时值指标，同名指标以最后一次注册为准
+     *
+     * @param name
+     * @param gauge
+     */
+    public static void registerGauge(String name, IGauge gauge) {
+        synchronized (GAUGES) {
+            GAUGES.put(name, gauge);
+        }
+    }
+
+    /**
+     * 输出所有指标，计数器输出累计值
+     *
+     * @param report
+     */
+    static void report(StringBuilder report) {
+        for (Map.Entry<String, LongCounter> counter : COUNTERS.entrySet()) {
+            report.append(counter.getKey()).append(": ").append(counter.getValue().value()).append("\n");
+        }
+        synchronized (GAUGES) {
+            for (Map.Entry<String, IGauge> gauge : GAUGES.entrySet()) {
+                report.append(gauge.getKey()).append(": ");
+                try {
+                    report.append(gauge.getValue().getValue());
+                } catch (Throwable t) {
+                    report.append("N/A(").append(t.getMessage()).append(")");
+                }
+                report.append("\n");
+            }
+        }
+    }
+}
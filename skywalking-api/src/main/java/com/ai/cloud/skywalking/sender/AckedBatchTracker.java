@@ -0,0 +1,127 @@
+package com.ai.cloud.skywalking.sender;
+
+import static com.ai.cloud.skywalking.conf.Config.Sender.ACK_TIMEOUT;
+import static com.ai.cloud.skywalking.conf.Config.Sender.MAX_UNACKED_BATCH_SIZE;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ai.cloud.io.netty.buffer.ByteBuf;
+import com.ai.cloud.skywalking.protocol.BatchFrame;
+import com.ai.cloud.skywalking.selfexamination.HeathReading;
+import com.ai.cloud.skywalking.selfexamination.IGauge;
+import com.ai.cloud.skywalking.selfexamination.SDKHealthCollector;
+import com.ai.cloud.skywalking.selfexamination.SDKMetrics;
+
+/**
+ * 应答模式下，跟踪已发送、等待服务端应答的数据<br/>
+ * 数据在{@link BatchFrame#HEADER_LENGTH}长度的帧头之后写入，帧头由{@link #prepare(ByteBuf)}填充
+ */
+public final class AckedBatchTracker {
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private static final Map<Long, PendingBatch> PENDING_BATCHES = new ConcurrentHashMap<Long, PendingBatch>();
+
+    static {
+        SDKMetrics.registerGauge("unacked batches", new IGauge() {
+            @Override
+            public long getValue() {
+                return PENDING_BATCHES.size();
+            }
+        });
+    }
+
+    private AckedBatchTracker() {
+        // Non
+    }
+
+    /**
+     * 为新的一批数据填充帧头，并分配序号，重发的数据不再调用
+     *
+     * @param data
+     */
+    public static void prepare(ByteBuf data) {
+        data.setBytes(0, BatchFrame.ACKED_BATCH_MAGIC);
+        data.setLong(BatchFrame.MAGIC_LENGTH, SEQUENCE.incrementAndGet());
+    }
+
+    static boolean hasCapacity() {
+        return PENDING_BATCHES.size() < MAX_UNACKED_BATCH_SIZE;
+    }
+
+    /**
+     * 登记已写入连接的数据，持有数据的一份引用直到应答或超时
+     *
+     * @param data
+     * @param sender
+     */
+    static void track(ByteBuf data, DataSender sender) {
+        PendingBatch previous = PENDING_BATCHES.put(getSequence(data),
+                new PendingBatch(data.retain(), sender, System.currentTimeMillis() + ACK_TIMEOUT));
+        if (previous != null) {
+            previous.data.release();
+        }
+    }
+
+    /**
+     * 写出失败的数据已进入重发队列，不再等待应答
+     *
+     * @param data
+     */
+    static void untrack(ByteBuf data) {
+        PendingBatch pendingBatch = PENDING_BATCHES.remove(getSequence(data));
+        if (pendingBatch != null) {
+            pendingBatch.data.release();
+        }
+    }
+
+    static void acked(long sequence) {
+        PendingBatch pendingBatch = PENDING_BATCHES.remove(sequence);
+        if (pendingBatch != null) {
+            pendingBatch.data.release();
+        }
+    }
+
+    /**
+     * 超时未应答的数据放入重发队列，未应答的服务端被注销，以便重发到其他服务端
+     */
+    static void checkTimeout() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<Long, PendingBatch>> iterator = PENDING_BATCHES.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, PendingBatch> entry = iterator.next();
+            PendingBatch pendingBatch = entry.getValue();
+            if (pendingBatch.deadline > now) {
+                continue;
+            }
+            if (PENDING_BATCHES.remove(entry.getKey(), pendingBatch)) {
+                DataSenderFactoryWithBalance.unRegister(pendingBatch.sender);
+                SDKHealthCollector.getCurrentHeathReading("ack").updateData(HeathReading.WARNING,
+                        "DataSender[" + pendingBatch.sender.getServerAddr() + "] ack timeout, data will be resent.");
+                RetrySendQueue.offer(pendingBatch.data);
+            }
+        }
+    }
+
+    public static int getUnackedBatchSize() {
+        return PENDING_BATCHES.size();
+    }
+
+    private static long getSequence(ByteBuf data) {
+        return data.getLong(data.readerIndex() + BatchFrame.MAGIC_LENGTH);
+    }
+
+    private static class PendingBatch {
+        private final ByteBuf data;
+        private final DataSender sender;
+        private final long deadline;
+
+        private PendingBatch(ByteBuf data, DataSender sender, long deadline) {
+            this.data = data;
+            this.sender = sender;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.ai.cloud.skywalking.sender;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ai.cloud.io.netty.buffer.ByteBuf;
+
+/**
+ * 同一批数据写入多个副本时共享的写出结果<br/>
+ * 所有副本都写出完成后，没有一个副本写出成功时才放入{@link RetrySendQueue}，每批数据最多放入一次
+ */
+final class BatchWriteGroup {
+    private final ByteBuf data;
+    // 发送方持有的一份，加上尚未完成的写出
+    private final AtomicInteger pending = new AtomicInteger(1);
+    private volatile boolean succeeded;
+    private volatile boolean failed;
+
+    /**
+     * @param data 持有数据的一份引用，直到所有副本写出完成
+     */
+    BatchWriteGroup(ByteBuf data) {
+        this.data = data.retain();
+    }
+
+    ByteBuf getData() {
+        return data;
+    }
+
+    /**
+     * 写入连接之前调用
+     */
+    void join() {
+        pending.incrementAndGet();
+    }
+
+    /**
+     * 一个副本写出完成
+     */
+    void complete(boolean success) {
+        if (success) {
+            succeeded = true;
+        } else {
+            failed = true;
+        }
+        release();
+    }
+
+    /**
+     * 发送方向所有副本写入之后调用
+     */
+    void release() {
+        if (pending.decrementAndGet() != 0) {
+            return;
+        }
+        if (failed && !succeeded) {
+            RetrySendQueue.offer(data);
+        } else {
+            data.release();
+        }
+    }
+}
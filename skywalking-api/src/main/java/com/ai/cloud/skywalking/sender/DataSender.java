@@ -1,31 +1,73 @@
 package com.ai.cloud.skywalking.sender;
 
+import static com.ai.cloud.skywalking.conf.Config.Sender.ACK_ENABLE;
+import static com.ai.cloud.skywalking.conf.Config.Sender.DICTIONARY_ENABLE;
+import static com.ai.cloud.skywalking.conf.Config.Sender.DICTIONARY_MAX_SIZE;
+import static com.ai.cloud.skywalking.conf.Config.Sender.DICTIONARY_MIN_LENGTH;
+import static com.ai.cloud.skywalking.conf.Config.Sender.WRITABLE_WAIT_TIMEOUT;
+import static com.ai.cloud.skywalking.conf.Config.Sender.WRITE_BUFFER_HIGH_WATER_MARK;
+import static com.ai.cloud.skywalking.conf.Config.Sender.WRITE_BUFFER_LOW_WATER_MARK;
+
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.ai.cloud.io.netty.bootstrap.Bootstrap;
+import com.ai.cloud.io.netty.buffer.ByteBuf;
+import com.ai.cloud.io.netty.buffer.PooledByteBufAllocator;
 import com.ai.cloud.io.netty.channel.Channel;
+import com.ai.cloud.io.netty.channel.ChannelFuture;
+import com.ai.cloud.io.netty.channel.ChannelFutureListener;
 import com.ai.cloud.io.netty.channel.ChannelHandlerContext;
 import com.ai.cloud.io.netty.channel.ChannelInboundHandlerAdapter;
 import com.ai.cloud.io.netty.channel.ChannelInitializer;
 import com.ai.cloud.io.netty.channel.ChannelOption;
 import com.ai.cloud.io.netty.channel.ChannelPipeline;
-import com.ai.cloud.io.netty.channel.EventLoopGroup;
-import com.ai.cloud.io.netty.channel.nio.NioEventLoopGroup;
 import com.ai.cloud.io.netty.channel.socket.SocketChannel;
 import com.ai.cloud.io.netty.channel.socket.nio.NioSocketChannel;
 import com.ai.cloud.io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import com.ai.cloud.io.netty.handler.codec.LengthFieldPrepender;
 import com.ai.cloud.io.netty.handler.codec.bytes.ByteArrayDecoder;
 import com.ai.cloud.io.netty.handler.codec.bytes.ByteArrayEncoder;
+import com.ai.cloud.skywalking.protocol.BatchFrame;
 import com.ai.cloud.skywalking.selfexamination.HeathReading;
+import com.ai.cloud.skywalking.selfexamination.IGauge;
 import com.ai.cloud.skywalking.selfexamination.SDKHealthCollector;
+import com.ai.cloud.skywalking.selfexamination.SDKMetrics;
 
 public class DataSender implements IDataSender {
-    private EventLoopGroup group;
-    private SenderStatus status = SenderStatus.FAILED;
+    // 所有Sender已写入连接、尚未写出完成的字节数
+    private static final AtomicLong IN_FLIGHT_BYTES = new AtomicLong();
+
+    static {
+        SDKMetrics.registerGauge("in-flight bytes", new IGauge() {
+            @Override
+            public long getValue() {
+                return IN_FLIGHT_BYTES.get();
+            }
+        });
+    }
+
+    private volatile SenderStatus status = SenderStatus.FAILED;
     private InetSocketAddress socketAddress;
-    private Channel channel;
+    private volatile Channel channel;
+    // 连接恢复可写或断开时，唤醒等待的发送线程
+    private final Object writableMonitor = new Object();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    // 字典与连接绑定，连接断开之后Sender不再使用，重建的Sender使用新的字典
+    private final DictionaryEncoder dictionaryEncoder = DICTIONARY_ENABLE ? new DictionaryEncoder(
+            ACK_ENABLE ? BatchFrame.HEADER_LENGTH : 0, DICTIONARY_MAX_SIZE, DICTIONARY_MIN_LENGTH) : null;
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flushScheduled.set(false);
+            Channel currentChannel = channel;
+            if (currentChannel != null) {
+                currentChannel.flush();
+            }
+        }
+    };
 
     public DataSender(String ip, int port) throws IOException {
         this(new InetSocketAddress(ip, port));
@@ -34,12 +76,14 @@ public class DataSender implements IDataSender {
     public DataSender(InetSocketAddress address) throws IOException {
         this.socketAddress = address;
         status = SenderStatus.READY;
-        group = new NioEventLoopGroup();
         try {
             Bootstrap bootstrap = new Bootstrap();
-            bootstrap.group(group)
+            bootstrap.group(SenderEventLoop.get())
                     .channel(NioSocketChannel.class)
                     .option(ChannelOption.TCP_NODELAY, true)
+                    .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                    .option(ChannelOption.WRITE_BUFFER_HIGH_WATER_MARK, WRITE_BUFFER_HIGH_WATER_MARK)
+                    .option(ChannelOption.WRITE_BUFFER_LOW_WATER_MARK, WRITE_BUFFER_LOW_WATER_MARK)
                     .handler(new ChannelInitializer<SocketChannel>() {
                         @Override
                         protected void initChannel(SocketChannel ch) throws Exception {
@@ -53,34 +97,105 @@ public class DataSender implements IDataSender {
                                     super.channelActive(ctx);
                                     channel = ctx.channel();
                                 }
+
+                                @Override
+                                public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+                                    if (msg instanceof byte[] && BatchFrame.isAck((byte[]) msg)) {
+                                        AckedBatchTracker.acked(BatchFrame.getSequence((byte[]) msg));
+                                        return;
+                                    }
+                                    if (msg instanceof byte[] && BatchFrame.isBusy((byte[]) msg)) {
+                                        // 服务端缓存已满，暂不选择该连接；不关闭连接，服务端已读出的数据恢复之后仍会写入
+                                        if (transitStatus(SenderStatus.READY, SenderStatus.BUSY)) {
+                                            SDKHealthCollector.getCurrentHeathReading("sender").updateData(HeathReading.WARNING, "DataSender[" + socketAddress + "] server is busy. suspend sender.");
+                                        }
+                                        return;
+                                    }
+                                    if (msg instanceof byte[] && BatchFrame.isResume((byte[]) msg)) {
+                                        if (transitStatus(SenderStatus.BUSY, SenderStatus.READY)) {
+                                            SDKHealthCollector.getCurrentHeathReading("sender").updateData(HeathReading.INFO, "DataSender[" + socketAddress + "] server resumed. resume sender.");
+                                        }
+                                        return;
+                                    }
+                                    super.channelRead(ctx, msg);
+                                }
+
+                                @Override
+                                public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+                                    super.channelWritabilityChanged(ctx);
+                                    notifyWritableWaiters();
+                                }
+
+                                @Override
+                                public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+                                    super.channelInactive(ctx);
+                                    // 繁忙的连接不会被选择发送，断开时也要交给检查线程移除
+                                    DataSenderFactoryWithBalance.unRegister(DataSender.this);
+                                    notifyWritableWaiters();
+                                }
                             });
                         }
                     });
             bootstrap.connect(address).sync();
         } catch (Exception e) {
             status = SenderStatus.FAILED;
-            SDKHealthCollector.getCurrentHeathReading("sender").updateData(HeathReading.INFO, "DataSender[" + socketAddress + "] send data successfully.");
+            SDKHealthCollector.getCurrentHeathReading("sender").updateData(HeathReading.WARNING, "DataSender[" + socketAddress + "] connect failed.");
         }
     }
 
     /**
-     * 返回是否发送成功
+     * 异步发送，返回数据是否被连接接受<br/>
+     * 连接不可写时，最多等待WRITABLE_WAIT_TIMEOUT；写出失败的数据进入{@link RetrySendQueue}等待重发，
+     * 多个副本时由{@link BatchWriteGroup}汇总，只在所有副本都失败时重发一次
      *
      * @param data
      * @return
      */
     @Override
-    public boolean send(String data) {
+    public boolean send(ByteBuf data) {
+        BatchWriteGroup group = new BatchWriteGroup(data);
+        try {
+            return send(data, group);
+        } finally {
+            group.release();
+        }
+    }
+
+    /**
+     * @param group 同一批数据的所有副本共享，写出失败时由其决定是否重发
+     */
+    boolean send(ByteBuf data, BatchWriteGroup group) {
         try {
-            if (channel != null && channel.isActive()) {
-                channel.writeAndFlush(data.getBytes());
-                SDKHealthCollector.getCurrentHeathReading("sender").updateData(HeathReading.INFO, "DataSender[" + socketAddress + "] send data successfully.");
+            Channel currentChannel = channel;
+            if (currentChannel != null && currentChannel.isActive()) {
+                // 背压导致的失败可能很频繁，只计数
+                if (ACK_ENABLE && !AckedBatchTracker.hasCapacity()) {
+                    SDKMetrics.SEND_FAILURES.increment();
+                    return false;
+                }
+                if (!waitForWritable(currentChannel)) {
+                    SDKMetrics.SEND_FAILURES.increment();
+                    return false;
+                }
+
+                if (dictionaryEncoder == null) {
+                    // 写出后由netty释放，使用独立的读写索引，以便同一份数据发送多个副本
+                    write(currentChannel, group, data.duplicate().retain());
+                } else {
+                    // 编号按写入连接的顺序分配，保证定义先于引用到达服务端
+                    synchronized (dictionaryEncoder) {
+                        write(currentChannel, group, dictionaryEncoder.encode(data));
+                    }
+                }
+                scheduleFlush(currentChannel);
                 return true;
             }else{
+                SDKMetrics.SEND_FAILURES.increment();
                 DataSenderFactoryWithBalance.unRegister(this);
                 SDKHealthCollector.getCurrentHeathReading("sender").updateData(HeathReading.WARNING, "DataSender[" + socketAddress + "] channel isn't active. unregister sender.");
             }
         } catch (Exception e) {
+            SDKMetrics.SEND_FAILURES.increment();
             DataSenderFactoryWithBalance.unRegister(this);
             SDKHealthCollector.getCurrentHeathReading("sender").updateData(HeathReading.WARNING, "DataSender[" + socketAddress + "] channel broken. unregister sender.");
         }
@@ -88,25 +203,122 @@ public class DataSender implements IDataSender {
         return false;
     }
 
+    /**
+     * 写出结果汇总到group，所有副本都写出失败时重发
+     *
+     * @param group   持有原始数据的引用
+     * @param payload 写入连接的数据，写出后由netty释放
+     */
+    private void write(Channel currentChannel, BatchWriteGroup group, ByteBuf payload) {
+        int size = payload.readableBytes();
+        IN_FLIGHT_BYTES.addAndGet(size);
+        if (ACK_ENABLE) {
+            AckedBatchTracker.track(group.getData(), this);
+        }
+        group.join();
+        currentChannel.write(payload).addListener(new WriteListener(group, size));
+    }
+
+    /**
+     * 同一轮事件循环内的多次写入合并为一次flush
+     */
+    private void scheduleFlush(Channel currentChannel) {
+        if (flushScheduled.compareAndSet(false, true)) {
+            currentChannel.eventLoop().execute(flushTask);
+        }
+    }
+
+    private boolean waitForWritable(Channel currentChannel) throws InterruptedException {
+        if (currentChannel.isWritable()) {
+            return true;
+        }
+        long deadline = System.currentTimeMillis() + WRITABLE_WAIT_TIMEOUT;
+        synchronized (writableMonitor) {
+            while (!currentChannel.isWritable() && currentChannel.isActive()) {
+                long waitTime = deadline - System.currentTimeMillis();
+                if (waitTime <= 0) {
+                    break;
+                }
+                writableMonitor.wait(waitTime);
+            }
+        }
+        return currentChannel.isWritable();
+    }
+
+    private void notifyWritableWaiters() {
+        synchronized (writableMonitor) {
+            writableMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * @return 所有Sender已写入连接、尚未写出完成的字节数
+     */
+    public static long getInFlightBytes() {
+        return IN_FLIGHT_BYTES.get();
+    }
+
+    private class WriteListener implements ChannelFutureListener {
+        private final BatchWriteGroup group;
+        private final int size;
+
+        private WriteListener(BatchWriteGroup group, int size) {
+            this.group = group;
+            this.size = size;
+        }
+
+        @Override
+        public void operationComplete(ChannelFuture future) throws Exception {
+            IN_FLIGHT_BYTES.addAndGet(-size);
+            if (future.isSuccess()) {
+                SDKMetrics.BYTES_SENT.add(size);
+                group.complete(true);
+                return;
+            }
+
+            SDKMetrics.SEND_FAILURES.increment();
+            DataSenderFactoryWithBalance.unRegister(DataSender.this);
+            SDKHealthCollector.getCurrentHeathReading("sender").updateData(HeathReading.WARNING, "DataSender[" + socketAddress + "] write data failed. unregister sender.");
+            if (ACK_ENABLE) {
+                AckedBatchTracker.untrack(group.getData());
+            }
+            group.complete(false);
+        }
+    }
+
     public InetSocketAddress getServerAddr() {
         return this.socketAddress;
     }
 
     public void close() {
-        if (group != null) {
-            group.shutdownGracefully();
+        if (channel != null) {
+            channel.close();
         }
     }
 
+    /**
+     * READY：可选择；BUSY：服务端繁忙，保持连接但不选择，收到恢复帧之后回到READY；FAILED：由检查线程关闭并移除
+     */
     public enum SenderStatus {
-        READY, FAILED
+        READY, BUSY, FAILED
     }
 
     public SenderStatus getStatus() {
         return status;
     }
 
-    public void setStatus(SenderStatus status) {
+    public synchronized void setStatus(SenderStatus status) {
         this.status = status;
     }
+
+    /**
+     * 只在当前状态为expected时切换，避免繁忙或恢复帧覆盖FAILED
+     */
+    private synchronized boolean transitStatus(SenderStatus expected, SenderStatus target) {
+        if (status != expected) {
+            return false;
+        }
+        status = target;
+        return true;
+    }
 }
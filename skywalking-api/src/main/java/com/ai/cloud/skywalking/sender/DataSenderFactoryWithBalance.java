@@ -22,6 +22,7 @@ import org.apache.logging.log4j.Logger;
 import com.ai.cloud.skywalking.conf.Config;
 import com.ai.cloud.skywalking.selfexamination.HeathReading;
 import com.ai.cloud.skywalking.selfexamination.SDKHealthCollector;
+import com.ai.cloud.skywalking.selfexamination.SDKMetrics;
 import com.ai.cloud.skywalking.util.StringUtil;
 
 public class DataSenderFactoryWithBalance {
@@ -32,6 +33,8 @@ public class DataSenderFactoryWithBalance {
 
     private static List<DataSender> usingDataSender = new ArrayList<DataSender>();
     private static int maxKeepConnectingSenderSize;
+    // 配置了自定义的IDataSender时，所有数据都交给它发送
+    private static IDataSender customSender;
 
     private static int calculateMaxKeeperConnectingSenderSize(int allAddressSize) {
         if (CONNECT_PERCENT <= 0 || CONNECT_PERCENT > 100) {
@@ -44,6 +47,22 @@ public class DataSenderFactoryWithBalance {
 
     // 初始化服务端的地址数据
     static {
+        if (!StringUtil.isEmpty(Config.Sender.CLASS_NAME)) {
+            customSender = newCustomSender(Config.Sender.CLASS_NAME);
+        } else {
+            initServerAddresses();
+        }
+    }
+
+    private static IDataSender newCustomSender(String className) {
+        try {
+            return (IDataSender) Class.forName(className).newInstance();
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Failed to create data sender[" + className + "].", e);
+        }
+    }
+
+    private static void initServerAddresses() {
         // 获取数据
         if (StringUtil.isEmpty(Config.Sender.SERVERS_ADDR)) {
             throw new IllegalArgumentException(
@@ -78,36 +97,74 @@ public class DataSenderFactoryWithBalance {
 
     // 获取连接
     public static IDataSender getSender() {
-        DataSenderWithCopies readySender = new DataSenderWithCopies(maxKeepConnectingSenderSize);
         while (true) {
+            IDataSender readySender = tryGetSender();
+            if (readySender != null) {
+                return readySender;
+            }
+
             try {
-                if (usingDataSender.size() > 0) {
-                    int index = ThreadLocalRandom.current().nextInt(0,
-                            usingDataSender.size());
-                    if (usingDataSender.get(index).getStatus() == DataSender.SenderStatus.READY) {
-                        while (readySender.append(usingDataSender.get(index))) {
-                            if (++index == usingDataSender.size()) {
-                                index = 0;
-                            }
-                        }
+                Thread.sleep(RETRY_GET_SENDER_WAIT_INTERVAL);
+            } catch (InterruptedException e) {
+                logger.error("Sleep failed", e);
+            }
+        }
+    }
+
+    /**
+     * 获取连接，没有可用的连接时立即返回null
+     *
+     * @return
+     */
+    public static IDataSender tryGetSender() {
+        if (customSender != null) {
+            return customSender;
+        }
+        try {
+            int size = usingDataSender.size();
+            if (size > 0) {
+                int startIndex = ThreadLocalRandom.current().nextInt(0, size);
+                DataSenderWithCopies readySender = null;
+                // 从随机位置开始依次查找可用的连接，只有全部不可用时才返回null
+                for (int i = 0; i < size; i++) {
+                    DataSender sender = usingDataSender.get((startIndex + i) % size);
+                    if (sender.getStatus() != DataSender.SenderStatus.READY) {
+                        continue;
+                    }
+                    if (readySender == null) {
+                        // 应答模式下，由重发保证可靠性，只发送一份
+                        readySender = new DataSenderWithCopies(
+                                Config.Sender.ACK_ENABLE ? 1 : maxKeepConnectingSenderSize);
+                    }
+                    if (!readySender.append(sender)) {
                         break;
                     }
                 }
+                return readySender;
+            }
+        } catch (Throwable e) {
+            logger.error("get sender failed", e);
+        }
+        return null;
+    }
 
-                if (!readySender.isReady()) {
-                    try {
-                        Thread.sleep(RETRY_GET_SENDER_WAIT_INTERVAL);
-                    } catch (InterruptedException e) {
-                        logger.error("Sleep failed", e);
-                    }
+    /**
+     * @return 是否存在可用的连接
+     */
+    public static boolean hasReadySender() {
+        if (customSender != null) {
+            return true;
+        }
+        try {
+            for (int i = 0; i < usingDataSender.size(); i++) {
+                if (usingDataSender.get(i).getStatus() == DataSender.SenderStatus.READY) {
+                    return true;
                 }
-            } catch (Throwable e) {
-                logger.error("get sender failed", e);
             }
-
+        } catch (Throwable e) {
+            // 连接列表正在被检查线程修改，视为暂不可用
         }
-
-        return readySender;
+        return false;
     }
 
     // 定时Sender状态检查
@@ -122,6 +179,10 @@ public class DataSenderFactoryWithBalance {
             while (true) {
                 try {
                     DataSender newSender;
+                    if (Config.Sender.ACK_ENABLE) {
+                        AckedBatchTracker.checkTimeout();
+                    }
+
                     // removing failed sender
                     Iterator<DataSender> senderIterator = usingDataSender
                             .iterator();
@@ -178,7 +239,7 @@ public class DataSenderFactoryWithBalance {
                                         .getServerAddr());
                                 unusedServerAddresses.add(toBeSwitchSender
                                         .getServerAddr());
-                                SDKHealthCollector.getCurrentHeathReading("switch").updateData(HeathReading.INFO, "switch existed sender.");
+                                SDKMetrics.SENDER_SWITCHES.increment();
                             }
                         }
                         sleepTime = 0;
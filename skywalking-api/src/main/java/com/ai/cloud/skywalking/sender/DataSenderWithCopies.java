@@ -5,8 +5,7 @@ import static com.ai.cloud.skywalking.conf.Config.Sender.MAX_COPY_NUM;
 import java.util.HashSet;
 import java.util.Set;
 
-import com.ai.cloud.skywalking.selfexamination.HeathReading;
-import com.ai.cloud.skywalking.selfexamination.SDKHealthCollector;
+import com.ai.cloud.io.netty.buffer.ByteBuf;
 
 /**
  * 带副本的数据发送器
@@ -48,14 +47,21 @@ public class DataSenderWithCopies implements IDataSender {
 	/**
 	 * 尝试向所有副本发送
 	 */
-	public boolean send(String data) {
+	public boolean send(ByteBuf data) {
 		int successNum = 0;
-		for (IDataSender sender : senders) {
-			if (sender.send(data)) {
-				successNum++;
+		// 所有副本共享写出结果，写出失败的数据最多重发一次
+		BatchWriteGroup group = new BatchWriteGroup(data);
+		try {
+			for (IDataSender sender : senders) {
+				boolean success = sender instanceof DataSender ? ((DataSender) sender).send(data, group)
+						: sender.send(data);
+				if (success) {
+					successNum++;
+				}
 			}
+		} finally {
+			group.release();
 		}
-		SDKHealthCollector.getCurrentHeathReading("DataSenderWithCopies").updateData(HeathReading.INFO, "DataSender send data with copynum=" + successNum + " successfully.");
 		if (senders.size() == 1 && successNum == 1) {
 			return true;
 		} else if (successNum >= 2) {
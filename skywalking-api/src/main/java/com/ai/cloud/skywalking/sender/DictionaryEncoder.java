@@ -0,0 +1,260 @@
+package com.ai.cloud.skywalking.sender;
+
+import java.nio.charset.Charset;
+
+import com.ai.cloud.io.netty.buffer.ByteBuf;
+import com.ai.cloud.io.netty.buffer.PooledByteBufAllocator;
+import com.ai.cloud.skywalking.protocol.DictionaryFrame;
+import com.ai.cloud.skywalking.protocol.ViewPointMetric;
+
+/**
+ * 按连接进行字典编码，见{@link DictionaryFrame}<br/>
+ * 编号的分配顺序需与写入连接的顺序一致，调用方在编码和写入期间需持有编码器的锁<br/>
+ * 字符串第二次出现时才分配编号，只出现一次的业务字段不占用字典；编号用满之后，淘汰最久未使用的编号并重新定义；
+ * 预聚合的METRIC记录各字段变化频繁，不参与编码
+ */
+public class DictionaryEncoder {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final byte[] METRIC_FLAG = ViewPointMetric.METRIC_FLAG.getBytes(Charset.forName("UTF-8"));
+
+    private final int headerLength;
+    private final int maxSize;
+    private final int minLength;
+
+    // 开放定址的哈希表，按字段原文的字节内容查找编号
+    private final long[] hashes;
+    private final byte[][] values;
+    private final int[] ids;
+    private final int mask;
+    private int size = 0;
+
+    // 编号所在的哈希表位置
+    private final int[] slots;
+    // 按使用顺序排列编号的双向链表，表头为最久未使用的编号
+    private final int[] previousIds;
+    private final int[] nextIds;
+    private int eldestId = -1;
+    private int latestId = -1;
+
+    // 只出现过一次的字符串的哈希，按哈希直接映射，冲突时覆盖
+    private final long[] candidates;
+
+    /**
+     * @param headerLength 编码时原样保留的帧头长度
+     * @param maxSize      最多分配的编号数量，用满之后淘汰最久未使用的编号
+     * @param minLength    小于该长度的字符串不编码
+     */
+    public DictionaryEncoder(int headerLength, int maxSize, int minLength) {
+        this.headerLength = headerLength;
+        this.maxSize = maxSize;
+        this.minLength = minLength;
+        int capacity = 1;
+        while (capacity < maxSize * 2) {
+            capacity <<= 1;
+        }
+        this.hashes = new long[capacity];
+        this.values = new byte[capacity][];
+        this.ids = new int[capacity];
+        this.mask = capacity - 1;
+        this.slots = new int[maxSize];
+        this.previousIds = new int[maxSize];
+        this.nextIds = new int[maxSize];
+        this.candidates = new long[capacity];
+    }
+
+    /**
+     * @param data 原始数据，读写索引不变
+     * @return 编码后的数据，由调用方释放
+     */
+    public ByteBuf encode(ByteBuf data) {
+        int start = data.readerIndex();
+        int end = data.writerIndex();
+        ByteBuf out = PooledByteBufAllocator.DEFAULT.directBuffer(data.readableBytes() + DictionaryFrame.MAGIC_LENGTH);
+        out.writeBytes(data, start, headerLength);
+        out.writeBytes(DictionaryFrame.DICTIONARY_BATCH_MAGIC);
+
+        int fieldIndex = 0;
+        boolean metricRecord = false;
+        int fieldStart = start + headerLength;
+        int i = fieldStart;
+        while (i < end) {
+            byte current = data.getByte(i);
+            if (current == DictionaryFrame.FIELD_SEPARATOR[0] && isSeparator(data, i, end, DictionaryFrame.FIELD_SEPARATOR)) {
+                if (fieldIndex == 0) {
+                    metricRecord = sameBytes(METRIC_FLAG, data, fieldStart, i - fieldStart);
+                }
+                encodeField(data, fieldStart, i, fieldIndex, metricRecord, out);
+                out.writeBytes(DictionaryFrame.FIELD_SEPARATOR);
+                fieldIndex++;
+                i += 2;
+                fieldStart = i;
+            } else if (current == DictionaryFrame.DATA_SEPARATOR[0] && isSeparator(data, i, end, DictionaryFrame.DATA_SEPARATOR)) {
+                encodeField(data, fieldStart, i, fieldIndex, metricRecord, out);
+                out.writeBytes(DictionaryFrame.DATA_SEPARATOR);
+                fieldIndex = 0;
+                metricRecord = false;
+                i += 2;
+                fieldStart = i;
+            } else {
+                i++;
+            }
+        }
+        encodeField(data, fieldStart, end, fieldIndex, metricRecord, out);
+        return out;
+    }
+
+    private void encodeField(ByteBuf data, int start, int end, int fieldIndex, boolean metricRecord, ByteBuf out) {
+        int length = end - start;
+        if (length <= 0 || !DictionaryFrame.isEncodable(fieldIndex)) {
+            out.writeBytes(data, start, length);
+            return;
+        }
+
+        if (length >= minLength && !metricRecord && maxSize > 0) {
+            long hash = hash(data, start, end);
+            int slot = findSlot(hash, data, start, length);
+            if (values[slot] != null) {
+                touch(ids[slot]);
+                out.writeByte(DictionaryFrame.REFERENCE);
+                writeId(out, ids[slot]);
+                return;
+            }
+
+            int candidate = (int) hash & mask;
+            if (candidates[candidate] == hash) {
+                candidates[candidate] = 0;
+                int id;
+                if (size < maxSize) {
+                    id = size++;
+                } else {
+                    // 服务端收到相同编号的定义时覆盖原有的值
+                    id = eldestId;
+                    unlink(id);
+                    removeSlot(slots[id]);
+                    slot = findSlot(hash, data, start, length);
+                }
+                byte[] value = new byte[length];
+                data.getBytes(start, value);
+                hashes[slot] = hash;
+                values[slot] = value;
+                ids[slot] = id;
+                slots[id] = slot;
+                linkLatest(id);
+                out.writeByte(DictionaryFrame.DEFINITION);
+                writeId(out, id);
+                out.writeByte(DictionaryFrame.DEFINITION_SEPARATOR);
+                out.writeBytes(value);
+                return;
+            }
+            candidates[candidate] = hash;
+        }
+
+        byte first = data.getByte(start);
+        if (first == DictionaryFrame.REFERENCE || first == DictionaryFrame.DEFINITION || first == DictionaryFrame.ESCAPE) {
+            out.writeByte(DictionaryFrame.ESCAPE);
+        }
+        out.writeBytes(data, start, length);
+    }
+
+    /**
+     * @return 值所在的位置，不存在时返回可插入的空位置
+     */
+    private int findSlot(long hash, ByteBuf data, int start, int length) {
+        int slot = (int) hash & mask;
+        while (values[slot] != null) {
+            if (hashes[slot] == hash && sameBytes(values[slot], data, start, length)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * 删除之后将同一探测序列中后面的值前移，保证查找不会在空位置提前结束
+     */
+    private void removeSlot(int slot) {
+        values[slot] = null;
+        int empty = slot;
+        int current = (slot + 1) & mask;
+        while (values[current] != null) {
+            int home = (int) hashes[current] & mask;
+            // 空位置在home到current的探测路径上时，可以前移
+            if (((current - home) & mask) >= ((current - empty) & mask)) {
+                hashes[empty] = hashes[current];
+                values[empty] = values[current];
+                ids[empty] = ids[current];
+                slots[ids[empty]] = empty;
+                values[current] = null;
+                empty = current;
+            }
+            current = (current + 1) & mask;
+        }
+    }
+
+    private void touch(int id) {
+        if (id != latestId) {
+            unlink(id);
+            linkLatest(id);
+        }
+    }
+
+    private void linkLatest(int id) {
+        previousIds[id] = latestId;
+        nextIds[id] = -1;
+        if (latestId >= 0) {
+            nextIds[latestId] = id;
+        } else {
+            eldestId = id;
+        }
+        latestId = id;
+    }
+
+    private void unlink(int id) {
+        int previousId = previousIds[id];
+        int nextId = nextIds[id];
+        if (previousId >= 0) {
+            nextIds[previousId] = nextId;
+        } else {
+            eldestId = nextId;
+        }
+        if (nextId >= 0) {
+            previousIds[nextId] = previousId;
+        } else {
+            latestId = previousId;
+        }
+    }
+
+    private static boolean isSeparator(ByteBuf data, int index, int end, byte[] separator) {
+        return index + 1 < end && data.getByte(index + 1) == separator[1];
+    }
+
+    private static long hash(ByteBuf data, int start, int end) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = start; i < end; i++) {
+            hash ^= data.getByte(i) & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static boolean sameBytes(byte[] value, ByteBuf data, int start, int length) {
+        if (value.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (value[i] != data.getByte(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeId(ByteBuf out, int id) {
+        if (id >= 10) {
+            writeId(out, id / 10);
+        }
+        out.writeByte('0' + id % 10);
+    }
+}
@@ -1,5 +1,13 @@
 package com.ai.cloud.skywalking.sender;
 
+import com.ai.cloud.io.netty.buffer.ByteBuf;
+
 public interface IDataSender {
-	public boolean send(String data);
+	/**
+	 * 发送数据，调用方仍持有data的引用，并负责释放
+	 *
+	 * @param data
+	 * @return 是否发送成功
+	 */
+	public boolean send(ByteBuf data);
 }
@@ -0,0 +1,39 @@
+package com.ai.cloud.skywalking.sender;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import com.ai.cloud.io.netty.buffer.ByteBuf;
+import com.ai.cloud.skywalking.conf.Config;
+import com.ai.cloud.skywalking.selfexamination.HeathReading;
+import com.ai.cloud.skywalking.selfexamination.SDKHealthCollector;
+
+/**
+ * 异步写出失败、等待消费线程重发的数据<br/>
+ * 队列持有数据的引用，取出之后由调用方负责释放
+ */
+public final class RetrySendQueue {
+    private static final BlockingQueue<ByteBuf> QUEUE =
+            new ArrayBlockingQueue<ByteBuf>(Math.max(1, Config.Sender.MAX_RETRY_BATCH_SIZE));
+
+    private RetrySendQueue() {
+        // Non
+    }
+
+    /**
+     * 放入写出失败的数据，队列已满时释放该数据
+     *
+     * @param data
+     */
+    static void offer(ByteBuf data) {
+        if (!QUEUE.offer(data)) {
+            data.release();
+            SDKHealthCollector.getCurrentHeathReading("RetrySendQueue").updateData(HeathReading.WARNING,
+                    "retry send queue is full, data been discarded.");
+        }
+    }
+
+    public static ByteBuf poll() {
+        return QUEUE.poll();
+    }
+}
@@ -0,0 +1,33 @@
+package com.ai.cloud.skywalking.sender;
+
+import com.ai.cloud.io.netty.channel.EventLoopGroup;
+import com.ai.cloud.io.netty.channel.nio.NioEventLoopGroup;
+import com.ai.cloud.io.netty.util.concurrent.DefaultThreadFactory;
+import com.ai.cloud.skywalking.conf.Config;
+
+/**
+ * 所有DataSender共享的EventLoopGroup，在第一次创建连接时启动<br/>
+ * 重连和切换Sender时只关闭连接，不再关闭EventLoopGroup
+ */
+final class SenderEventLoop {
+    private static volatile EventLoopGroup group;
+
+    private SenderEventLoop() {
+        // Non
+    }
+
+    static EventLoopGroup get() {
+        EventLoopGroup result = group;
+        if (result == null) {
+            synchronized (SenderEventLoop.class) {
+                result = group;
+                if (result == null) {
+                    result = new NioEventLoopGroup(Math.max(1, Config.Sender.EVENT_LOOP_THREADS),
+                            new DefaultThreadFactory("SkyWalking-DataSender", true));
+                    group = result;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,173 @@
+package com.ai.cloud.skywalking.sender;
+
+import java.nio.charset.Charset;
+
+import com.ai.cloud.io.netty.buffer.ByteBuf;
+import com.ai.cloud.skywalking.conf.Constants;
+import com.ai.cloud.skywalking.protocol.Span;
+import com.ai.cloud.skywalking.protocol.SpanData;
+import com.ai.cloud.skywalking.protocol.TraceId;
+
+/**
+ * 将Span按照{@link Span#toString()}相同的文本格式，以UTF-8编码直接写入ByteBuf<br/>
+ * 序列化过程中不创建中间字符串，换行符的转义逐字节完成
+ */
+public final class SpanSerializer {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte[] FIELD_SEPARATOR = SpanData.SPAN_FIELD_SEPARATOR.getBytes(UTF_8);
+    private static final byte[] NEW_LINE_PLACEHOLDER = SpanData.NEW_LINE_PLACEHOLDER.getBytes(UTF_8);
+    private static final byte[] DATA_SPILT = Constants.DATA_SPILT.getBytes(UTF_8);
+    private static final byte[] NULL = "null".getBytes(UTF_8);
+    private static final byte[] TRUE = "true".getBytes(UTF_8);
+    private static final byte[] FALSE = "false".getBytes(UTF_8);
+    private static final byte[] LONG_MIN_VALUE = String.valueOf(Long.MIN_VALUE).getBytes(UTF_8);
+    private static final byte BLANK = ' ';
+
+    private SpanSerializer() {
+        // Non
+    }
+
+    /**
+     * 写入Span及其后的数据分隔符
+     *
+     * @param span
+     * @param buf
+     */
+    public static void serialize(Span span, ByteBuf buf) {
+        writeTraceId(buf, span);
+        buf.writeBytes(FIELD_SEPARATOR);
+        writeNonBlank(buf, span.getParentLevel(), false);
+        buf.writeBytes(FIELD_SEPARATOR);
+        writeLong(buf, span.getLevelId());
+        buf.writeBytes(FIELD_SEPARATOR);
+        writeNonBlank(buf, span.getViewPointId(), false);
+        buf.writeBytes(FIELD_SEPARATOR);
+        writeLong(buf, span.getStartDate());
+        buf.writeBytes(FIELD_SEPARATOR);
+        writeLong(buf, span.getCost());
+        buf.writeBytes(FIELD_SEPARATOR);
+        writeNonBlank(buf, span.getAddress(), false);
+        buf.writeBytes(FIELD_SEPARATOR);
+        writeLong(buf, span.getStatusCode());
+        buf.writeBytes(FIELD_SEPARATOR);
+        writeNonBlank(buf, span.getExceptionStack(), true);
+        buf.writeBytes(FIELD_SEPARATOR);
+        writeNullable(buf, span.getSpanType());
+        buf.writeBytes(FIELD_SEPARATOR);
+        buf.writeBytes(span.isReceiver() ? TRUE : FALSE);
+        buf.writeBytes(FIELD_SEPARATOR);
+        writeNonBlank(buf, span.getBusinessKey(), true);
+        buf.writeBytes(FIELD_SEPARATOR);
+        writeNonBlank(buf, span.getProcessNo(), false);
+        buf.writeBytes(FIELD_SEPARATOR);
+        writeNonBlank(buf, span.getApplicationId(), false);
+        buf.writeBytes(FIELD_SEPARATOR);
+        writeNonBlank(buf, span.getUserId(), false);
+        buf.writeBytes(FIELD_SEPARATOR);
+        writeNullable(buf, span.getCallType());
+        String exceptionFingerprint = span.getExceptionFingerprint();
+        long costMicros = span.getRawCostMicros();
+        if ((exceptionFingerprint != null && exceptionFingerprint.length() > 0) || costMicros > 0) {
+            buf.writeBytes(FIELD_SEPARATOR);
+            writeNonBlank(buf, exceptionFingerprint, false);
+            buf.writeBytes(FIELD_SEPARATOR);
+            writeLong(buf, span.getExceptionCount());
+        }
+        if (costMicros > 0) {
+            buf.writeBytes(FIELD_SEPARATOR);
+            writeLong(buf, costMicros);
+        }
+        buf.writeBytes(DATA_SPILT);
+    }
+
+    /**
+     * 字符串形式尚未生成的TraceId直接按字段写入，不再生成字符串
+     */
+    private static void writeTraceId(ByteBuf buf, Span span) {
+        TraceId traceId = span.getLazyTraceId();
+        if (traceId == null) {
+            writeNullable(buf, span.getTraceId());
+            return;
+        }
+        writeUtf8(buf, traceId.getVersion(), false);
+        buf.writeByte('.');
+        writeLong(buf, traceId.getTimestamp());
+        writeUtf8(buf, traceId.getProcessSegment(), false);
+        writeLong(buf, traceId.getThreadId());
+        buf.writeByte('.');
+        writeLong(buf, traceId.getSequence());
+    }
+
+    private static void writeNullable(ByteBuf buf, String value) {
+        if (value == null) {
+            buf.writeBytes(NULL);
+        } else {
+            writeUtf8(buf, value, false);
+        }
+    }
+
+    private static void writeNonBlank(ByteBuf buf, String value, boolean escapeNewLine) {
+        if (value == null || value.length() == 0) {
+            buf.writeByte(BLANK);
+        } else {
+            writeUtf8(buf, value, escapeNewLine);
+        }
+    }
+
+    /**
+     * 逐字符编码为UTF-8，需要转义时去掉'\r'，并将'\n'替换为换行占位符
+     */
+    private static void writeUtf8(ByteBuf buf, String value, boolean escapeNewLine) {
+        int length = value.length();
+        buf.ensureWritable(length * 3);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (escapeNewLine && c == '\r') {
+                continue;
+            }
+            if (escapeNewLine && c == '\n') {
+                buf.writeBytes(NEW_LINE_PLACEHOLDER);
+            } else if (c < 0x80) {
+                buf.writeByte(c);
+            } else if (c < 0x800) {
+                buf.writeByte(0xc0 | (c >> 6));
+                buf.writeByte(0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buf.writeByte(0xf0 | (codePoint >> 18));
+                buf.writeByte(0x80 | ((codePoint >> 12) & 0x3f));
+                buf.writeByte(0x80 | ((codePoint >> 6) & 0x3f));
+                buf.writeByte(0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                // 不成对的代理字符，与String.getBytes保持一致，替换为'?'
+                buf.writeByte('?');
+            } else {
+                buf.writeByte(0xe0 | (c >> 12));
+                buf.writeByte(0x80 | ((c >> 6) & 0x3f));
+                buf.writeByte(0x80 | (c & 0x3f));
+            }
+        }
+    }
+
+    private static void writeLong(ByteBuf buf, long value) {
+        if (value == Long.MIN_VALUE) {
+            buf.writeBytes(LONG_MIN_VALUE);
+            return;
+        }
+        if (value < 0) {
+            buf.writeByte('-');
+            value = -value;
+        }
+        long divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        while (divisor > 0) {
+            buf.writeByte((int) ('0' + value / divisor));
+            value %= divisor;
+            divisor /= 10;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.ai.cloud.skywalking.spool;
+
+import static com.ai.cloud.skywalking.conf.Config.Spool.DRAIN_RATE;
+import static com.ai.cloud.skywalking.conf.Config.Spool.DRAIN_WAIT_INTERVAL;
+import static com.ai.cloud.skywalking.conf.Config.Spool.MAX_SIZE;
+import static com.ai.cloud.skywalking.conf.Config.Spool.SEGMENT_SIZE;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.ai.cloud.io.netty.buffer.ByteBuf;
+import com.ai.cloud.io.netty.buffer.PooledByteBufAllocator;
+import com.ai.cloud.skywalking.conf.Config;
+import com.ai.cloud.skywalking.selfexamination.HeathReading;
+import com.ai.cloud.skywalking.selfexamination.SDKHealthCollector;
+import com.ai.cloud.skywalking.sender.DataSenderFactoryWithBalance;
+import com.ai.cloud.skywalking.sender.IDataSender;
+import com.ai.cloud.skywalking.util.BuriedPointMachineUtil;
+import com.ai.cloud.skywalking.util.StringUtil;
+
+/**
+ * 磁盘缓存，没有可用的Sender时，消费线程将数据写入内存映射的缓存文件<br/>
+ * 缓存文件总大小超过MAX_SIZE时，删除最早的缓存文件；Sender恢复之后，由重发线程按DRAIN_RATE限速重发<br/>
+ * 缓存目录按进程号区分，进程重启之后不再重发上次的缓存数据
+ */
+public final class DiskSpool {
+    private static Logger logger = LogManager.getLogger(DiskSpool.class);
+
+    private static final Object LOCK = new Object();
+    private static final LinkedList<SpoolSegment> SEGMENTS = new LinkedList<SpoolSegment>();
+
+    private static final AtomicLong spooledBatchCount = new AtomicLong();
+    private static final AtomicLong evictedSegmentCount = new AtomicLong();
+    private static final AtomicLong drainedBatchCount = new AtomicLong();
+
+    private static File directory;
+    private static long segmentSequence = 0;
+    private static volatile boolean started = false;
+
+    private DiskSpool() {
+        // Non
+    }
+
+    /**
+     * 写入缓存，第一次写入时启动重发线程
+     *
+     * @param data
+     * @return 是否写入成功
+     */
+    public static boolean append(ByteBuf data) {
+        if (data.readableBytes() + 4 > SEGMENT_SIZE) {
+            return false;
+        }
+        synchronized (LOCK) {
+            try {
+                if (!started) {
+                    start();
+                }
+                SpoolSegment segment = SEGMENTS.peekLast();
+                if (segment == null || !segment.append(data)) {
+                    segment = newSegment();
+                    segment.append(data);
+                }
+                spooledBatchCount.incrementAndGet();
+                return true;
+            } catch (IOException e) {
+                logger.error("Failed to append data to spool.", e);
+                SDKHealthCollector.getCurrentHeathReading("DiskSpool").updateData(HeathReading.ERROR,
+                        "append data to spool failed: " + e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    public static long getSpooledBatchCount() {
+        return spooledBatchCount.get();
+    }
+
+    public static long getEvictedSegmentCount() {
+        return evictedSegmentCount.get();
+    }
+
+    public static long getDrainedBatchCount() {
+        return drainedBatchCount.get();
+    }
+
+    private static void start() throws IOException {
+        String parent = StringUtil.isEmpty(Config.Spool.DIRECTORY) ?
+                new File(System.getProperty("java.io.tmpdir"), "skywalking-spool").getPath() : Config.Spool.DIRECTORY;
+        directory = new File(parent, BuriedPointMachineUtil.getProcessNo());
+        if (directory.exists()) {
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+        } else if (!directory.mkdirs()) {
+            throw new IOException("Failed to create spool directory " + directory);
+        }
+        new SpoolDrainer().start();
+        started = true;
+    }
+
+    private static SpoolSegment newSegment() throws IOException {
+        int maxSegmentSize = (int) Math.max(1, MAX_SIZE / SEGMENT_SIZE);
+        while (SEGMENTS.size() >= maxSegmentSize) {
+            // 删除最早的缓存文件
+            SEGMENTS.removeFirst().delete();
+            evictedSegmentCount.incrementAndGet();
+            SDKHealthCollector.getCurrentHeathReading("DiskSpool").updateData(HeathReading.WARNING,
+                    "spool is full, the oldest segment been evicted.");
+        }
+        SpoolSegment segment = new SpoolSegment(new File(directory, (segmentSequence++) + ".spool"), SEGMENT_SIZE);
+        SEGMENTS.addLast(segment);
+        return segment;
+    }
+
+    /**
+     * 读取最早的一条缓存数据，不移除
+     *
+     * @param target
+     * @return 数据所在的缓存文件，没有缓存数据时返回null
+     */
+    private static SpoolSegment peek(ByteBuf target) {
+        synchronized (LOCK) {
+            while (!SEGMENTS.isEmpty()) {
+                SpoolSegment segment = SEGMENTS.peekFirst();
+                if (segment.peek(target)) {
+                    return segment;
+                }
+                if (SEGMENTS.size() == 1) {
+                    // 仍在写入的缓存文件，保留
+                    return null;
+                }
+                SEGMENTS.removeFirst().delete();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 移除已重发的缓存数据，期间缓存文件可能已被淘汰，此时不做处理
+     *
+     * @param segment
+     */
+    private static void commit(SpoolSegment segment) {
+        synchronized (LOCK) {
+            if (SEGMENTS.peekFirst() == segment) {
+                segment.commit();
+            }
+        }
+    }
+
+    static class SpoolDrainer extends Thread {
+        SpoolDrainer() {
+            super("SpoolDrainer");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long sendInterval = 1000L / Math.max(1, DRAIN_RATE);
+            while (true) {
+                long waitTime = sendInterval;
+                ByteBuf data = null;
+                try {
+                    if (!DataSenderFactoryWithBalance.hasReadySender()) {
+                        waitTime = DRAIN_WAIT_INTERVAL;
+                    } else {
+                        data = PooledByteBufAllocator.DEFAULT.directBuffer(Config.Sender.MAX_SEND_LENGTH);
+                        SpoolSegment segment = peek(data);
+                        if (segment == null) {
+                            waitTime = DRAIN_WAIT_INTERVAL;
+                        } else {
+                            IDataSender sender = DataSenderFactoryWithBalance.tryGetSender();
+                            if (sender != null && sender.send(data)) {
+                                commit(segment);
+                                drainedBatchCount.incrementAndGet();
+                                SDKHealthCollector.getCurrentHeathReading("SpoolDrainer").updateData(HeathReading.INFO,
+                                        "spooled batches:" + spooledBatchCount.get() + ", drained batches:"
+                                                + drainedBatchCount.get() + ", evicted segments:" + evictedSegmentCount.get());
+                            }
+                        }
+                    }
+                } catch (Throwable e) {
+                    logger.error("SpoolDrainer running failed.", e);
+                } finally {
+                    if (data != null) {
+                        data.release();
+                    }
+                }
+
+                try {
+                    Thread.sleep(waitTime);
+                } catch (InterruptedException e) {
+                    logger.warn("sleep error.", e);
+                }
+            }
+        }
+    }
+}
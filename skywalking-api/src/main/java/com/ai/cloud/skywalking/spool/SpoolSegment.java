@@ -0,0 +1,99 @@
+package com.ai.cloud.skywalking.spool;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.ai.cloud.io.netty.buffer.ByteBuf;
+import com.ai.cloud.io.netty.util.internal.PlatformDependent;
+
+/**
+ * 内存映射的缓存文件<br/>
+ * 文件由多条记录组成，每条记录为4位长度 + 数据<br/>
+ * 非线程安全，由{@link DiskSpool}加锁访问
+ */
+class SpoolSegment {
+    private static final int RECORD_HEADER_LENGTH = 4;
+
+    private final File file;
+    private final int capacity;
+    private MappedByteBuffer buffer;
+    private int writePosition = 0;
+    private int readPosition = 0;
+
+    SpoolSegment(File file, int capacity) throws IOException {
+        this.file = file;
+        this.capacity = capacity;
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } finally {
+            // 映射建立之后，关闭文件不影响映射
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * @return 是否写入，剩余空间不足时返回false
+     */
+    boolean append(ByteBuf data) {
+        int length = data.readableBytes();
+        if (writePosition + RECORD_HEADER_LENGTH + length > capacity) {
+            return false;
+        }
+        data.getBytes(data.readerIndex(), duplicateAt(writePosition + RECORD_HEADER_LENGTH, length));
+        buffer.putInt(writePosition, length);
+        writePosition += RECORD_HEADER_LENGTH + length;
+        return true;
+    }
+
+    /**
+     * 读取下一条记录，不移动读取位置
+     *
+     * @param target
+     * @return 是否有可读取的记录
+     */
+    boolean peek(ByteBuf target) {
+        if (readPosition >= writePosition) {
+            return false;
+        }
+        int length = buffer.getInt(readPosition);
+        target.writeBytes(duplicateAt(readPosition + RECORD_HEADER_LENGTH, length));
+        return true;
+    }
+
+    /**
+     * 跳过已读取的记录
+     */
+    void commit() {
+        if (readPosition >= writePosition) {
+            return;
+        }
+        readPosition += RECORD_HEADER_LENGTH + buffer.getInt(readPosition);
+    }
+
+    boolean isFullyRead() {
+        return readPosition >= writePosition;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    void delete() {
+        PlatformDependent.freeDirectBuffer(buffer);
+        buffer = null;
+        file.delete();
+    }
+
+    private ByteBuffer duplicateAt(int position, int length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(position);
+        duplicate.limit(position + length);
+        return duplicate;
+    }
+}
@@ -0,0 +1,60 @@
+package com.ai.cloud.skywalking.util;
+
+import static com.ai.cloud.skywalking.conf.Config.BuriedPoint.CACHED_CLOCK_ENABLE;
+import static com.ai.cloud.skywalking.conf.Config.BuriedPoint.CACHED_CLOCK_INTERVAL;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * 由后台线程定时更新的毫秒时钟，精度为CACHED_CLOCK_INTERVAL<br/>
+ * 只用于Span的开始时间，耗时由System.nanoTime()计算。未开启时直接返回System.currentTimeMillis()
+ */
+public final class CachedClock {
+    private static Logger logger = LogManager.getLogger(CachedClock.class);
+
+    private static volatile long now = System.currentTimeMillis();
+    private static volatile boolean started = false;
+
+    private CachedClock() {
+        // Non
+    }
+
+    public static long currentTimeMillis() {
+        if (!CACHED_CLOCK_ENABLE) {
+            return System.currentTimeMillis();
+        }
+        if (!started) {
+            start();
+        }
+        return now;
+    }
+
+    private static synchronized void start() {
+        if (started) {
+            return;
+        }
+        now = System.currentTimeMillis();
+        new Ticker().start();
+        started = true;
+    }
+
+    static class Ticker extends Thread {
+        Ticker() {
+            super("CachedClockTicker");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                now = System.currentTimeMillis();
+                try {
+                    Thread.sleep(CACHED_CLOCK_INTERVAL);
+                } catch (InterruptedException e) {
+                    logger.warn("sleep error.", e);
+                }
+            }
+        }
+    }
+}
@@ -5,67 +5,115 @@ import com.ai.cloud.skywalking.context.Context;
 import com.ai.cloud.skywalking.model.ContextData;
 import com.ai.cloud.skywalking.model.Identification;
 import com.ai.cloud.skywalking.protocol.Span;
+import com.ai.cloud.skywalking.protocol.TraceId;
+import com.ai.cloud.skywalking.recycler.SpanRecycler;
+import com.ai.cloud.skywalking.sampler.Sampling;
 
 public final class ContextGenerator {
     /**
-     * 利用本地ThreadLocal的信息创建Context，主要用于非跨JVM的操作
+     * 利用本地ThreadLocal的信息创建Context，主要用于非跨JVM的操作<br/>
+     * 调用链未被采样时，不创建Span，只在上下文中压入未被采样的栈帧，并返回null；
+     * 超过最大深度时同样返回null，此时应使用{@link Context#getLastContextData()}
      *
      * @param id 视点，业务数据等信息
      * @return
      */
     public static Span generateSpanFromThreadLocal(Identification id) {
-        Span spanData = getSpanFromThreadLocal();
+        if (Context.isFull()) {
+            // 超过最大深度，不创建Span
+            Context.appendOverflow();
+            return null;
+        }
+        Span spanData = getSpanFromThreadLocal(id);
+        if (spanData == null) {
+            return null;
+        }
         initNewSpanData(spanData, id);
         return spanData;
     }
 
     /**
      * 利用传入的Context对象，来构建相对应的Context信息，主要用于跨JVM的操作信息
-     * 跨JVM会产生两条记录。
+     * 跨JVM会产生两条记录。<br/>
+     * 上游未被采样，或新建的调用链未被采样时，不创建Span，只在上下文中压入未被采样的栈帧，并返回null
      *
      * @param context
      * @return
      */
     public static Span generateSpanFromContextData(ContextData context, Identification id) {
+        if (Context.isFull()) {
+            Context.appendOverflow();
+            return null;
+        }
         Span spanData;
         // 校验传入的参数是否为空，如果为空，则新创建一个
         if (context == null || StringUtil.isEmpty(context.getTraceId())) {
             // 不存在，新创建一个Context
-            spanData = new Span(TraceIdGenerator.generate(), Config.SkyWalking.APPLICATION_CODE, Config.SkyWalking.USER_ID);
+            spanData = newRootSpan(id);
+            if (spanData == null) {
+                return null;
+            }
+        } else if (!context.isSampled()) {
+            // 遵循上游的采样结果
+            Context.appendUnsampled(context);
+            return null;
         } else {
             // 如果不为空，则将当前的Context存放到上下文
-            spanData = new Span(context.getTraceId(), context.getParentLevel(), context.getLevelId(), Config.SkyWalking.APPLICATION_CODE, Config.SkyWalking.USER_ID);
+            spanData = SpanRecycler.newSpan(context.getTraceId(), context.getParentLevel(), context.getLevelId(), Config.SkyWalking.APPLICATION_CODE, Config.SkyWalking.USER_ID);
         }
         initNewSpanData(spanData, id);
 
         return spanData;
     }
 
-    private static void initNewSpanData(Span spanData, Identification id) {
+    public static void initNewSpanData(Span spanData, Identification id) {
         spanData.setSpanType(id.getSpanType());
         spanData.setViewPointId(id.getViewPoint());
         spanData.setBusinessKey(id.getBusinessKey());
         //FIX Add Call Type field
         spanData.setCallType(id.getCallType());
         // 设置基本信息
-        spanData.setStartDate(System.currentTimeMillis());
+        spanData.setStartDate(CachedClock.currentTimeMillis());
+        // 耗时由System.nanoTime()计算，不受时钟精度和时钟调整的影响
+        spanData.setStartNanoTime(System.nanoTime());
         spanData.setProcessNo(BuriedPointMachineUtil.getProcessNo());
         spanData.setAddress(BuriedPointMachineUtil.getHostDesc());
     }
 
-    private static Span getSpanFromThreadLocal() {
+    /**
+     * 创建调用链的第一个Span，未被采样时压入未被采样的栈帧，并返回null
+     *
+     * @param id
+     * @return
+     */
+    private static Span newRootSpan(Identification id) {
+        TraceId traceId = TraceIdGenerator.generateTraceId();
+        if (!Sampling.isSampled(id)) {
+            Context.appendUnsampled(ContextData.newUnsampledContextData(traceId));
+            return null;
+        }
+        return SpanRecycler.newSpan(traceId, Config.SkyWalking.APPLICATION_CODE, Config.SkyWalking.USER_ID);
+    }
+
+    private static Span getSpanFromThreadLocal(Identification id) {
         Span span;
         // 1.获取Context，从ThreadLocal栈中获取中
         final Span parentSpan = Context.getLastSpan();
         // 2 校验Context，Context是否存在
         if (parentSpan == null) {
+            ContextData unsampledContextData = Context.getLastUnsampledContextData();
+            if (unsampledContextData != null) {
+                // 所在的调用链未被采样
+                Context.appendUnsampled(unsampledContextData);
+                return null;
+            }
             // 不存在，新创建一个Context
-            span = new Span(TraceIdGenerator.generate(), Config.SkyWalking.APPLICATION_CODE, Config.SkyWalking.USER_ID);
+            span = newRootSpan(id);
         } else {
             // 根据ParentContextData的TraceId和RPCID
             // LevelId是由SpanNode类的nextSubSpanLevelId字段进行初始化的.
             // 所以在这里不需要初始化
-            span = new Span(parentSpan.getTraceId(), Config.SkyWalking.APPLICATION_CODE, Config.SkyWalking.USER_ID);
+            span = SpanRecycler.newChildSpan(parentSpan, Config.SkyWalking.APPLICATION_CODE, Config.SkyWalking.USER_ID);
             if (!StringUtil.isEmpty(parentSpan.getParentLevel())) {
                 span.setParentLevel(parentSpan.getParentLevel() + "." + parentSpan.getLevelId());
             } else {
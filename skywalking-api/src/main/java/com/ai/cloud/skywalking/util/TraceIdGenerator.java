@@ -3,15 +3,35 @@ package com.ai.cloud.skywalking.util;
 import java.util.UUID;
 
 import com.ai.cloud.skywalking.conf.Constants;
+import com.ai.cloud.skywalking.protocol.TraceId;
 
 public final class TraceIdGenerator {
 	private static final ThreadLocal<Integer> ThreadTraceIdSequence = new ThreadLocal<Integer>();
 
+	private static final ThreadLocal<ThreadSequence> THREAD_SEQUENCE = new ThreadLocal<ThreadSequence>() {
+		@Override
+		protected ThreadSequence initialValue() {
+			return new ThreadSequence(Thread.currentThread().getId());
+		}
+	};
+
 	private static final String PROCESS_UUID;
 
+	/**
+	 * 进程随机号（UUID后7位，即28位）的数值形式
+	 */
+	private static final int PROCESS_RANDOM;
+
+	/**
+	 * TraceId中进程内不变的片段：.进程随机号.进程号.
+	 */
+	private static final String PROCESS_SEGMENT;
+
 	static {
 		String uuid = UUID.randomUUID().toString().replaceAll("-", "");
 		PROCESS_UUID = uuid.substring(uuid.length() - 7);
+		PROCESS_RANDOM = Integer.parseInt(PROCESS_UUID, 16);
+		PROCESS_SEGMENT = "." + PROCESS_UUID + "." + BuriedPointMachineUtil.getProcessNo() + ".";
 	}
 
 	private TraceIdGenerator() {
@@ -41,4 +61,25 @@ public final class TraceIdGenerator {
 				+ "." + Thread.currentThread().getId() 
 				+ "." + seq;
 	}
+
+	/**
+	 * 生成定长128位的TraceId，字符串形式与{@link #generate()}的格式一致，在首次使用时才生成<br/>
+	 * 线程内序号为36位，不再每10000次重置，唯一性不再依赖于毫秒数
+	 *
+	 * @return
+	 */
+	public static TraceId generateTraceId() {
+		ThreadSequence sequence = THREAD_SEQUENCE.get();
+		return new TraceId(Constants.SDK_VERSION, PROCESS_SEGMENT, System.currentTimeMillis(),
+				sequence.threadId, PROCESS_RANDOM, ++sequence.value);
+	}
+
+	private static class ThreadSequence {
+		private final long threadId;
+		private long value;
+
+		private ThreadSequence(long threadId) {
+			this.threadId = threadId;
+		}
+	}
 }
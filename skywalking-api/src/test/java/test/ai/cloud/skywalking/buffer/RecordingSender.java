@@ -0,0 +1,49 @@
+package test.ai.cloud.skywalking.buffer;
+
+import java.nio.charset.Charset;
+
+import com.ai.cloud.io.netty.buffer.ByteBuf;
+import com.ai.cloud.skywalking.conf.Constants;
+import com.ai.cloud.skywalking.sender.IDataSender;
+
+/**
+ * 记录发送的数据，不连接服务端，需在发送类初始化之前设置为Config.Sender.CLASS_NAME
+ */
+public class RecordingSender implements IDataSender {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final StringBuilder SENT = new StringBuilder();
+
+    @Override
+    public boolean send(ByteBuf data) {
+        synchronized (SENT) {
+            SENT.append(data.toString(data.readerIndex(), data.readableBytes(), UTF_8));
+            SENT.notifyAll();
+        }
+        return true;
+    }
+
+    static boolean waitFor(String content, long timeout) throws InterruptedException {
+        return waitForRecord(content, timeout) != null;
+    }
+
+    /**
+     * @return 包含content的第一条记录，超时返回null
+     */
+    static String waitForRecord(String content, long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        synchronized (SENT) {
+            int index;
+            while ((index = SENT.indexOf(content)) < 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return null;
+                }
+                SENT.wait(remaining);
+            }
+            int start = SENT.lastIndexOf(Constants.DATA_SPILT, index);
+            start = start < 0 ? 0 : start + Constants.DATA_SPILT.length();
+            int end = SENT.indexOf(Constants.DATA_SPILT, index);
+            return SENT.substring(start, end < 0 ? SENT.length() : end);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package test.ai.cloud.skywalking.buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.ai.cloud.skywalking.buffer.SpanAggregator;
+import com.ai.cloud.skywalking.conf.Config;
+import com.ai.cloud.skywalking.protocol.Span;
+import com.ai.cloud.skywalking.protocol.SpanData;
+import com.ai.cloud.skywalking.protocol.ViewPointMetric;
+
+public class SpanAggregatorTest {
+    private static final String TRACE_ID = "1.0a2.1449124442153.c3f9e44.8104.1.1";
+    private static final long MINUTE = 60 * 1000L;
+    private static final long WAIT_TIME = 3000L;
+
+    private static final int MAX_VIEW_POINTS = Config.Aggregation.MAX_VIEW_POINTS;
+    private static final long FLUSH_INTERVAL = Config.Aggregation.FLUSH_INTERVAL;
+
+    @BeforeClass
+    public static void setUpSender() {
+        // 统计结果交给RecordingSender，不连接服务端
+        Config.Sender.CLASS_NAME = RecordingSender.class.getName();
+        Config.Aggregation.FLUSH_INTERVAL = 20L;
+    }
+
+    @AfterClass
+    public static void restoreConfig() {
+        Config.Aggregation.MAX_VIEW_POINTS = MAX_VIEW_POINTS;
+        Config.Aggregation.FLUSH_INTERVAL = FLUSH_INTERVAL;
+    }
+
+    @Test
+    public void testMinuteRollover() throws InterruptedException {
+        long minute = currentMinute();
+        // 每分钟的第一个Span作为样例完整发送
+        assertFalse(SpanAggregator.aggregate(newSpan("rollover", minute, false)));
+        assertTrue(SpanAggregator.aggregate(newSpan("rollover", minute, false)));
+        assertTrue(SpanAggregator.aggregate(newSpan("rollover", minute, false)));
+
+        assertFalse(SpanAggregator.aggregate(newSpan("rollover", minute + MINUTE, false)));
+        assertTrue(SpanAggregator.aggregate(newSpan("rollover", minute + MINUTE, false)));
+        // 已被替换的分钟不再聚合
+        assertFalse(SpanAggregator.aggregate(newSpan("rollover", minute, false)));
+
+        ViewPointMetric metric = waitForMetric("rollover", minute);
+        assertEquals(2, metric.getCount());
+        assertEquals(2 * 1000L, metric.getTotalCostMicros());
+    }
+
+    @Test
+    public void testNeverFolded() {
+        long minute = currentMinute();
+        assertFalse(SpanAggregator.aggregate(newSpan("never-folded", minute, false)));
+
+        Span failed = newSpan("never-folded", minute, false);
+        failed.setExceptionStack("java.lang.IllegalStateException");
+        assertFalse(SpanAggregator.aggregate(failed));
+        // 重复的异常只携带指纹，也需要完整发送
+        Span repeated = newSpan("never-folded", minute, false);
+        repeated.handleRepeatedException(new IllegalStateException(), Collections.<String>emptySet(), "fingerprint", 2);
+        assertFalse(SpanAggregator.aggregate(repeated));
+        Span slow = newSpan("never-folded", minute, false);
+        slow.setCostMicros(Config.Aggregation.COST_THRESHOLD * 1000);
+        assertFalse(SpanAggregator.aggregate(slow));
+
+        assertTrue(SpanAggregator.aggregate(newSpan("never-folded", minute, false)));
+    }
+
+    @Test
+    public void testViewPointLimit() throws InterruptedException {
+        long minute = currentMinute();
+        Config.Aggregation.MAX_VIEW_POINTS = 1;
+        assertFalse(SpanAggregator.aggregate(newSpan("limit-kept", minute, true)));
+        assertTrue(SpanAggregator.aggregate(newSpan("limit-kept", minute, true)));
+        // 超过视点数量的新视点完整发送
+        assertFalse(SpanAggregator.aggregate(newSpan("limit-rejected", minute, true)));
+        assertFalse(SpanAggregator.aggregate(newSpan("limit-rejected", minute, true)));
+
+        // 一分钟以上没有Span的视点被移出，腾出位置
+        Config.Aggregation.MAX_VIEW_POINTS = 2;
+        long idleMinute = minute - 10 * MINUTE;
+        assertFalse(SpanAggregator.aggregate(newSpan("limit-idle", idleMinute, true)));
+        SpanAggregator.aggregate(newSpan("limit-idle", idleMinute, true));
+        assertEquals(1, waitForMetric("limit-idle", idleMinute).getCount());
+
+        assertFalse(SpanAggregator.aggregate(newSpan("limit-new", minute, true)));
+        assertTrue(SpanAggregator.aggregate(newSpan("limit-new", minute, true)));
+    }
+
+    private static long currentMinute() {
+        long now = System.currentTimeMillis();
+        return now - now % MINUTE;
+    }
+
+    private ViewPointMetric waitForMetric(String viewPointId, long minute) throws InterruptedException {
+        String record = RecordingSender.waitForRecord(ViewPointMetric.METRIC_FLAG + SpanData.SPAN_FIELD_SEPARATOR
+                + minute + SpanData.SPAN_FIELD_SEPARATOR + "app" + SpanData.SPAN_FIELD_SEPARATOR + "user"
+                + SpanData.SPAN_FIELD_SEPARATOR + viewPointId + SpanData.SPAN_FIELD_SEPARATOR, WAIT_TIME);
+        assertNotNull(record);
+        return new ViewPointMetric(record);
+    }
+
+    private Span newSpan(String viewPointId, long minute, boolean isReceiver) {
+        Span span = new Span(TRACE_ID, "", 0, "app", "user");
+        span.setViewPointId(viewPointId);
+        span.setSpanType("M");
+        span.setReceiver(isReceiver);
+        span.setStartDate(minute + 1000L);
+        span.setCostMicros(1000L);
+        return span;
+    }
+}
@@ -0,0 +1,156 @@
+package test.ai.cloud.skywalking.buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.ai.cloud.skywalking.buffer.TraceSegmentBuffer;
+import com.ai.cloud.skywalking.conf.Config;
+import com.ai.cloud.skywalking.context.Context;
+import com.ai.cloud.skywalking.protocol.Span;
+import com.ai.cloud.skywalking.sampler.ProbabilisticSampler;
+import com.ai.cloud.skywalking.selfexamination.SDKMetrics;
+
+public class TraceSegmentBufferTest {
+    private static final String TRACE_ID = "1.0a2.1449124442153.c3f9e44.8104.1.1";
+    private static final long WAIT_TIME = 3000L;
+    // 确认数据没有发送时的等待时间
+    private static final long ABSENT_WAIT_TIME = 300L;
+
+    private static final int KEEP_RATE = Config.TailSampling.KEEP_RATE;
+    private static final long MAX_HOLD_TIME = Config.TailSampling.MAX_HOLD_TIME;
+    private static final int MAX_SEGMENT_SIZE = Config.TailSampling.MAX_SEGMENT_SIZE;
+
+    @BeforeClass
+    public static void setUpSender() {
+        // 发送的数据交给RecordingSender，不连接服务端
+        Config.Sender.CLASS_NAME = RecordingSender.class.getName();
+        Config.Aggregation.ENABLE = false;
+        Config.TailSampling.ENABLE = true;
+        Config.TailSampling.CHECK_INTERVAL = 10L;
+    }
+
+    @AfterClass
+    public static void tearDownSender() {
+        Config.TailSampling.ENABLE = false;
+    }
+
+    @After
+    public void restoreConfig() {
+        Config.TailSampling.KEEP_RATE = KEEP_RATE;
+        Config.TailSampling.MAX_HOLD_TIME = MAX_HOLD_TIME;
+        Config.TailSampling.MAX_SEGMENT_SIZE = MAX_SEGMENT_SIZE;
+        while (!Context.isEmpty()) {
+            Context.removeLastSpan();
+        }
+    }
+
+    @Test
+    public void testHoldUntilInteresting() throws InterruptedException {
+        Config.TailSampling.KEEP_RATE = 0;
+        Span root = newSpan("", "hold-root");
+        Context.append(root);
+        TraceSegmentBuffer.save(newSpan("0", "hold-child"));
+        assertFalse(RecordingSender.waitFor("hold-child", ABSENT_WAIT_TIME));
+
+        // 有异常堆栈的Span使整个片段被保留
+        Span failed = newSpan("0", "hold-failed");
+        failed.setExceptionStack("java.lang.IllegalStateException");
+        TraceSegmentBuffer.save(failed);
+        assertTrue(RecordingSender.waitFor("hold-child", WAIT_TIME));
+        assertTrue(RecordingSender.waitFor("hold-failed", WAIT_TIME));
+
+        Context.removeLastSpan();
+        TraceSegmentBuffer.save(root);
+        assertTrue(RecordingSender.waitFor("hold-root", WAIT_TIME));
+    }
+
+    @Test
+    public void testDiscard() throws InterruptedException {
+        Config.TailSampling.KEEP_RATE = 0;
+        Span root = newSpan("", "discard-root");
+        Context.append(root);
+        TraceSegmentBuffer.save(newSpan("0", "discard-child"));
+        Context.removeLastSpan();
+
+        long discarded = SDKMetrics.SPANS_TAIL_DISCARDED.value();
+        TraceSegmentBuffer.save(root);
+        assertEquals(discarded + 2, SDKMetrics.SPANS_TAIL_DISCARDED.value());
+        assertFalse(RecordingSender.waitFor("discard-", ABSENT_WAIT_TIME));
+    }
+
+    @Test
+    public void testKeep() throws InterruptedException {
+        Config.TailSampling.KEEP_RATE = ProbabilisticSampler.MAX_RATE;
+        Span root = newSpan("", "keep-root");
+        Context.append(root);
+        TraceSegmentBuffer.save(newSpan("0", "keep-child"));
+        Context.removeLastSpan();
+
+        TraceSegmentBuffer.save(root);
+        assertTrue(RecordingSender.waitFor("keep-child", WAIT_TIME));
+        assertTrue(RecordingSender.waitFor("keep-root", WAIT_TIME));
+    }
+
+    @Test
+    public void testExpire() throws InterruptedException {
+        Config.TailSampling.KEEP_RATE = 0;
+        Config.TailSampling.MAX_HOLD_TIME = 50L;
+        Span root = newSpan("", "expire-root");
+        Context.append(root);
+        TraceSegmentBuffer.save(newSpan("0", "expire-child"));
+        // 超时的片段不再等待根Span结束
+        assertTrue(RecordingSender.waitFor("expire-child", WAIT_TIME));
+
+        // 已发送部分数据的片段，根Span也要发送
+        Context.removeLastSpan();
+        TraceSegmentBuffer.save(root);
+        assertTrue(RecordingSender.waitFor("expire-root", WAIT_TIME));
+    }
+
+    @Test
+    public void testSegmentSizeLimit() throws InterruptedException {
+        Config.TailSampling.KEEP_RATE = 0;
+        Config.TailSampling.MAX_SEGMENT_SIZE = 1;
+        Span root = newSpan("", "oversize-root");
+        Context.append(root);
+        // 超出片段大小的Span直接发送
+        TraceSegmentBuffer.save(newSpan("0", "oversize-child"));
+        assertTrue(RecordingSender.waitFor("oversize-child", WAIT_TIME));
+
+        Context.removeLastSpan();
+        TraceSegmentBuffer.save(root);
+        assertTrue(RecordingSender.waitFor("oversize-root", WAIT_TIME));
+    }
+
+    @Test
+    public void testDetachedSpan() throws InterruptedException {
+        // 异步Span跟随所属调用链的保留决定，异常的Span总是保留
+        Config.TailSampling.KEEP_RATE = 0;
+        long discarded = SDKMetrics.SPANS_TAIL_DISCARDED.value();
+        TraceSegmentBuffer.saveDetached(newSpan("0", "detached-discarded"));
+        assertEquals(discarded + 1, SDKMetrics.SPANS_TAIL_DISCARDED.value());
+        Span failed = newSpan("0", "detached-failed");
+        failed.setExceptionStack("java.lang.IllegalStateException");
+        assertTrue(TraceSegmentBuffer.isKept(failed));
+        TraceSegmentBuffer.saveDetached(failed);
+        assertTrue(RecordingSender.waitFor("detached-failed", WAIT_TIME));
+
+        Config.TailSampling.KEEP_RATE = ProbabilisticSampler.MAX_RATE;
+        TraceSegmentBuffer.saveDetached(newSpan("0", "detached-kept"));
+        assertTrue(RecordingSender.waitFor("detached-kept", WAIT_TIME));
+        assertFalse(RecordingSender.waitFor("detached-discarded", ABSENT_WAIT_TIME));
+    }
+
+    private Span newSpan(String parentLevelId, String viewPointId) {
+        Span span = new Span(TRACE_ID, parentLevelId, 0, "app", "user");
+        span.setViewPointId(viewPointId);
+        span.setSpanType("M");
+        return span;
+    }
+}
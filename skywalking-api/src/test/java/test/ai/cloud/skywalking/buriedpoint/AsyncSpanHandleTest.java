@@ -0,0 +1,60 @@
+package test.ai.cloud.skywalking.buriedpoint;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.ai.cloud.skywalking.buriedpoint.AsyncSpanHandle;
+import com.ai.cloud.skywalking.conf.Config;
+import com.ai.cloud.skywalking.model.ContextData;
+import com.ai.cloud.skywalking.protocol.Span;
+
+public class AsyncSpanHandleTest {
+
+    @Test
+    public void testNoMutationAfterConcurrentFinish() throws Exception {
+        boolean isOff = Config.Sender.IS_OFF;
+        Config.Sender.IS_OFF = true;
+        try {
+            for (int round = 0; round < 200; round++) {
+                Span span = new Span("1.0a2.1449124442153.c3f9e44.8104.1.1", "", 0, "app", "user");
+                final AsyncSpanHandle handle = newHandle(span);
+                final CountDownLatch started = new CountDownLatch(2);
+                final AtomicInteger sequence = new AtomicInteger();
+                Thread[] mutators = new Thread[2];
+                for (int i = 0; i < mutators.length; i++) {
+                    mutators[i] = new Thread() {
+                        @Override
+                        public void run() {
+                            started.countDown();
+                            for (int j = 0; j < 1000; j++) {
+                                handle.setBusinessKey("key-" + sequence.incrementAndGet());
+                            }
+                        }
+                    };
+                    mutators[i].start();
+                }
+                started.await();
+                handle.finish();
+                // finish返回之后Span已交给发送缓存，不应再被修改
+                String businessKeyAtFinish = span.getBusinessKey();
+                for (Thread mutator : mutators) {
+                    mutator.join();
+                }
+                assertEquals(businessKeyAtFinish, span.getBusinessKey());
+            }
+        } finally {
+            Config.Sender.IS_OFF = isOff;
+        }
+    }
+
+    private AsyncSpanHandle newHandle(Span span) throws Exception {
+        Constructor<AsyncSpanHandle> constructor = AsyncSpanHandle.class.getDeclaredConstructor(Span.class, ContextData.class);
+        constructor.setAccessible(true);
+        return constructor.newInstance(span, new ContextData(span));
+    }
+}
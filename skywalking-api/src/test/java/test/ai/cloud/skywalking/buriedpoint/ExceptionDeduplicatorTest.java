@@ -0,0 +1,83 @@
+package test.ai.cloud.skywalking.buriedpoint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ai.cloud.skywalking.buriedpoint.ApplicationExceptionHandler;
+import com.ai.cloud.skywalking.conf.Config;
+import com.ai.cloud.skywalking.context.Context;
+import com.ai.cloud.skywalking.protocol.Span;
+
+public class ExceptionDeduplicatorTest {
+    private boolean dedupEnable;
+    private long dedupWindow;
+
+    @Before
+    public void enableDedup() {
+        dedupEnable = Config.BuriedPoint.EXCEPTION_DEDUP_ENABLE;
+        dedupWindow = Config.BuriedPoint.EXCEPTION_DEDUP_WINDOW;
+        Config.BuriedPoint.EXCEPTION_DEDUP_ENABLE = true;
+    }
+
+    @After
+    public void restoreDedup() {
+        Config.BuriedPoint.EXCEPTION_DEDUP_ENABLE = dedupEnable;
+        Config.BuriedPoint.EXCEPTION_DEDUP_WINDOW = dedupWindow;
+    }
+
+    @Test
+    public void testCountInWindow() {
+        Config.BuriedPoint.EXCEPTION_DEDUP_WINDOW = 60 * 1000L;
+        String fingerprint = null;
+        for (int count = 1; count <= 3; count++) {
+            // 指纹包含所有堆栈帧的行号，同一个异常需要在同一位置创建
+            Span span = handle(new IllegalStateException("counted"));
+            assertEquals(count, span.getExceptionCount());
+            if (count == 1) {
+                assertTrue(span.getExceptionStack().length() > 0);
+                fingerprint = span.getExceptionFingerprint();
+                assertNotNull(fingerprint);
+            } else {
+                // 窗口内重复出现的堆栈只携带指纹和出现次数
+                assertNull(span.getExceptionStack());
+                assertEquals(fingerprint, span.getExceptionFingerprint());
+            }
+        }
+    }
+
+    @Test
+    public void testWindowReset() throws InterruptedException {
+        Config.BuriedPoint.EXCEPTION_DEDUP_WINDOW = 200L;
+        int[] expectedCounts = {1, 2, 1};
+        String fingerprint = null;
+        for (int i = 0; i < expectedCounts.length; i++) {
+            if (i == 2) {
+                Thread.sleep(300L);
+            }
+            Span span = handle(new IllegalArgumentException("reset"));
+            assertEquals(expectedCounts[i], span.getExceptionCount());
+            if (i == 0) {
+                fingerprint = span.getExceptionFingerprint();
+            } else {
+                assertEquals(fingerprint, span.getExceptionFingerprint());
+            }
+        }
+    }
+
+    private Span handle(Throwable th) {
+        Span span = new Span("1.0a2.1449124442153.c3f9e44.8104.1.1", "", 0, "app", "user");
+        Context.append(span);
+        try {
+            new ApplicationExceptionHandler().handleException(th);
+        } finally {
+            Context.removeLastSpan();
+        }
+        return span;
+    }
+}
@@ -0,0 +1,180 @@
+package test.ai.cloud.skywalking.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.ai.cloud.skywalking.concurrent.TracingExecutorService;
+import com.ai.cloud.skywalking.concurrent.TracingScheduledExecutorService;
+import com.ai.cloud.skywalking.conf.AuthDesc;
+import com.ai.cloud.skywalking.conf.Config;
+import com.ai.cloud.skywalking.context.Context;
+import com.ai.cloud.skywalking.protocol.Span;
+
+public class TracingExecutorServiceTest {
+    private static final String TRACE_ID = "1.0a2.1449124442153.c3f9e44.8104.1.1";
+    private static final long WAIT_TIME = 3000L;
+
+    private static boolean isAuth;
+    private static boolean isOff;
+
+    private ScheduledExecutorService executor;
+    private Span root;
+
+    @BeforeClass
+    public static void setUpAuth() throws Exception {
+        // 未授权时不捕获上下文，测试中直接打开；结束的Span不发送
+        isAuth = AuthDesc.isAuth();
+        setAuth(true);
+        isOff = Config.Sender.IS_OFF;
+        Config.Sender.IS_OFF = true;
+    }
+
+    @AfterClass
+    public static void restoreAuth() throws Exception {
+        setAuth(isAuth);
+        Config.Sender.IS_OFF = isOff;
+    }
+
+    @Before
+    public void setUpContext() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        root = new Span(TRACE_ID, "", 0, "app", "user");
+        root.setSpanType("M");
+        Context.append(root);
+    }
+
+    @After
+    public void tearDownContext() {
+        while (!Context.isEmpty()) {
+            Context.removeLastSpan();
+        }
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSubmit() throws Exception {
+        ExecutorService tracingExecutor = TracingExecutorService.wrap(executor);
+        SpanRecorder first = new SpanRecorder();
+        SpanRecorder second = new SpanRecorder();
+        tracingExecutor.submit((Runnable) first).get(WAIT_TIME, TimeUnit.MILLISECONDS);
+        tracingExecutor.submit((Callable<String>) second).get(WAIT_TIME, TimeUnit.MILLISECONDS);
+
+        // 执行线程中的Span为提交时栈顶Span的子节点，使用提交时预留的LevelId
+        assertEquals("0@0", first.level);
+        assertEquals("0@1", second.level);
+        assertWorkerContextEmpty();
+        assertSame(root, Context.getLastSpan());
+    }
+
+    @Test
+    public void testInvokeAll() throws Exception {
+        ExecutorService tracingExecutor = TracingExecutorService.wrap(executor);
+        List<SpanRecorder> tasks = new ArrayList<SpanRecorder>();
+        for (int i = 0; i < 3; i++) {
+            tasks.add(new SpanRecorder());
+        }
+        for (Future<String> future : tracingExecutor.invokeAll(tasks)) {
+            future.get();
+        }
+
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals("0@" + i, tasks.get(i).level);
+        }
+        assertWorkerContextEmpty();
+    }
+
+    @Test
+    public void testSchedule() throws Exception {
+        ScheduledExecutorService tracingExecutor = TracingScheduledExecutorService.wrap(executor);
+        SpanRecorder first = new SpanRecorder();
+        SpanRecorder second = new SpanRecorder();
+        tracingExecutor.schedule((Runnable) first, 10, TimeUnit.MILLISECONDS).get(WAIT_TIME, TimeUnit.MILLISECONDS);
+        tracingExecutor.schedule((Callable<String>) second, 10, TimeUnit.MILLISECONDS).get(WAIT_TIME, TimeUnit.MILLISECONDS);
+
+        assertEquals("0@0", first.level);
+        assertEquals("0@1", second.level);
+        assertWorkerContextEmpty();
+    }
+
+    @Test
+    public void testShutdownNowReturnsOriginalTasks() throws Exception {
+        ExecutorService tracingExecutor = TracingExecutorService.wrap(Executors.newSingleThreadExecutor());
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        tracingExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                running.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        assertTrue(running.await(WAIT_TIME, TimeUnit.MILLISECONDS));
+
+        SpanRecorder queued = new SpanRecorder();
+        tracingExecutor.execute(queued);
+        List<Runnable> tasks = tracingExecutor.shutdownNow();
+        release.countDown();
+        assertEquals(1, tasks.size());
+        assertSame(queued, tasks.get(0));
+        assertTrue(tracingExecutor.awaitTermination(WAIT_TIME, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * 通过未包装的线程池在同一执行线程中检查，任务结束后不残留栈帧
+     */
+    private void assertWorkerContextEmpty() throws Exception {
+        assertTrue(executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return Context.isEmpty();
+            }
+        }).get(WAIT_TIME, TimeUnit.MILLISECONDS));
+    }
+
+    private static void setAuth(boolean auth) throws Exception {
+        Field field = AuthDesc.class.getDeclaredField("isAuth");
+        field.setAccessible(true);
+        field.set(null, auth);
+    }
+
+    /**
+     * 记录执行线程中栈顶Span的ParentLevel与LevelId
+     */
+    static class SpanRecorder implements Runnable, Callable<String> {
+        private volatile String level;
+
+        @Override
+        public void run() {
+            Span span = Context.getLastSpan();
+            level = span.getParentLevel() + "@" + span.getLevelId();
+        }
+
+        @Override
+        public String call() {
+            run();
+            return level;
+        }
+    }
+}
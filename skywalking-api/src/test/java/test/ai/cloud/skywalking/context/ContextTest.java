@@ -0,0 +1,53 @@
+package test.ai.cloud.skywalking.context;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.ai.cloud.skywalking.conf.Config;
+import com.ai.cloud.skywalking.context.Context;
+import com.ai.cloud.skywalking.model.ContextData;
+import com.ai.cloud.skywalking.model.Identification;
+import com.ai.cloud.skywalking.protocol.Span;
+import com.ai.cloud.skywalking.util.ContextGenerator;
+
+public class ContextTest {
+
+    @Test
+    public void testOverflowKeepsDeepestFrame() {
+        int maxContextDepth = Config.BuriedPoint.MAX_CONTEXT_DEPTH;
+        Config.BuriedPoint.MAX_CONTEXT_DEPTH = 2;
+        try {
+            Span root = new Span("1.0a2.1449124442153.c3f9e44.8104.1.1", "", 0, "app", "user");
+            root.setSpanType("M");
+            Span deepest = new Span("1.0a2.1449124442153.c3f9e44.8104.1.1", "0", 0, "app", "user");
+            deepest.setSpanType("M");
+            Context.append(root);
+            Context.append(deepest);
+            assertTrue(Context.isFull());
+
+            // 超过最大深度的埋点不创建Span，下游的上下文挂在最深的Span之下
+            Identification id = Identification.newBuilder().viewPoint("overflow").build();
+            assertNull(ContextGenerator.generateSpanFromThreadLocal(id));
+            assertSame(deepest, Context.getLastSpan());
+            ContextData contextData = Context.getLastContextData();
+            assertEquals("1.0a2.1449124442153.c3f9e44.8104.1.1-0.0-0-M", contextData.toString());
+            assertNull(ContextGenerator.generateSpanFromThreadLocal(id));
+            assertEquals("1.0a2.1449124442153.c3f9e44.8104.1.1-0.0-1-M", Context.getLastContextData().toString());
+
+            // 出栈保持平衡
+            assertNull(Context.removeLastSpan());
+            assertNull(Context.removeLastSpan());
+            assertSame(deepest, Context.removeLastSpan());
+            assertFalse(Context.isFull());
+            assertSame(root, Context.removeLastSpan());
+            assertTrue(Context.isEmpty());
+        } finally {
+            Config.BuriedPoint.MAX_CONTEXT_DEPTH = maxContextDepth;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package test.ai.cloud.skywalking.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.ai.cloud.skywalking.context.Context;
+import com.ai.cloud.skywalking.model.ContextData;
+import com.ai.cloud.skywalking.protocol.Span;
+import com.ai.cloud.skywalking.protocol.TraceId;
+
+public class ContextDataTest {
+
+    @Test
+    public void testSampledKeepsLegacyFormat() {
+        Span span = new Span("1.0a2.1449124442153.c3f9e44.8104.1.1", "0.0", 2, "app", "user");
+        span.setSpanType("M");
+        String contextDataStr = new ContextData(span).toString();
+        assertEquals("1.0a2.1449124442153.c3f9e44.8104.1.1-0.0-2-M", contextDataStr);
+
+        ContextData contextData = new ContextData(contextDataStr);
+        assertTrue(contextData.isSampled());
+        assertEquals(2, contextData.getLevelId());
+    }
+
+    @Test
+    public void testUnsampledDecisionPropagated() {
+        TraceId traceId = new TraceId("1.0a2", ".c3f9e44.8104.", 1449124442153L, 1, 0xc3f9e44, 1);
+        String contextDataStr = ContextData.newUnsampledContextData(traceId).toString();
+
+        ContextData contextData = new ContextData(contextDataStr);
+        assertFalse(contextData.isSampled());
+        assertEquals("1.0a2.1449124442153.c3f9e44.8104.1.1", contextData.getTraceId());
+    }
+
+    @Test
+    public void testChildContextDataReservesLevelId() {
+        Span span = new Span("1.0a2.1449124442153.c3f9e44.8104.1.1", "0", 2, "app", "user");
+        span.setSpanType("M");
+        Context.append(span);
+        try {
+            int levelId = Context.reserveSubSpanLevelId();
+            ContextData contextData = ContextData.newChildContextData(span, levelId);
+            assertEquals("1.0a2.1449124442153.c3f9e44.8104.1.1-0.2-0-M", contextData.toString());
+            // 当前线程后续的子节点不再使用已预留的LevelId
+            assertEquals(1, Context.reserveSubSpanLevelId());
+        } finally {
+            Context.removeLastSpan();
+        }
+        assertEquals(-1, Context.reserveSubSpanLevelId());
+    }
+
+    @Test
+    public void testChildOfRemoteContextData() {
+        ContextData parent = new ContextData("1.0a2.1449124442153.c3f9e44.8104.1.1- -0-W");
+        ContextData child = ContextData.newChildContextData(parent, 3);
+        assertEquals("1.0a2.1449124442153.c3f9e44.8104.1.1-0-3-W", child.toString());
+        assertEquals("1.0a2.1449124442153.c3f9e44.8104.1.1-0.3-1-W",
+                ContextData.newChildContextData(child, 1).toString());
+    }
+}
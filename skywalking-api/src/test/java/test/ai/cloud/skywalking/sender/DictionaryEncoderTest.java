@@ -0,0 +1,160 @@
+package test.ai.cloud.skywalking.sender;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.Charset;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.ai.cloud.io.netty.buffer.ByteBuf;
+import com.ai.cloud.io.netty.buffer.PooledByteBufAllocator;
+import com.ai.cloud.skywalking.protocol.DictionaryDecoder;
+import com.ai.cloud.skywalking.protocol.DictionaryFrame;
+import com.ai.cloud.skywalking.protocol.Span;
+import com.ai.cloud.skywalking.protocol.ViewPointMetric;
+import com.ai.cloud.skywalking.sender.DictionaryEncoder;
+import com.ai.cloud.skywalking.sender.SpanSerializer;
+
+public class DictionaryEncoderTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test
+    public void testEncodeAndDecode() {
+        DictionaryEncoder encoder = new DictionaryEncoder(0, 16, 8);
+        DictionaryDecoder decoder = new DictionaryDecoder(16);
+
+        ByteBuf first = newBatch(3);
+        ByteBuf second = newBatch(3);
+        try {
+            ByteBuf encoded = encoder.encode(first);
+            try {
+                assertEquals(first.toString(UTF_8), new String(decoder.decode(toBytes(encoded), 0), UTF_8));
+            } finally {
+                encoded.release();
+            }
+
+            // 第二批数据中的字符串已在第一批中定义，只发送引用
+            encoded = encoder.encode(second);
+            try {
+                assertTrue(encoded.readableBytes() * 2 < second.readableBytes());
+                assertEquals(second.toString(UTF_8), new String(decoder.decode(toBytes(encoded), 0), UTF_8));
+            } finally {
+                encoded.release();
+            }
+        } finally {
+            first.release();
+            second.release();
+        }
+    }
+
+    @Test
+    public void testEscapeControlCharacter() {
+        DictionaryEncoder encoder = new DictionaryEncoder(0, 16, 8);
+        Span span = new Span("1.0a2.1449124442153.c3f9e44.8104.1.1", "0.0", 2, "app", "user");
+        span.setBusinessKey("\u0001ab");
+        ByteBuf data = PooledByteBufAllocator.DEFAULT.directBuffer(16);
+        SpanSerializer.serialize(span, data);
+        ByteBuf encoded = encoder.encode(data);
+        try {
+            assertEquals(data.toString(UTF_8),
+                    new String(new DictionaryDecoder(16).decode(toBytes(encoded), 0), UTF_8));
+        } finally {
+            data.release();
+            encoded.release();
+        }
+    }
+
+    @Test
+    public void testSaturatedDictionaryStillEncodes() {
+        DictionaryEncoder encoder = new DictionaryEncoder(0, 2, 8);
+        DictionaryDecoder decoder = new DictionaryDecoder(2);
+
+        // 只出现一次的字符串不占用编号
+        for (int i = 0; i < 100; i++) {
+            assertEquals('u', encodeViewPoint(encoder, decoder, "unique-value-" + i));
+        }
+        assertEquals('r', encodeViewPoint(encoder, decoder, "repeated-value"));
+        assertEquals(DictionaryFrame.DEFINITION, encodeViewPoint(encoder, decoder, "repeated-value"));
+        assertEquals(DictionaryFrame.REFERENCE, encodeViewPoint(encoder, decoder, "repeated-value"));
+
+        // 编号用满之后，淘汰最久未使用的编号重新定义
+        encodeViewPoint(encoder, decoder, "another-value");
+        assertEquals(DictionaryFrame.DEFINITION, encodeViewPoint(encoder, decoder, "another-value"));
+        assertEquals(DictionaryFrame.REFERENCE, encodeViewPoint(encoder, decoder, "repeated-value"));
+        encodeViewPoint(encoder, decoder, "new-repeated-value");
+        assertEquals(DictionaryFrame.DEFINITION, encodeViewPoint(encoder, decoder, "new-repeated-value"));
+        assertEquals(DictionaryFrame.REFERENCE, encodeViewPoint(encoder, decoder, "new-repeated-value"));
+        assertEquals(DictionaryFrame.REFERENCE, encodeViewPoint(encoder, decoder, "repeated-value"));
+        assertEquals('a', encodeViewPoint(encoder, decoder, "another-value"));
+    }
+
+    @Test
+    public void testEvictionKeepsDecoderInSync() {
+        DictionaryEncoder encoder = new DictionaryEncoder(0, 8, 8);
+        DictionaryDecoder decoder = new DictionaryDecoder(8);
+        Random random = new Random(0);
+        for (int i = 0; i < 2000; i++) {
+            // encodeViewPoint中校验还原的结果与原文一致
+            encodeViewPoint(encoder, decoder, "view-point-" + random.nextInt(20));
+        }
+    }
+
+    @Test
+    public void testSkipMetricRecord() {
+        DictionaryEncoder encoder = new DictionaryEncoder(0, 16, 8);
+        DictionaryDecoder decoder = new DictionaryDecoder(16);
+        String metric = ViewPointMetric.METRIC_FLAG + "@~24140000@~order-application@~user-000001";
+        for (int i = 0; i < 3; i++) {
+            byte[] encoded = encode(encoder, decoder, metric);
+            assertEquals(metric, new String(encoded, DictionaryFrame.MAGIC_LENGTH,
+                    encoded.length - DictionaryFrame.MAGIC_LENGTH, UTF_8));
+        }
+    }
+
+    /**
+     * @return 编码后视点字段的第一个字节
+     */
+    private byte encodeViewPoint(DictionaryEncoder encoder, DictionaryDecoder decoder, String viewPoint) {
+        byte[] encoded = encode(encoder, decoder, "1.0a2.1449124442153.c3f9e44.8104.1.1@~0@~0@~" + viewPoint);
+        String text = new String(encoded, DictionaryFrame.MAGIC_LENGTH, encoded.length - DictionaryFrame.MAGIC_LENGTH,
+                UTF_8);
+        return (byte) text.split("@~")[3].charAt(0);
+    }
+
+    private byte[] encode(DictionaryEncoder encoder, DictionaryDecoder decoder, String record) {
+        ByteBuf data = PooledByteBufAllocator.DEFAULT.directBuffer(record.length());
+        data.writeBytes(record.getBytes(UTF_8));
+        ByteBuf encoded = encoder.encode(data);
+        try {
+            byte[] bytes = toBytes(encoded);
+            assertEquals(record, new String(decoder.decode(bytes, 0), UTF_8));
+            return bytes;
+        } finally {
+            data.release();
+            encoded.release();
+        }
+    }
+
+    private byte[] toBytes(ByteBuf buf) {
+        byte[] bytes = new byte[buf.readableBytes()];
+        buf.getBytes(buf.readerIndex(), bytes);
+        return bytes;
+    }
+
+    private ByteBuf newBatch(int spanSize) {
+        ByteBuf data = PooledByteBufAllocator.DEFAULT.directBuffer(16);
+        for (int i = 0; i < spanSize; i++) {
+            Span span = new Span("1.0a2.1449124442153.c3f9e44.8104.1." + i, "0.0", i, "order-application", "user-000001");
+            span.setViewPointId("dubbo://10.1.235.197:20880/com.ai.cloud.order.IOrderService.createOrder(java.lang.String)");
+            span.setAddress("order-host-01/10.1.235.197");
+            span.setSpanType("D");
+            span.setCallType("S");
+            span.setBusinessKey("select * from order_info where order_id = ?");
+            span.setProcessNo("8104");
+            SpanSerializer.serialize(span, data);
+        }
+        return data;
+    }
+}
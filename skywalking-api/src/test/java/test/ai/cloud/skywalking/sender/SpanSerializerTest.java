@@ -0,0 +1,74 @@
+package test.ai.cloud.skywalking.sender;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.Charset;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import com.ai.cloud.io.netty.buffer.ByteBuf;
+import com.ai.cloud.io.netty.buffer.PooledByteBufAllocator;
+import com.ai.cloud.skywalking.conf.Constants;
+import com.ai.cloud.skywalking.protocol.Span;
+import com.ai.cloud.skywalking.sender.SpanSerializer;
+
+public class SpanSerializerTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test
+    public void testSameAsToString() {
+        Span span = new Span("1.0a2.1449124442153.c3f9e44.8104.1.1", "0.0", 2, "app", "user");
+        span.setViewPointId("com.ai.cloud.Service.method(java.lang.String)");
+        span.setCost(-12);
+        span.setAddress("host/10.1.1.1");
+        span.setSpanType("M");
+        span.setCallType("L");
+        span.setBusinessKey("订单号:\r\n 123 😀");
+        span.setProcessNo("8104");
+        span.handleException(new IllegalStateException("中文异常"), new HashSet<String>(), 4000);
+        assertSerialized(span);
+    }
+
+    @Test
+    public void testExceptionFingerprint() {
+        Span span = new Span("1.0a2.1449124442153.c3f9e44.8104.1.1", "0.0", 2, "app", "user");
+        span.handleRepeatedException(new IllegalStateException(), new HashSet<String>(), "9f3c2a1b7d", 12);
+        assertSerialized(span);
+
+        Span parsed = new Span(span.toString());
+        assertEquals("9f3c2a1b7d", parsed.getExceptionFingerprint());
+        assertEquals(12, parsed.getExceptionCount());
+        assertEquals(1, parsed.getStatusCode());
+    }
+
+    @Test
+    public void testCostMicros() {
+        Span span = new Span("1.0a2.1449124442153.c3f9e44.8104.1.1", "0.0", 2, "app", "user");
+        span.setCostMicros(1234);
+        assertSerialized(span);
+
+        // 旧版本的接收端只识别毫秒精度的cost
+        Span parsed = new Span(span.toString());
+        assertEquals(1, parsed.getCost());
+        assertEquals(1234, parsed.getCostMicros());
+        assertEquals(0, parsed.getExceptionCount());
+
+        assertEquals(3000, new Span("1.0a2.1449124442153.c3f9e44.8104.1.1@~ @~0@~ @~0@~3").getCostMicros());
+    }
+
+    @Test
+    public void testBlankFields() {
+        assertSerialized(new Span());
+    }
+
+    private void assertSerialized(Span span) {
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.directBuffer(16);
+        try {
+            SpanSerializer.serialize(span, buf);
+            assertEquals(span.toString() + Constants.DATA_SPILT, buf.toString(UTF_8));
+        } finally {
+            buf.release();
+        }
+    }
+}
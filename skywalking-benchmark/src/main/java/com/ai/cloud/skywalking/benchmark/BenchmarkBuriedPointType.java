@@ -0,0 +1,26 @@
+package com.ai.cloud.skywalking.benchmark;
+
+import com.ai.cloud.skywalking.api.IBuriedPointType;
+import com.ai.cloud.skywalking.protocol.CallType;
+
+public class BenchmarkBuriedPointType implements IBuriedPointType {
+    private static final BenchmarkBuriedPointType INSTANCE = new BenchmarkBuriedPointType();
+
+    public static IBuriedPointType instance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public String getTypeName() {
+        return "B";
+    }
+
+    @Override
+    public CallType getCallType() {
+        return CallType.SYNC;
+    }
+
+    private BenchmarkBuriedPointType() {
+        // Non
+    }
+}
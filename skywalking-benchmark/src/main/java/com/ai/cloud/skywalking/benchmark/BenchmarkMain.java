@@ -0,0 +1,31 @@
+package com.ai.cloud.skywalking.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 基准测试入口，在JMH的参数之外，默认将结果以JSON格式写入benchmark-result.json，
+ * 便于与基线结果对比、拒绝每次调用开销的回退<br/>
+ * 执行：java -jar target/benchmarks.jar [JMH参数]，指定-rf或-rff时以指定的参数为准
+ */
+public final class BenchmarkMain {
+    private static final String DEFAULT_RESULT_FILE = "benchmark-result.json";
+
+    private BenchmarkMain() {
+        // Non
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> jmhArgs = new ArrayList<String>(Arrays.asList(args));
+        if (!jmhArgs.contains("-rf")) {
+            jmhArgs.add("-rf");
+            jmhArgs.add("json");
+        }
+        if (!jmhArgs.contains("-rff")) {
+            jmhArgs.add("-rff");
+            jmhArgs.add(DEFAULT_RESULT_FILE);
+        }
+        org.openjdk.jmh.Main.main(jmhArgs.toArray(new String[jmhArgs.size()]));
+    }
+}
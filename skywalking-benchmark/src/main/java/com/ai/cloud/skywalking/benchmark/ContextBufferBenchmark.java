@@ -0,0 +1,62 @@
+package com.ai.cloud.skywalking.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ai.cloud.skywalking.buffer.ContextBuffer;
+import com.ai.cloud.skywalking.protocol.Span;
+import com.ai.cloud.skywalking.recycler.SpanRecycler;
+import com.ai.cloud.skywalking.util.TraceIdGenerator;
+
+/**
+ * 不同生产者线程数下，Span写入Buffer的开销<br/>
+ * 消费线程通过空发送器发送，Buffer写满时的丢弃也计入结果，可结合SDK Health Collector中的spans dropped查看
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContextBufferBenchmark {
+
+    @Benchmark
+    @Threads(1)
+    public void save1Thread() {
+        save();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void save4Threads() {
+        save();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void save16Threads() {
+        save();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void save64Threads() {
+        save();
+    }
+
+    private static void save() {
+        Span span = SpanRecycler.newSpan(TraceIdGenerator.generateTraceId(), "benchmark", "benchmark");
+        span.setViewPointId("com.ai.cloud.skywalking.benchmark.Service.call()");
+        span.setSpanType("B");
+        span.setStartDate(System.currentTimeMillis());
+        span.setCost(1);
+        ContextBuffer.save(span);
+    }
+}
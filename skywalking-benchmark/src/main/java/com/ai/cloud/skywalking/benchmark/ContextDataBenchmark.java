@@ -0,0 +1,49 @@
+package com.ai.cloud.skywalking.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ai.cloud.skywalking.model.ContextData;
+import com.ai.cloud.skywalking.protocol.Span;
+import com.ai.cloud.skywalking.util.TraceIdGenerator;
+
+/**
+ * 跨进程传递的ContextData的编码与解码开销
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ContextDataBenchmark {
+    private Span span;
+    private String contextDataText;
+
+    @Setup
+    public void setup() {
+        span = new Span(TraceIdGenerator.generate(), "0.0", 1, "benchmark", "benchmark");
+        span.setSpanType("B");
+        contextDataText = new ContextData(span).toString();
+    }
+
+    @Benchmark
+    public String encode() {
+        return new ContextData(span).toString();
+    }
+
+    @Benchmark
+    public ContextData decode() {
+        return new ContextData(contextDataText);
+    }
+}
@@ -0,0 +1,57 @@
+package com.ai.cloud.skywalking.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ai.cloud.skywalking.buriedpoint.LocalBuriedPointSender;
+import com.ai.cloud.skywalking.model.Identification;
+
+/**
+ * 本地调用埋点的开销，每次调用包含depth层嵌套的beforeSend/afterSend<br/>
+ * 结果除以depth即为每个埋点的开销
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LocalBuriedPointSenderBenchmark {
+    @Param({"1", "5", "20"})
+    private int depth;
+
+    private LocalBuriedPointSender sender;
+    private Identification[] ids;
+
+    @Setup
+    public void setup() {
+        sender = new LocalBuriedPointSender();
+        ids = new Identification[depth];
+        for (int i = 0; i < depth; i++) {
+            ids[i] = Identification.newBuilder().viewPoint("com.ai.cloud.skywalking.benchmark.Service.call" + i + "()")
+                    .spanType(BenchmarkBuriedPointType.instance()).build();
+        }
+    }
+
+    @Benchmark
+    public void beforeAndAfterSend(Blackhole blackhole) {
+        for (int i = 0; i < depth; i++) {
+            blackhole.consume(sender.beforeSend(ids[i]));
+        }
+        for (int i = 0; i < depth; i++) {
+            sender.afterSend();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.ai.cloud.skywalking.benchmark;
+
+import com.ai.cloud.io.netty.buffer.ByteBuf;
+import com.ai.cloud.skywalking.sender.IDataSender;
+
+/**
+ * 不连接服务端、直接丢弃数据的发送器，基准测试可以离线执行<br/>
+ * 通过sky-walking.auth中的sender.class_name配置
+ */
+public class NoopDataSender implements IDataSender {
+    @Override
+    public boolean send(ByteBuf data) {
+        return true;
+    }
+}
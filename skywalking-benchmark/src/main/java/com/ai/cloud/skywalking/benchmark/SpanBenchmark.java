@@ -0,0 +1,60 @@
+package com.ai.cloud.skywalking.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ai.cloud.skywalking.protocol.Span;
+import com.ai.cloud.skywalking.util.TraceIdGenerator;
+
+/**
+ * Span字符串形式的序列化与反序列化开销
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpanBenchmark {
+    private Span span;
+    private String spanText;
+
+    @Setup
+    public void setup() {
+        span = new Span(TraceIdGenerator.generate(), "0.0", 1, "benchmark", "benchmark");
+        span.setViewPointId("com.ai.cloud.skywalking.benchmark.Service.call(java.lang.String)");
+        span.setStartDate(System.currentTimeMillis());
+        span.setCost(12);
+        span.setAddress("127.0.0.1/benchmark");
+        span.setSpanType("B");
+        span.setCallType("S");
+        span.setBusinessKey("order-20151201-0001");
+        span.setProcessNo("8104");
+        spanText = span.toString();
+    }
+
+    @Benchmark
+    public String encode() {
+        return span.toString();
+    }
+
+    @Benchmark
+    public Span decode() {
+        return new Span(spanText);
+    }
+
+    @Benchmark
+    public Span roundTrip() {
+        return new Span(span.toString());
+    }
+}
@@ -0,0 +1,49 @@
+package com.ai.cloud.skywalking.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ai.cloud.skywalking.protocol.TraceId;
+import com.ai.cloud.skywalking.util.TraceIdGenerator;
+
+/**
+ * 对比原有字符串TraceId与定长TraceId的生成开销<br/>
+ * 执行：java -jar target/benchmarks.jar TraceIdGeneratorBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class TraceIdGeneratorBenchmark {
+
+    @Benchmark
+    public String generate() {
+        return TraceIdGenerator.generate();
+    }
+
+    /**
+     * 只生成定长TraceId，对应Span在序列化时直接写入的场景
+     */
+    @Benchmark
+    public TraceId generateTraceId() {
+        return TraceIdGenerator.generateTraceId();
+    }
+
+    /**
+     * 生成定长TraceId并取字符串形式，对应Tracing.getTraceId()等场景
+     */
+    @Benchmark
+    public String generateTraceIdText() {
+        return TraceIdGenerator.generateTraceId().toString();
+    }
+}
@@ -0,0 +1,85 @@
+package com.ai.cloud.skywalking.protocol;
+
+/**
+ * 应答模式下，采集端与服务端之间的数据帧<br/>
+ * 数据帧：4位魔数(ACKED_BATCH_MAGIC) + 8位序号 + Span数据<br/>
+ * 应答帧：4位魔数(ACK_MAGIC) + 8位序号<br/>
+ * 繁忙帧：4位魔数(BUSY_MAGIC) + 8位0，服务端缓存已满、暂停读取时发送，采集端收到之后不再选择该连接，但保持连接<br/>
+ * 恢复帧：4位魔数(RESUME_MAGIC) + 8位0，服务端暂存的数据全部写入缓存、恢复读取时发送，采集端收到之后重新选择该连接<br/>
+ * 魔数以0开头，与非应答模式下以文本开头的数据帧区分
+ */
+public final class BatchFrame {
+    public static final byte[] ACKED_BATCH_MAGIC = {0, 'S', 'W', 'B'};
+    public static final byte[] ACK_MAGIC = {0, 'S', 'W', 'A'};
+    public static final byte[] BUSY_MAGIC = {0, 'S', 'W', 'F'};
+    public static final byte[] RESUME_MAGIC = {0, 'S', 'W', 'R'};
+
+    public static final int MAGIC_LENGTH = 4;
+    public static final int HEADER_LENGTH = MAGIC_LENGTH + 8;
+
+    private BatchFrame() {
+        // Non
+    }
+
+    public static boolean isAckedBatch(byte[] frame) {
+        return startsWith(frame, ACKED_BATCH_MAGIC);
+    }
+
+    public static boolean isAck(byte[] frame) {
+        return startsWith(frame, ACK_MAGIC);
+    }
+
+    public static boolean isBusy(byte[] frame) {
+        return startsWith(frame, BUSY_MAGIC);
+    }
+
+    public static boolean isResume(byte[] frame) {
+        return startsWith(frame, RESUME_MAGIC);
+    }
+
+    /**
+     * @param frame 数据帧或应答帧
+     * @return 帧头中的序号
+     */
+    public static long getSequence(byte[] frame) {
+        long sequence = 0;
+        for (int i = MAGIC_LENGTH; i < HEADER_LENGTH; i++) {
+            sequence = (sequence << 8) | (frame[i] & 0xFF);
+        }
+        return sequence;
+    }
+
+    public static byte[] newAck(long sequence) {
+        byte[] frame = new byte[HEADER_LENGTH];
+        System.arraycopy(ACK_MAGIC, 0, frame, 0, MAGIC_LENGTH);
+        for (int i = HEADER_LENGTH - 1; i >= MAGIC_LENGTH; i--) {
+            frame[i] = (byte) sequence;
+            sequence >>>= 8;
+        }
+        return frame;
+    }
+
+    public static byte[] newBusy() {
+        byte[] frame = new byte[HEADER_LENGTH];
+        System.arraycopy(BUSY_MAGIC, 0, frame, 0, MAGIC_LENGTH);
+        return frame;
+    }
+
+    public static byte[] newResume() {
+        byte[] frame = new byte[HEADER_LENGTH];
+        System.arraycopy(RESUME_MAGIC, 0, frame, 0, MAGIC_LENGTH);
+        return frame;
+    }
+
+    private static boolean startsWith(byte[] frame, byte[] magic) {
+        if (frame == null || frame.length < HEADER_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC_LENGTH; i++) {
+            if (frame[i] != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
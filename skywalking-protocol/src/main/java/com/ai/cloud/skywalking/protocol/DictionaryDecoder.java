@@ -0,0 +1,93 @@
+package com.ai.cloud.skywalking.protocol;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * 服务端按连接还原{@link DictionaryFrame}，同一连接上的数据帧需按接收顺序解码
+ */
+public class DictionaryDecoder {
+    private final byte[][] entries;
+
+    /**
+     * @param maxSize 允许的最大编号，超过时视为非法数据
+     */
+    public DictionaryDecoder(int maxSize) {
+        this.entries = new byte[maxSize][];
+    }
+
+    /**
+     * @param frame  字典编码的数据帧
+     * @param offset 魔数所在的位置
+     * @return 还原后的Span数据
+     * @throws IllegalStateException 引用了未定义的编号
+     */
+    public byte[] decode(byte[] frame, int offset) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(frame.length * 2);
+        int end = frame.length;
+        int fieldIndex = 0;
+        int fieldStart = offset + DictionaryFrame.MAGIC_LENGTH;
+        int i = fieldStart;
+        while (i < end) {
+            if (startsWith(frame, i, end, DictionaryFrame.FIELD_SEPARATOR)) {
+                decodeField(frame, fieldStart, i, fieldIndex, out);
+                out.write(frame, i, 2);
+                fieldIndex++;
+                i += 2;
+                fieldStart = i;
+            } else if (startsWith(frame, i, end, DictionaryFrame.DATA_SEPARATOR)) {
+                decodeField(frame, fieldStart, i, fieldIndex, out);
+                out.write(frame, i, 2);
+                fieldIndex = 0;
+                i += 2;
+                fieldStart = i;
+            } else {
+                i++;
+            }
+        }
+        decodeField(frame, fieldStart, end, fieldIndex, out);
+        return out.toByteArray();
+    }
+
+    private void decodeField(byte[] frame, int start, int end, int fieldIndex, ByteArrayOutputStream out) {
+        if (start >= end || !DictionaryFrame.isEncodable(fieldIndex) || !DictionaryFrame.isControl(frame[start])) {
+            out.write(frame, start, end - start);
+            return;
+        }
+
+        byte flag = frame[start];
+        if (flag == DictionaryFrame.ESCAPE) {
+            out.write(frame, start + 1, end - start - 1);
+            return;
+        }
+
+        int id = 0;
+        int i = start + 1;
+        while (i < end && frame[i] >= '0' && frame[i] <= '9') {
+            id = id * 10 + (frame[i] - '0');
+            i++;
+        }
+        if (id >= entries.length) {
+            throw new IllegalStateException("Illegal dictionary id " + id);
+        }
+
+        if (flag == DictionaryFrame.DEFINITION) {
+            if (i >= end || frame[i] != DictionaryFrame.DEFINITION_SEPARATOR) {
+                throw new IllegalStateException("Illegal dictionary definition of id " + id);
+            }
+            byte[] value = new byte[end - i - 1];
+            System.arraycopy(frame, i + 1, value, 0, value.length);
+            entries[id] = value;
+            out.write(value, 0, value.length);
+        } else {
+            byte[] value = entries[id];
+            if (value == null) {
+                throw new IllegalStateException("Undefined dictionary id " + id);
+            }
+            out.write(value, 0, value.length);
+        }
+    }
+
+    private static boolean startsWith(byte[] frame, int index, int end, byte[] separator) {
+        return index + 1 < end && frame[index] == separator[0] && frame[index + 1] == separator[1];
+    }
+}
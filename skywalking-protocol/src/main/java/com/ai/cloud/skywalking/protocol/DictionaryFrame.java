@@ -0,0 +1,61 @@
+package com.ai.cloud.skywalking.protocol;
+
+/**
+ * 字典编码的数据帧，采集端为同一连接上重复出现的字符串分配整数编号，定义只发送一次<br/>
+ * 数据帧：4位魔数(DICTIONARY_BATCH_MAGIC) + Span数据，应答模式下位于应答帧头之后<br/>
+ * 只有{@link #isEncodable(int)}的字段会被编码，字段值的形式为：<br/>
+ * 定义：DEFINITION + 编号 + DEFINITION_SEPARATOR + 原文<br/>
+ * 引用：REFERENCE + 编号<br/>
+ * 原文以控制字符开头时，前置ESCAPE
+ */
+public final class DictionaryFrame {
+    public static final byte[] DICTIONARY_BATCH_MAGIC = {0, 'S', 'W', 'D'};
+
+    public static final int MAGIC_LENGTH = 4;
+
+    public static final byte REFERENCE = 0x01;
+    public static final byte DEFINITION = 0x02;
+    public static final byte ESCAPE = 0x03;
+    public static final byte DEFINITION_SEPARATOR = ':';
+
+    public static final byte[] FIELD_SEPARATOR = {'@', '~'};
+    public static final byte[] DATA_SEPARATOR = {'#', '&'};
+
+    /**
+     * 视点、地址、业务字段、进程号、应用编码、用户ID在Span序列化结果中的位置
+     */
+    private static final boolean[] ENCODABLE_FIELDS = new boolean[16];
+
+    static {
+        ENCODABLE_FIELDS[3] = true;
+        ENCODABLE_FIELDS[6] = true;
+        ENCODABLE_FIELDS[11] = true;
+        ENCODABLE_FIELDS[12] = true;
+        ENCODABLE_FIELDS[13] = true;
+        ENCODABLE_FIELDS[14] = true;
+    }
+
+    private DictionaryFrame() {
+        // Non
+    }
+
+    public static boolean isEncodable(int fieldIndex) {
+        return fieldIndex < ENCODABLE_FIELDS.length && ENCODABLE_FIELDS[fieldIndex];
+    }
+
+    public static boolean isDictionaryBatch(byte[] frame, int offset) {
+        if (frame == null || frame.length - offset < MAGIC_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC_LENGTH; i++) {
+            if (frame[offset + i] != DICTIONARY_BATCH_MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean isControl(byte value) {
+        return value == REFERENCE || value == DEFINITION || value == ESCAPE;
+    }
+}
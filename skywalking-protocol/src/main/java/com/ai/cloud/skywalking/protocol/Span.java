@@ -8,7 +8,7 @@ import java.util.logging.Logger;
 
 public class Span extends SpanData {
 
-	private Logger logger = Logger.getLogger(Span.class.getName());
+	private static final Logger logger = Logger.getLogger(Span.class.getName());
 
 	public Span() {
 	}
@@ -91,6 +91,15 @@ public class Span extends SpanData {
 			case 15:
 				callType = fieldValues[15].trim();
 				break;
+			case 16:
+				exceptionFingerprint = fieldValues[16].trim();
+				break;
+			case 17:
+				exceptionCount = Integer.parseInt(fieldValues[17].trim());
+				break;
+			case 18:
+				costMicros = Long.parseLong(fieldValues[18].trim());
+				break;
 			default:
 				return false;
 			}
@@ -104,7 +113,7 @@ public class Span extends SpanData {
 	@Override
 	public String toString() {
 		StringBuilder toStringValue = new StringBuilder();
-		toStringValue.append(traceId + SPAN_FIELD_SEPARATOR);
+		toStringValue.append(getTraceId() + SPAN_FIELD_SEPARATOR);
 
 		if (isNonBlank(parentLevel)) {
 			toStringValue.append(parentLevel + SPAN_FIELD_SEPARATOR);
@@ -178,6 +187,19 @@ public class Span extends SpanData {
 
 		toStringValue.append(callType);
 
+		// 只有带有错误堆栈指纹或微秒耗时时才追加，其余Span保持原有格式
+		if (isNonBlank(exceptionFingerprint) || costMicros > 0) {
+			if (isNonBlank(exceptionFingerprint)) {
+				toStringValue.append(SPAN_FIELD_SEPARATOR + exceptionFingerprint);
+			} else {
+				toStringValue.append(SPAN_FIELD_SEPARATOR + " ");
+			}
+			toStringValue.append(SPAN_FIELD_SEPARATOR + exceptionCount);
+		}
+		if (costMicros > 0) {
+			toStringValue.append(SPAN_FIELD_SEPARATOR + costMicros);
+		}
+
 		return toStringValue.toString();
 	}
 
@@ -220,4 +242,22 @@ public class Span extends SpanData {
 		}
 	}
 
+	/**
+	 * 错误堆栈已在时间窗口内发送过，只记录指纹和出现次数，不再生成堆栈文本
+	 *
+	 * @param e
+	 * @param exclusiveExceptionSet
+	 * @param fingerprint
+	 * @param count
+	 */
+	public void handleRepeatedException(Throwable e, Set<String> exclusiveExceptionSet,
+			String fingerprint, int count) {
+		this.exceptionStack = null;
+		setExceptionFingerprint(fingerprint, count);
+
+		if (!exclusiveExceptionSet.contains(e.getClass().getName())) {
+			this.statusCode = 1;
+		}
+	}
+
 }
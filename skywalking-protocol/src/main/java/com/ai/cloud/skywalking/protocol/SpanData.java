@@ -4,11 +4,11 @@ public abstract class SpanData {
 	/**
 	 * Span在序列中，各字段间的分隔符
 	 */
-    protected static final String SPAN_FIELD_SEPARATOR = "@~";
+    public static final String SPAN_FIELD_SEPARATOR = "@~";
     /**
      * Span在序列化中，新的换行符
      */
-    protected static final String NEW_LINE_PLACEHOLDER = "#~";
+    public static final String NEW_LINE_PLACEHOLDER = "#~";
     /**
      * 字符串中的换行符
      */
@@ -22,6 +22,10 @@ public abstract class SpanData {
      * tid，调用链的全局唯一标识
      */
     protected String traceId;
+    /**
+     * 尚未生成字符串形式的traceId，首次获取traceId时生成
+     */
+    protected TraceId lazyTraceId;
     /**
      * 当前调用链的上级描述<br/>
      * 如当前序号为：0.1.0时，parentLevel=0.1
@@ -42,9 +46,18 @@ public abstract class SpanData {
      */
     protected long startDate = System.currentTimeMillis();
     /**
-     * 节点调用花费时间
+     * 节点调用花费时间(单位:毫秒)
      */
     protected long cost = 0L;
+    /**
+     * 节点调用花费时间(单位:微秒)，由System.nanoTime()计算<br/>
+     * 旧版本的数据中不存在，此时为0，由cost换算
+     */
+    protected long costMicros = 0L;
+    /**
+     * 节点调用开始时的System.nanoTime()，只用于计算耗时，不参与序列化
+     */
+    protected long startNanoTime = 0L;
     /**
      * 节点调用的发生机器描述<br/>
      * 包含机器名 + IP地址
@@ -62,6 +75,15 @@ public abstract class SpanData {
      * 堆栈以JAVA的exception为主要判断依据
      */
     protected String exceptionStack;
+    /**
+     * 错误堆栈的指纹，由异常类型和堆栈帧计算<br/>
+     * 同一指纹在时间窗口内只有第一次携带完整的错误堆栈，之后只携带指纹，由服务端还原
+     */
+    protected String exceptionFingerprint;
+    /**
+     * 错误堆栈指纹在当前时间窗口内的出现次数
+     */
+    protected int exceptionCount = 0;
     /**
      * 节点类型描述<br/>
      * 已字符串的形式描述<br/>
@@ -102,11 +124,60 @@ public abstract class SpanData {
      */
     protected String userId;
 
+    /**
+     * 将所有字段恢复为初始值，用于Span对象的复用
+     */
+    protected void reset() {
+        traceId = null;
+        lazyTraceId = null;
+        parentLevel = null;
+        levelId = 0;
+        viewPointId = "";
+        startDate = System.currentTimeMillis();
+        cost = 0L;
+        costMicros = 0L;
+        startNanoTime = 0L;
+        address = "";
+        statusCode = 0;
+        exceptionStack = null;
+        exceptionFingerprint = null;
+        exceptionCount = 0;
+        spanType = "";
+        callType = "";
+        isReceiver = false;
+        businessKey = "";
+        processNo = "";
+        applicationId = "";
+        originData = "";
+        userId = null;
+    }
 
     public String getTraceId() {
+        if (traceId == null && lazyTraceId != null) {
+            traceId = lazyTraceId.toString();
+        }
         return traceId;
     }
 
+    public TraceId getLazyTraceId() {
+        return lazyTraceId;
+    }
+
+    public void setTraceId(TraceId traceId) {
+        this.lazyTraceId = traceId;
+        this.traceId = null;
+    }
+
+    /**
+     * 使用与parent相同的traceId，parent的traceId尚未生成字符串时，不会因此生成
+     *
+     * @param parent
+     */
+    public void inheritTraceId(SpanData parent) {
+        this.traceId = parent.traceId;
+        this.lazyTraceId = parent.lazyTraceId;
+    }
+
     public String getParentLevel() {
         return parentLevel;
     }
@@ -141,6 +212,46 @@ public abstract class SpanData {
 
     public void setCost(long cost) {
         this.cost = cost;
+        this.costMicros = 0L;
+    }
+
+    /**
+     * 设置微秒精度的花费时间，同时设置毫秒精度的cost，兼容只识别cost的接收端
+     *
+     * @param costMicros
+     */
+    public void setCostMicros(long costMicros) {
+        this.costMicros = costMicros;
+        this.cost = costMicros / 1000;
+    }
+
+    /**
+     * @return 微秒精度的花费时间，旧版本的数据由cost换算
+     */
+    public long getCostMicros() {
+        return costMicros > 0 ? costMicros : cost * 1000;
+    }
+
+    /**
+     * 序列化时使用，旧版本的数据返回0
+     */
+    public long getRawCostMicros() {
+        return costMicros;
+    }
+
+    public long getStartNanoTime() {
+        return startNanoTime;
+    }
+
+    /**
+     * Span结束时调用，按开始时记录的System.nanoTime()计算微秒精度的花费时间
+     */
+    public void markEnd() {
+        setCostMicros((System.nanoTime() - getStartNanoTime()) / 1000);
+    }
+
+    public void setStartNanoTime(long startNanoTime) {
+        this.startNanoTime = startNanoTime;
     }
 
     public void setAddress(String address) {
@@ -195,6 +306,26 @@ public abstract class SpanData {
         this.exceptionStack = exceptionStack;
     }
 
+    /**
+     * @return 是否携带错误堆栈或其指纹，此类Span需完整发送，服务端依赖第一次出现的完整堆栈还原之后的指纹
+     */
+    public boolean hasExceptionStack() {
+        return (exceptionStack != null && exceptionStack.length() > 0) || exceptionFingerprint != null;
+    }
+
+    public String getExceptionFingerprint() {
+        return exceptionFingerprint;
+    }
+
+    public int getExceptionCount() {
+        return exceptionCount;
+    }
+
+    public void setExceptionFingerprint(String exceptionFingerprint, int exceptionCount) {
+        this.exceptionFingerprint = exceptionFingerprint;
+        this.exceptionCount = exceptionCount;
+    }
+
     public String getBusinessKey() {
         return businessKey;
     }
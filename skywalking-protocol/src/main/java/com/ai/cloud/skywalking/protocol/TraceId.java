@@ -0,0 +1,98 @@
+package com.ai.cloud.skywalking.protocol;
+
+/**
+ * 定长128位的TraceId<br/>
+ * high：44位时间戳（毫秒数） + 20位线程号<br/>
+ * low：28位进程随机号 + 36位线程内序号<br/>
+ * 字符串形式在首次使用时才生成，格式与原有TraceId一致：
+ * version.时间戳.进程随机号.进程号.线程号.线程内序号
+ */
+public final class TraceId {
+    public static final int TIMESTAMP_BITS = 44;
+    public static final int THREAD_ID_BITS = 20;
+    public static final int PROCESS_RANDOM_BITS = 28;
+    public static final int SEQUENCE_BITS = 36;
+
+    private static final long THREAD_ID_MASK = (1L << THREAD_ID_BITS) - 1;
+    private static final long TIMESTAMP_MASK = (1L << TIMESTAMP_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long high;
+    private final long low;
+    /**
+     * 版本号，如：1.0a2
+     */
+    private final String version;
+    /**
+     * 进程内固定不变的片段，如：.c3f9e44.8104.
+     */
+    private final String processSegment;
+
+    private String text;
+
+    public TraceId(String version, String processSegment, long timestamp, long threadId,
+                   int processRandom, long sequence) {
+        this.version = version;
+        this.processSegment = processSegment;
+        this.high = (timestamp & TIMESTAMP_MASK) << THREAD_ID_BITS | (threadId & THREAD_ID_MASK);
+        this.low = ((long) processRandom << SEQUENCE_BITS) | (sequence & SEQUENCE_MASK);
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getProcessSegment() {
+        return processSegment;
+    }
+
+    public long getHigh() {
+        return high;
+    }
+
+    public long getLow() {
+        return low;
+    }
+
+    public long getTimestamp() {
+        return high >>> THREAD_ID_BITS;
+    }
+
+    public long getThreadId() {
+        return high & THREAD_ID_MASK;
+    }
+
+    public int getProcessRandom() {
+        return (int) (low >>> SEQUENCE_BITS);
+    }
+
+    public long getSequence() {
+        return low & SEQUENCE_MASK;
+    }
+
+    @Override
+    public String toString() {
+        // 多线程下可能重复生成，结果相同，无需同步
+        String result = text;
+        if (result == null) {
+            result = new StringBuilder(64).append(version).append('.').append(getTimestamp())
+                    .append(processSegment).append(getThreadId()).append('.').append(getSequence()).toString();
+            text = result;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TraceId)) return false;
+
+        TraceId that = (TraceId) o;
+        return high == that.high && low == that.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (high ^ (high >>> 32) ^ low ^ (low >>> 32));
+    }
+}
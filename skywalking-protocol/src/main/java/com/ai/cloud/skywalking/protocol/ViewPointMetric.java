@@ -0,0 +1,179 @@
+package com.ai.cloud.skywalking.protocol;
+
+/**
+ * 采集端按(视点, 分钟)预聚合的快速且成功的Span的统计结果<br/>
+ * 序列化格式：METRIC + 分钟 + 应用 + 用户 + 视点 + Span类型 + 调用类型 + 是否为接收端 + 进程号 + 地址 + 数量 + 总耗时 + 耗时分布，
+ * 字段间以{@link SpanData#SPAN_FIELD_SEPARATOR}分隔，与Span在同一批数据中发送<br/>
+ * 耗时分布按2的幂次分桶(单位:微秒)，第0桶为0微秒，第i桶为[2^(i-1), 2^i)，最后一桶包含更大的值；
+ * 只序列化非0的桶，格式为：桶序号:数量,桶序号:数量
+ */
+public class ViewPointMetric {
+    public static final String METRIC_FLAG = "METRIC";
+    public static final int HISTOGRAM_SIZE = 24;
+
+    private static final String HISTOGRAM_SEPARATOR = ",";
+    private static final String HISTOGRAM_VALUE_SEPARATOR = ":";
+
+    private long minute;
+    private String applicationId = "";
+    private String userId = "";
+    private String viewPointId = "";
+    private String spanType = "";
+    private String callType = "";
+    private boolean isReceiver = false;
+    private String processNo = "";
+    private String address = "";
+    private long count;
+    private long totalCostMicros;
+    private long[] histogram = new long[HISTOGRAM_SIZE];
+
+    public ViewPointMetric(long minute, String applicationId, String userId, String viewPointId, String spanType,
+                           String callType, boolean isReceiver, String processNo, String address) {
+        this.minute = minute;
+        this.applicationId = applicationId;
+        this.userId = userId;
+        this.viewPointId = viewPointId;
+        this.spanType = spanType;
+        this.callType = callType;
+        this.isReceiver = isReceiver;
+        this.processNo = processNo;
+        this.address = address;
+    }
+
+    public ViewPointMetric(String originData) {
+        String[] fieldValues = originData.split(SpanData.SPAN_FIELD_SEPARATOR);
+        if (fieldValues.length != 13 || !METRIC_FLAG.equals(fieldValues[0])) {
+            throw new IllegalArgumentException("illegal view point metric.");
+        }
+        minute = Long.parseLong(fieldValues[1]);
+        applicationId = fieldValues[2].trim();
+        userId = fieldValues[3].trim();
+        viewPointId = fieldValues[4].trim();
+        spanType = fieldValues[5].trim();
+        callType = fieldValues[6].trim();
+        isReceiver = Boolean.valueOf(fieldValues[7]);
+        processNo = fieldValues[8].trim();
+        address = fieldValues[9].trim();
+        count = Long.parseLong(fieldValues[10]);
+        totalCostMicros = Long.parseLong(fieldValues[11]);
+        String histogramValue = fieldValues[12].trim();
+        if (histogramValue.length() > 0) {
+            for (String bucket : histogramValue.split(HISTOGRAM_SEPARATOR)) {
+                int index = bucket.indexOf(HISTOGRAM_VALUE_SEPARATOR);
+                histogram[Integer.parseInt(bucket.substring(0, index))] = Long.parseLong(bucket.substring(index + 1));
+            }
+        }
+    }
+
+    public static boolean isMetric(String data) {
+        return data.startsWith(METRIC_FLAG + SpanData.SPAN_FIELD_SEPARATOR);
+    }
+
+    /**
+     * @param costMicros 耗时(单位:微秒)
+     * @return 耗时所在的桶序号
+     */
+    public static int histogramIndex(long costMicros) {
+        if (costMicros <= 0) {
+            return 0;
+        }
+        return Math.min(64 - Long.numberOfLeadingZeros(costMicros), HISTOGRAM_SIZE - 1);
+    }
+
+    public void record(long count, long totalCostMicros, long[] histogram) {
+        this.count += count;
+        this.totalCostMicros += totalCostMicros;
+        for (int i = 0; i < HISTOGRAM_SIZE; i++) {
+            this.histogram[i] += histogram[i];
+        }
+    }
+
+    public long getMinute() {
+        return minute;
+    }
+
+    public String getApplicationId() {
+        return applicationId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getViewPointId() {
+        return viewPointId;
+    }
+
+    public String getSpanType() {
+        return spanType;
+    }
+
+    public String getCallType() {
+        return callType;
+    }
+
+    public boolean isReceiver() {
+        return isReceiver;
+    }
+
+    public String getProcessNo() {
+        return processNo;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotalCostMicros() {
+        return totalCostMicros;
+    }
+
+    public long[] getHistogram() {
+        return histogram;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder toStringValue = new StringBuilder(128);
+        toStringValue.append(METRIC_FLAG).append(SpanData.SPAN_FIELD_SEPARATOR);
+        toStringValue.append(minute).append(SpanData.SPAN_FIELD_SEPARATOR);
+        appendNonBlank(toStringValue, applicationId);
+        appendNonBlank(toStringValue, userId);
+        appendNonBlank(toStringValue, viewPointId);
+        appendNonBlank(toStringValue, spanType);
+        appendNonBlank(toStringValue, callType);
+        toStringValue.append(isReceiver).append(SpanData.SPAN_FIELD_SEPARATOR);
+        appendNonBlank(toStringValue, processNo);
+        appendNonBlank(toStringValue, address);
+        toStringValue.append(count).append(SpanData.SPAN_FIELD_SEPARATOR);
+        toStringValue.append(totalCostMicros).append(SpanData.SPAN_FIELD_SEPARATOR);
+        boolean first = true;
+        for (int i = 0; i < HISTOGRAM_SIZE; i++) {
+            if (histogram[i] == 0) {
+                continue;
+            }
+            if (!first) {
+                toStringValue.append(HISTOGRAM_SEPARATOR);
+            }
+            toStringValue.append(i).append(HISTOGRAM_VALUE_SEPARATOR).append(histogram[i]);
+            first = false;
+        }
+        if (first) {
+            toStringValue.append(" ");
+        }
+        return toStringValue.toString();
+    }
+
+    private static void appendNonBlank(StringBuilder builder, String value) {
+        if (value == null || value.length() == 0) {
+            builder.append(" ");
+        } else {
+            builder.append(value);
+        }
+        builder.append(SpanData.SPAN_FIELD_SEPARATOR);
+    }
+}
@@ -0,0 +1,46 @@
+package com.ai.cloud.skywalking.util;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 基于锁和条件变量的等待策略，空闲时不占用CPU，支持多个消费者等待<br/>
+ * 没有等待中的消费者时，生产者不获取锁
+ */
+public class BlockingWaitStrategy implements WaitStrategy {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    // 等待中的消费者数量，只在持有锁时修改
+    private volatile int waiters = 0;
+
+    @Override
+    public void waitFor(RingBuffer<?> ringBuffer, long timeoutNanos) {
+        lock.lock();
+        try {
+            // 先登记等待数量，再检查数据，与生产者的发布-检查顺序相反，避免丢失唤醒信号
+            waiters++;
+            long nanos = timeoutNanos;
+            while (ringBuffer.isEmpty() && nanos > 0) {
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            waiters--;
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void signal() {
+        if (waiters == 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.ai.cloud.skywalking.util;
+
+/**
+ * RingBuffer写满时的处理策略
+ */
+public enum OverflowPolicy {
+    /**
+     * 丢弃当前写入的数据
+     */
+    DROP_NEWEST,
+    /**
+     * 覆盖最早写入、尚未被消费的数据
+     */
+    DROP_OLDEST,
+    /**
+     * 短暂阻塞等待消费，超时后丢弃当前写入的数据
+     */
+    BLOCK;
+
+    public static OverflowPolicy convert(String policy) {
+        for (OverflowPolicy value : values()) {
+            if (value.name().equalsIgnoreCase(policy.trim())) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Failed to convert overflowPolicy[" + policy + "]");
+    }
+}
@@ -0,0 +1,31 @@
+package com.ai.cloud.skywalking.util;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 基于LockSupport.park/unpark的等待策略，只适用于单消费者
+ */
+public class ParkWaitStrategy implements WaitStrategy {
+    private volatile Thread waiter;
+
+    @Override
+    public void waitFor(RingBuffer<?> ringBuffer, long timeoutNanos) {
+        waiter = Thread.currentThread();
+        try {
+            // 先登记等待线程，再检查数据，避免丢失生产者的唤醒信号
+            if (ringBuffer.isEmpty()) {
+                LockSupport.parkNanos(this, timeoutNanos);
+            }
+        } finally {
+            waiter = null;
+        }
+    }
+
+    @Override
+    public void signal() {
+        Thread thread = waiter;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.ai.cloud.skywalking.util;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 有界、多生产者/单消费者的环形缓冲区<br/>
+ * 生产者通过序号申请槽位，写入数据后发布该槽位的序号；消费者按序号顺序读取已发布的槽位。<br/>
+ * 写满时的行为由{@link OverflowPolicy}决定，被丢弃的数据数量由{@link #getDroppedCount()}统计。<br/>
+ * 注意：drainTo和waitFor只允许同一个消费者线程调用
+ */
+public class RingBuffer<E> {
+    /**
+     * BLOCK策略下，生产者每次等待消费的时间(单位:纳秒)
+     */
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> entries;
+    /**
+     * 每个槽位最后一次发布的序号
+     */
+    private final AtomicLongArray published;
+    /**
+     * 生产者最后一次申请到的序号
+     */
+    private final PaddedAtomicLong producerCursor = new PaddedAtomicLong(-1);
+    /**
+     * 消费者最后一次消费的序号
+     */
+    private final PaddedAtomicLong consumerCursor = new PaddedAtomicLong(-1);
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong overwrittenCount = new AtomicLong();
+
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutNanos;
+    private final WaitStrategy waitStrategy;
+
+    /**
+     * @param minCapacity       最小容量，实际容量为不小于该值的2的幂
+     * @param overflowPolicy    写满时的处理策略
+     * @param blockTimeoutMillis BLOCK策略下的最长等待时间(单位:毫秒)
+     * @param waitStrategy      消费者等待策略
+     */
+    public RingBuffer(int minCapacity, OverflowPolicy overflowPolicy, long blockTimeoutMillis,
+                      WaitStrategy waitStrategy) {
+        if (minCapacity <= 0) {
+            throw new IllegalArgumentException("RingBuffer capacity must be positive.");
+        }
+        int size = 1;
+        while (size < minCapacity) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        this.entries = new AtomicReferenceArray<E>(size);
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * 写入数据，线程安全
+     *
+     * @param element
+     * @return 数据是否被写入
+     */
+    public boolean offer(E element) {
+        long sequence = claim();
+        if (sequence < 0) {
+            droppedCount.incrementAndGet();
+            return false;
+        }
+
+        int index = (int) sequence & mask;
+        // 只有DROP_OLDEST策略下，才会覆盖尚未被消费的数据
+        if (entries.getAndSet(index, element) != null) {
+            droppedCount.incrementAndGet();
+            overwrittenCount.incrementAndGet();
+        }
+        publish(index, sequence);
+        waitStrategy.signal();
+        return true;
+    }
+
+    private long claim() {
+        if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+            return producerCursor.incrementAndGet();
+        }
+
+        long deadline = 0;
+        while (true) {
+            long current = producerCursor.get();
+            long next = current + 1;
+            if (next - capacity > consumerCursor.get()) {
+                if (overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+                    return -1;
+                }
+
+                long now = System.nanoTime();
+                if (deadline == 0) {
+                    deadline = now + blockTimeoutNanos;
+                } else if (now - deadline >= 0) {
+                    return -1;
+                }
+                LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+                continue;
+            }
+
+            if (producerCursor.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    private void publish(int index, long sequence) {
+        // 槽位的序号只增不减，避免慢生产者覆盖了已被后续序号发布的槽位
+        long current;
+        do {
+            current = published.get(index);
+            if (current >= sequence) {
+                return;
+            }
+        } while (!published.compareAndSet(index, current, sequence));
+    }
+
+    /**
+     * 将已发布的数据取出到容器中，不阻塞
+     *
+     * @param container
+     * @param maxElements 本次最多取出的数量
+     * @return 取出的数量
+     */
+    public int drainTo(Collection<? super E> container, int maxElements) {
+        long cursor = consumerCursor.get();
+        int drained = 0;
+        while (drained < maxElements) {
+            long next = cursor + 1;
+            int index = (int) next & mask;
+            if (published.get(index) < next) {
+                break;
+            }
+
+            E element = entries.getAndSet(index, null);
+            cursor = next;
+            if (element != null) {
+                container.add(element);
+                drained++;
+            }
+        }
+        consumerCursor.lazySet(cursor);
+        return drained;
+    }
+
+    /**
+     * 消费者等待数据，直到有数据可以消费或等待超时
+     *
+     * @param timeoutMillis 最长等待时间(单位:毫秒)
+     */
+    public void waitFor(long timeoutMillis) {
+        waitStrategy.waitFor(this, TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+    }
+
+    public boolean isEmpty() {
+        long next = consumerCursor.get() + 1;
+        return published.get((int) next & mask) < next;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return 尚未被消费的数据数量，并发写入时为近似值
+     */
+    public int size() {
+        long size = producerCursor.get() - consumerCursor.get();
+        if (size < 0) {
+            return 0;
+        }
+        return size > capacity ? capacity : (int) size;
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return 被覆盖的数据数量，已包含在{@link #getDroppedCount()}中
+     */
+    public long getOverwrittenCount() {
+        return overwrittenCount.get();
+    }
+
+    /**
+     * 独占缓存行的AtomicLong，避免生产者序号与消费者序号之间的伪共享
+     */
+    static class PaddedAtomicLong extends AtomicLong {
+        private static final long serialVersionUID = -3415778863941386253L;
+
+        long p1, p2, p3, p4, p5, p6, p7 = 7L;
+
+        PaddedAtomicLong(long initialValue) {
+            super(initialValue);
+        }
+
+        long sumPaddingToPreventOptimisation() {
+            return p1 + p2 + p3 + p4 + p5 + p6 + p7;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.ai.cloud.skywalking.util;
+
+/**
+ * 按名称创建{@link WaitStrategy}
+ */
+public final class WaitStrategies {
+    public static final String PARK = "park";
+    public static final String BLOCK = "block";
+    public static final String YIELD = "yield";
+
+    private WaitStrategies() {
+        // Non
+    }
+
+    /**
+     * @param name park、block或yield，忽略大小写
+     * @return
+     */
+    public static WaitStrategy create(String name) {
+        String value = name == null ? "" : name.trim();
+        if (PARK.equalsIgnoreCase(value)) {
+            return new ParkWaitStrategy();
+        }
+        if (BLOCK.equalsIgnoreCase(value)) {
+            return new BlockingWaitStrategy();
+        }
+        if (YIELD.equalsIgnoreCase(value)) {
+            return new YieldingWaitStrategy();
+        }
+        throw new IllegalStateException("Failed to convert waitStrategy[" + name + "]");
+    }
+}
@@ -0,0 +1,19 @@
+package com.ai.cloud.skywalking.util;
+
+/**
+ * RingBuffer消费者在无数据时的等待策略
+ */
+public interface WaitStrategy {
+    /**
+     * 消费者等待，直到RingBuffer中有可消费的数据，或者等待超时
+     *
+     * @param ringBuffer
+     * @param timeoutNanos 最长等待时间(单位:纳秒)
+     */
+    void waitFor(RingBuffer<?> ringBuffer, long timeoutNanos);
+
+    /**
+     * 生产者发布数据后，唤醒等待中的消费者
+     */
+    void signal();
+}
@@ -0,0 +1,28 @@
+package com.ai.cloud.skywalking.util;
+
+/**
+ * 自旋之后让出CPU的等待策略，延迟最低，但消费者在等待期间一直占用CPU，适用于CPU核数充足的场景
+ */
+public class YieldingWaitStrategy implements WaitStrategy {
+    private static final int SPIN_TRIES = 100;
+
+    @Override
+    public void waitFor(RingBuffer<?> ringBuffer, long timeoutNanos) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        int counter = SPIN_TRIES;
+        while (ringBuffer.isEmpty()) {
+            if (counter > 0) {
+                counter--;
+            } else if (System.nanoTime() - deadline >= 0) {
+                return;
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    @Override
+    public void signal() {
+        // 消费者不阻塞，无需唤醒
+    }
+}
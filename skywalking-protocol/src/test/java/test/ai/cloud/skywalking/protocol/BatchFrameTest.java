@@ -0,0 +1,35 @@
+package test.ai.cloud.skywalking.protocol;
+
+import junit.framework.TestCase;
+
+import com.ai.cloud.skywalking.protocol.BatchFrame;
+
+public class BatchFrameTest extends TestCase {
+
+	public void testAck() {
+		byte[] ack = BatchFrame.newAck(0x0102030405060708L);
+		assertTrue(BatchFrame.isAck(ack));
+		assertFalse(BatchFrame.isAckedBatch(ack));
+		assertEquals(0x0102030405060708L, BatchFrame.getSequence(ack));
+	}
+
+	public void testBusy() {
+		byte[] busy = BatchFrame.newBusy();
+		assertTrue(BatchFrame.isBusy(busy));
+		assertFalse(BatchFrame.isAck(busy));
+		assertFalse(BatchFrame.isAckedBatch(busy));
+	}
+
+	public void testResume() {
+		byte[] resume = BatchFrame.newResume();
+		assertTrue(BatchFrame.isResume(resume));
+		assertFalse(BatchFrame.isBusy(resume));
+		assertFalse(BatchFrame.isBusy(BatchFrame.newAck(0)));
+		assertFalse(BatchFrame.isResume(BatchFrame.newBusy()));
+	}
+
+	public void testLegacyFrame() {
+		assertFalse(BatchFrame.isAckedBatch("1.0a2.1449124442153.c3f9e44.8104.1.1@~ @~0".getBytes()));
+		assertFalse(BatchFrame.isAck(new byte[0]));
+	}
+}
@@ -0,0 +1,30 @@
+package test.ai.cloud.skywalking.protocol;
+
+import junit.framework.TestCase;
+
+import com.ai.cloud.skywalking.protocol.Span;
+import com.ai.cloud.skywalking.protocol.TraceId;
+
+public class TraceIdTest extends TestCase {
+
+	public void testTextForm() {
+		TraceId traceId = new TraceId("1.0a2", ".c3f9e44.8104.", 1453429608422L, 13, 0xc3f9e44, 20001);
+		assertEquals("1.0a2.1453429608422.c3f9e44.8104.13.20001", traceId.toString());
+		assertEquals(1453429608422L, traceId.getTimestamp());
+		assertEquals(13, traceId.getThreadId());
+		assertEquals(0xc3f9e44, traceId.getProcessRandom());
+		assertEquals(20001, traceId.getSequence());
+	}
+
+	public void testInheritLazily() {
+		TraceId traceId = new TraceId("1.0a2", ".c3f9e44.8104.", 1453429608422L, 13, 0xc3f9e44, 1);
+		Span parent = new Span(null, "app", "user");
+		parent.setTraceId(traceId);
+		Span child = new Span(null, "app", "user");
+		child.inheritTraceId(parent);
+
+		assertSame(traceId, child.getLazyTraceId());
+		assertEquals(traceId.toString(), child.getTraceId());
+		assertEquals(parent.getTraceId(), child.getTraceId());
+	}
+}
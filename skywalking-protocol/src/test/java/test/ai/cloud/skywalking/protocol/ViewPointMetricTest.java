@@ -0,0 +1,36 @@
+package test.ai.cloud.skywalking.protocol;
+
+import junit.framework.TestCase;
+
+import com.ai.cloud.skywalking.protocol.ViewPointMetric;
+
+public class ViewPointMetricTest extends TestCase {
+
+	public void testRoundTrip() {
+		ViewPointMetric metric = new ViewPointMetric(1453429560000L, "app", "user", "com.a.B.c()", "M", "L", false,
+				"8104", "host/10.1.1.1");
+		long[] histogram = new long[ViewPointMetric.HISTOGRAM_SIZE];
+		histogram[ViewPointMetric.histogramIndex(300)] = 2;
+		histogram[ViewPointMetric.histogramIndex(0)] = 1;
+		metric.record(3, 600, histogram);
+
+		String data = metric.toString();
+		assertTrue(ViewPointMetric.isMetric(data));
+		ViewPointMetric parsed = new ViewPointMetric(data);
+		assertEquals(data, parsed.toString());
+		assertEquals(3, parsed.getCount());
+		assertEquals(600, parsed.getTotalCostMicros());
+		assertEquals(2, parsed.getHistogram()[9]);
+		assertEquals(1, parsed.getHistogram()[0]);
+	}
+
+	public void testHistogramIndex() {
+		assertEquals(1, ViewPointMetric.histogramIndex(1));
+		assertEquals(10, ViewPointMetric.histogramIndex(1000));
+		assertEquals(ViewPointMetric.HISTOGRAM_SIZE - 1, ViewPointMetric.histogramIndex(Long.MAX_VALUE));
+	}
+
+	public void testNotSpan() {
+		assertFalse(ViewPointMetric.isMetric("1.0a2.1449124442153.c3f9e44.8104.1.1@~ @~0"));
+	}
+}
@@ -0,0 +1,116 @@
+package test.ai.cloud.skywalking.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import com.ai.cloud.skywalking.util.BlockingWaitStrategy;
+import com.ai.cloud.skywalking.util.OverflowPolicy;
+import com.ai.cloud.skywalking.util.ParkWaitStrategy;
+import com.ai.cloud.skywalking.util.RingBuffer;
+import com.ai.cloud.skywalking.util.WaitStrategy;
+import com.ai.cloud.skywalking.util.YieldingWaitStrategy;
+
+public class RingBufferTest extends TestCase {
+
+	public void testDropNewest() {
+		RingBuffer<Integer> ringBuffer = new RingBuffer<Integer>(4, OverflowPolicy.DROP_NEWEST, 0, new ParkWaitStrategy());
+		for (int i = 0; i < 6; i++) {
+			ringBuffer.offer(i);
+		}
+		List<Integer> result = new ArrayList<Integer>();
+		ringBuffer.drainTo(result, 100);
+		assertEquals(4, result.size());
+		assertEquals(Integer.valueOf(0), result.get(0));
+		assertEquals(2, ringBuffer.getDroppedCount());
+		assertEquals(0, ringBuffer.getOverwrittenCount());
+		assertTrue(ringBuffer.isEmpty());
+	}
+
+	public void testDropOldest() {
+		RingBuffer<Integer> ringBuffer = new RingBuffer<Integer>(4, OverflowPolicy.DROP_OLDEST, 0, new ParkWaitStrategy());
+		for (int i = 0; i < 6; i++) {
+			ringBuffer.offer(i);
+		}
+		List<Integer> result = new ArrayList<Integer>();
+		ringBuffer.drainTo(result, 100);
+		assertEquals(4, result.size());
+		assertTrue(result.contains(5));
+		assertFalse(result.contains(0));
+		assertEquals(2, ringBuffer.getDroppedCount());
+		assertEquals(2, ringBuffer.getOverwrittenCount());
+	}
+
+	public void testMultiProducers() throws InterruptedException {
+		assertMultiProducers(new ParkWaitStrategy());
+	}
+
+	public void testMultiProducersWithBlockingWait() throws InterruptedException {
+		assertMultiProducers(new BlockingWaitStrategy());
+	}
+
+	public void testMultiProducersWithYieldingWait() throws InterruptedException {
+		assertMultiProducers(new YieldingWaitStrategy());
+	}
+
+	public void testBlockingWaitWokenByProducer() throws InterruptedException {
+		final RingBuffer<Integer> ringBuffer = new RingBuffer<Integer>(4, OverflowPolicy.DROP_NEWEST, 0, new BlockingWaitStrategy());
+		Thread producer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(100);
+				} catch (InterruptedException e) {
+					return;
+				}
+				ringBuffer.offer(1);
+			}
+		};
+		producer.start();
+		long start = System.currentTimeMillis();
+		ringBuffer.waitFor(60 * 1000L);
+		assertTrue(System.currentTimeMillis() - start < 30 * 1000L);
+		assertFalse(ringBuffer.isEmpty());
+		producer.join();
+	}
+
+	private void assertMultiProducers(WaitStrategy waitStrategy) throws InterruptedException {
+		final int producerNum = 8;
+		final int perProducer = 20000;
+		final RingBuffer<Integer> ringBuffer = new RingBuffer<Integer>(1024, OverflowPolicy.BLOCK, 60 * 1000L, waitStrategy);
+		List<Thread> producers = new ArrayList<Thread>();
+		for (int i = 0; i < producerNum; i++) {
+			final int base = i * perProducer;
+			Thread producer = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < perProducer; j++) {
+						ringBuffer.offer(base + j);
+					}
+				}
+			};
+			producers.add(producer);
+			producer.start();
+		}
+
+		Set<Integer> consumed = new HashSet<Integer>();
+		List<Integer> batch = new ArrayList<Integer>();
+		long deadline = System.currentTimeMillis() + 60 * 1000L;
+		while (consumed.size() < producerNum * perProducer && System.currentTimeMillis() < deadline) {
+			if (ringBuffer.drainTo(batch, 256) == 0) {
+				ringBuffer.waitFor(5);
+			}
+			consumed.addAll(batch);
+			batch.clear();
+		}
+		for (Thread producer : producers) {
+			producer.join();
+		}
+
+		assertEquals(producerNum * perProducer, consumed.size());
+		assertEquals(0, ringBuffer.getDroppedCount());
+	}
+}
@@ -3,47 +3,62 @@ package com.ai.cloud.skywalking.reciever.buffer;
 import static com.ai.cloud.skywalking.reciever.conf.Config.Buffer.DATA_BUFFER_FILE_PARENT_DIRECTORY;
 import static com.ai.cloud.skywalking.reciever.conf.Config.Buffer.DATA_CONFLICT_WAIT_TIME;
 import static com.ai.cloud.skywalking.reciever.conf.Config.Buffer.DATA_FILE_MAX_LENGTH;
-import static com.ai.cloud.skywalking.reciever.conf.Config.Buffer.FLUSH_NUMBER_OF_CACHE;
+import static com.ai.cloud.skywalking.reciever.conf.Config.Buffer.FSYNC_ON_COMMIT;
+import static com.ai.cloud.skywalking.reciever.conf.Config.Buffer.INDEX_INTERVAL;
+import static com.ai.cloud.skywalking.reciever.conf.Config.Buffer.MAX_DRAIN_SIZE;
 import static com.ai.cloud.skywalking.reciever.conf.Config.Buffer.MAX_WAIT_TIME;
 import static com.ai.cloud.skywalking.reciever.conf.Config.Buffer.PER_THREAD_MAX_BUFFER_NUMBER;
+import static com.ai.cloud.skywalking.reciever.conf.Config.Buffer.RESUME_OCCUPANCY;
+import static com.ai.cloud.skywalking.reciever.conf.Config.Buffer.WAIT_STRATEGY;
 import static com.ai.cloud.skywalking.reciever.conf.Config.Buffer.WRITE_DATA_FAILURE_RETRY_INTERVAL;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.ai.cloud.skywalking.reciever.selfexamination.ServerHealthCollector;
 import com.ai.cloud.skywalking.reciever.selfexamination.ServerHeathReading;
-import com.ai.cloud.skywalking.util.AtomicRangeInteger;
+import com.ai.cloud.skywalking.util.OverflowPolicy;
+import com.ai.cloud.skywalking.util.RingBuffer;
+import com.ai.cloud.skywalking.util.WaitStrategies;
 
 public class DataBufferThread extends Thread {
 
+    private static final int INITIAL_STAGING_CAPACITY = 64 * 1024;
+
     private Logger logger = LogManager.getLogger(DataBufferThread.class);
-    private byte[][] data = new byte[PER_THREAD_MAX_BUFFER_NUMBER][];
+    // 多个接收线程写入、本线程消费的环形缓冲区，槽位的发布与读取保证数据对本线程可见
+    private RingBuffer<BufferedData> ringBuffer = new RingBuffer<BufferedData>(PER_THREAD_MAX_BUFFER_NUMBER,
+            OverflowPolicy.DROP_NEWEST, 0, WaitStrategies.create(WAIT_STRATEGY));
+    // 缓存已满时注册的恢复任务，占用率降到RESUME_OCCUPANCY以下时执行
+    private Queue<Runnable> resumeTasks = new ConcurrentLinkedQueue<Runnable>();
+    private List<BufferedData> batch = new ArrayList<BufferedData>(MAX_DRAIN_SIZE);
+    private List<Runnable> pendingCallbacks = new ArrayList<Runnable>();
+    // 一批数据编码之后一次写入文件
+    private ByteBuffer staging = ByteBuffer.allocateDirect(INITIAL_STAGING_CAPACITY);
     private File file;
-    private FileOutputStream outputStream;
-    private AtomicRangeInteger index = new AtomicRangeInteger(0, PER_THREAD_MAX_BUFFER_NUMBER);
+    private RandomAccessFile randomAccessFile;
+    private FileChannel channel;
+    private long recordCount;
+    // 稀疏索引文件，写入第一条索引时创建
+    private RandomAccessFile indexRandomAccessFile;
+    private ByteBuffer indexEntry = ByteBuffer.allocate(SegmentIndex.ENTRY_LENGTH);
+    private long nextIndexPosition;
 
     public DataBufferThread(int threadIdx) {
     	super("DataBufferThread_" + threadIdx);
         try {
-            file = new File(DATA_BUFFER_FILE_PARENT_DIRECTORY, getFileName());
-            if (file.exists()) {
-                file.createNewFile();
-            }
-
-            if (logger.isDebugEnabled()) {
-                logger.debug("Create buffer data file {}.", file.getName());
-            }
-            outputStream = new FileOutputStream(file, true);
-        } catch (FileNotFoundException e) {
-            logger.error("Data cache file cannot be created or written, please check the file system.", e);
-            System.exit(-1);
+            openFile(getFileName());
         } catch (IOException e) {
             logger.error("Data cache file cannot be created or written, please check the file system.", e);
             System.exit(-1);
@@ -52,92 +67,211 @@ public class DataBufferThread extends Thread {
 
     @Override
     public void run() {
-        boolean isWriteFailure;
-        int index = 0;
         while (true) {
-            boolean hasData2Flush = false;
-            for (int i = 0; i < data.length; i++) {
-                if (data[i] == null) {
-                    continue;
-                }
-                hasData2Flush = true;
-                isWriteFailure = true;
-                while (isWriteFailure) {
-                    try {
-                        outputStream.write(data[i]);
-                        outputStream.write("\n".getBytes());
-                        isWriteFailure = false;
-                    } catch (IOException e) {
-                        logger.error("Write buffer data failed.", e);
-                        try {
-                            Thread.sleep(WRITE_DATA_FAILURE_RETRY_INTERVAL);
-                        } catch (InterruptedException e1) {
-                            logger.error("Failure sleep.", e);
-                        }
-                    }
-                }
-                if (index++ > FLUSH_NUMBER_OF_CACHE) {
-                    try {
-                        outputStream.flush();
-                        ServerHealthCollector.getCurrentHeathReading(null).updateData(ServerHeathReading.INFO, "DataBuffer flush data to local file:" + file.getName());
-                    } catch (IOException e) {
-                        logger.error("Flush buffer data failed.", e);
-                    } finally {
-                        index = 0;
-                    }
-                }
-                data[i] = null;
-
+            if (ringBuffer.drainTo(batch, MAX_DRAIN_SIZE) == 0) {
+                runResumeTasks();
+                ringBuffer.waitFor(MAX_WAIT_TIME);
+                continue;
             }
 
-            if (hasData2Flush){
-                try {
-                    outputStream.flush();
-                    ServerHealthCollector.getCurrentHeathReading(null).updateData(ServerHeathReading.INFO, "DataBuffer flush data to local file:" + file.getName());
-                } catch (IOException e) {
-                    logger.error("Flush buffer data failed.", e);
+            // 一批数据只写入一次，按配置fsync一次，之后再执行回调
+            staging.clear();
+            for (BufferedData bufferedData : batch) {
+                ensureStagingCapacity(SegmentFile.RECORD_HEADER_LENGTH + bufferedData.data.length);
+                SegmentFile.writeRecord(staging, bufferedData.data);
+                if (bufferedData.afterWrittenCallback != null) {
+                    pendingCallbacks.add(bufferedData.afterWrittenCallback);
                 }
             }
+            recordCount += batch.size();
+            batch.clear();
+            staging.flip();
+            long batchPosition = position();
+            commit(staging);
+            // 数据写入之后再写索引，索引中的位置总是已写入的记录边界
+            if (batchPosition >= nextIndexPosition) {
+                appendIndex(batchPosition);
+            }
+            ServerHealthCollector.getCurrentHeathReading(null).updateData(ServerHeathReading.INFO, "DataBuffer flush data to local file:" + file.getName());
+
+            runAfterWrittenCallbacks();
+            runResumeTasks();
 
-            if (file.length() > DATA_FILE_MAX_LENGTH) {
+            if (position() > DATA_FILE_MAX_LENGTH) {
             	switchFile();
             }
+        }
+    }
+
+    private void ensureStagingCapacity(int length) {
+        if (staging.remaining() >= length) {
+            return;
+        }
+        int capacity = staging.capacity();
+        while (capacity - staging.position() < length) {
+            capacity <<= 1;
+        }
+        ByteBuffer newStaging = ByteBuffer.allocateDirect(capacity);
+        staging.flip();
+        newStaging.put(staging);
+        staging = newStaging;
+    }
 
-            if (!hasData2Flush) {
+    /**
+     * 写入失败时持续重试，已写入的部分不再重复写入
+     */
+    private void commit(ByteBuffer data) {
+        while (true) {
+            try {
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+                if (FSYNC_ON_COMMIT) {
+                    channel.force(false);
+                }
+                return;
+            } catch (IOException e) {
+                logger.error("Write buffer data failed.", e);
                 try {
-                    Thread.sleep(MAX_WAIT_TIME);
-                } catch (InterruptedException e) {
+                    Thread.sleep(WRITE_DATA_FAILURE_RETRY_INTERVAL);
+                } catch (InterruptedException e1) {
                     logger.error("Failure sleep.", e);
                 }
             }
         }
     }
 
+    /**
+     * 索引只用于加快恢复时的校验，写入失败时本文件不再写索引
+     */
+    private void appendIndex(long position) {
+        nextIndexPosition = position + INDEX_INTERVAL;
+        try {
+            if (indexRandomAccessFile == null) {
+                indexRandomAccessFile = new RandomAccessFile(SegmentIndex.indexFile(file), "rw");
+            }
+            indexEntry.clear();
+            SegmentIndex.writeEntry(indexEntry, position);
+            indexEntry.flip();
+            FileChannel indexChannel = indexRandomAccessFile.getChannel();
+            while (indexEntry.hasRemaining()) {
+                indexChannel.write(indexEntry);
+            }
+        } catch (IOException e) {
+            logger.error("Write index of cache data file failed.", e);
+            nextIndexPosition = Long.MAX_VALUE;
+        }
+    }
+
+    private void closeIndex() {
+        if (indexRandomAccessFile == null) {
+            return;
+        }
+        try {
+            indexRandomAccessFile.close();
+        } catch (IOException e) {
+            logger.error("close index of cache data failed.", e);
+        }
+        indexRandomAccessFile = null;
+    }
+
+    private long position() {
+        try {
+            return channel.position();
+        } catch (IOException e) {
+            logger.error("Get position of cache data file failed.", e);
+            return 0;
+        }
+    }
+
+    private void openFile(String fileName) throws IOException {
+        // 先登记，读取线程看到文件时即可判断其仍在写入
+        SegmentFile.markActive(fileName);
+        try {
+            file = new File(DATA_BUFFER_FILE_PARENT_DIRECTORY, fileName);
+            randomAccessFile = new RandomAccessFile(file, "rw");
+            channel = randomAccessFile.getChannel();
+            recordCount = 0;
+            nextIndexPosition = SegmentFile.HEADER_LENGTH + INDEX_INTERVAL;
+            ByteBuffer header = ByteBuffer.allocate(SegmentFile.HEADER_LENGTH);
+            SegmentFile.writeHeader(header, System.currentTimeMillis());
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+        } catch (IOException e) {
+            SegmentFile.markInactive(fileName);
+            throw e;
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Create buffer data file {}.", file.getName());
+        }
+    }
+
+
+    private void runAfterWrittenCallbacks() {
+        for (Runnable callback : pendingCallbacks) {
+            try {
+                callback.run();
+            } catch (Throwable e) {
+                logger.error("Run callback after data written failed.", e);
+            }
+        }
+        pendingCallbacks.clear();
+    }
+
+    private void runResumeTasks() {
+        if (resumeTasks.isEmpty() || !hasResumeSpace()) {
+            return;
+        }
+        Runnable task;
+        while ((task = resumeTasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                logger.error("Run resume task failed.", e);
+            }
+        }
+    }
+
+    private boolean hasResumeSpace() {
+        return ringBuffer.size() * 100L <= (long) ringBuffer.getCapacity() * RESUME_OCCUPANCY;
+    }
 
     private String getFileName() {
         return System.currentTimeMillis() + "-" + UUID.randomUUID().toString().replaceAll("-", "");
     }
 
+    /**
+     * 写入文件尾封存当前文件，再创建新文件
+     */
     private void switchFile() {
         String fileName = getFileName();
 
+        ByteBuffer footer = ByteBuffer.allocate(SegmentFile.FOOTER_LENGTH);
+        SegmentFile.writeFooter(footer, recordCount);
+        footer.flip();
         try {
-            outputStream.write("EOF\n".getBytes());
-            outputStream.flush();
+            while (footer.hasRemaining()) {
+                channel.write(footer);
+            }
+            channel.force(false);
         } catch (IOException e) {
-            logger.error("Write eof to cache data file.", e);
+            logger.error("Write footer to cache data file.", e);
         } finally{
         	try {
-        		outputStream.close();
+        		randomAccessFile.close();
         	} catch (IOException e) {
         		logger.error("close cache data failed.", e);
         	}
+        	closeIndex();
+        	// 文件尾写入之后才注销，读取线程据此判断没有文件尾的文件是否为崩溃遗留
+        	SegmentFile.markInactive(file.getName());
         	ServerHealthCollector.getCurrentHeathReading(null).updateData(ServerHeathReading.INFO, "DataBuffer close local file:" + file.getName());
         }
         logger.debug("Begin to switch the data file to {}.", fileName);
         try {
-            file = new File(DATA_BUFFER_FILE_PARENT_DIRECTORY, fileName);
-            outputStream = new FileOutputStream(file, true);
+            openFile(fileName);
             ServerHealthCollector.getCurrentHeathReading(null).updateData(ServerHeathReading.INFO, "DataBuffer open new local file:" + file.getName());
         } catch (IOException e) {
         	ServerHealthCollector.getCurrentHeathReading(null).updateData(ServerHeathReading.ERROR, "DataBuffer open new local file failure.");
@@ -148,17 +282,58 @@ public class DataBufferThread extends Thread {
     }
 
     public void saveTemporarily(byte[] s) {
-        int i = index.getAndIncrement();
-        while (data[i] != null) {
+        saveTemporarily(s, null);
+    }
+
+    /**
+     * 阻塞写入，缓存已满时每次等待DATA_CONFLICT_WAIT_TIME，不能在netty的事件循环中调用
+     *
+     * @param s
+     * @param afterWrittenCallback 数据写入文件之后，在DataBufferThread中执行
+     */
+    public void saveTemporarily(byte[] s, Runnable afterWrittenCallback) {
+        while (!trySaveTemporarily(s, afterWrittenCallback)) {
+            ServerHealthCollector.getCurrentHeathReading(null).updateData(ServerHeathReading.WARNING, "DataBuffer is full, service pausing. ");
             try {
-            	ServerHealthCollector.getCurrentHeathReading(null).updateData(ServerHeathReading.WARNING, "DataBuffer index[" + i + "] data collision, service pausing. ");
                 Thread.sleep(DATA_CONFLICT_WAIT_TIME);
             } catch (InterruptedException e) {
                 logger.error("Failure sleep.", e);
             }
         }
-        ServerHealthCollector.getCurrentHeathReading(null).updateData(ServerHeathReading.INFO, "DataBuffer reveiving data.");
+    }
+
+    /**
+     * 非阻塞写入
+     *
+     * @param s
+     * @param afterWrittenCallback 数据写入文件之后，在DataBufferThread中执行
+     * @return 缓存已满时返回false
+     */
+    public boolean trySaveTemporarily(byte[] s, Runnable afterWrittenCallback) {
+        return ringBuffer.offer(new BufferedData(s, afterWrittenCallback));
+    }
 
-        data[i] = s;
+    /**
+     * 注册恢复任务，缓存占用率降到RESUME_OCCUPANCY以下时执行一次；注册时已满足条件则立即执行
+     *
+     * @param resumeTask 在DataBufferThread或调用线程中执行，不应阻塞
+     */
+    public void resumeWhenAvailable(Runnable resumeTask) {
+        resumeTasks.offer(resumeTask);
+        // 先登记再检查，避免写入线程已腾出空间、不再检查恢复任务
+        runResumeTasks();
+    }
+
+    /**
+     * 缓存中的数据及其写入文件之后的回调，发布之后不再修改
+     */
+    static class BufferedData {
+        private final byte[] data;
+        private final Runnable afterWrittenCallback;
+
+        BufferedData(byte[] data, Runnable afterWrittenCallback) {
+            this.data = data;
+            this.afterWrittenCallback = afterWrittenCallback;
+        }
     }
 }
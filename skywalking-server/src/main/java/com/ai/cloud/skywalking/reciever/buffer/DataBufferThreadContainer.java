@@ -3,6 +3,7 @@ package com.ai.cloud.skywalking.reciever.buffer;
 import static com.ai.cloud.skywalking.reciever.conf.Config.Persistence.MAX_APPEND_EOF_FLAGS_THREAD_NUMBER;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -30,15 +31,16 @@ public class DataBufferThreadContainer {
     }
 
     public static void init() {
-        logger.info("Add EOF flags to the unprocessed data file last time.");
+        logger.info("Add EOF flags to the unprocessed text data file last time.");
         File parentDir = new File(Config.Buffer.DATA_BUFFER_FILE_PARENT_DIRECTORY);
         // 判断数据缓存文件是否存在，如果不存在，则创建
         if (!parentDir.exists()) {
             parentDir.mkdirs();
         }
         NameFileComparator sizeComparator = new NameFileComparator();
-        File[] dataFileList = sizeComparator.sort(parentDir.listFiles());
-        logger.info("Pending file number :" + dataFileList.length);
+        // 分段日志格式的文件不需要追加标志位，未封存的文件由读取线程按CRC校验确定结束位置
+        File[] dataFileList = sizeComparator.sort(listTextDataFiles(parentDir));
+        logger.info("Pending text file number :" + dataFileList.length);
         if (dataFileList.length > 0) {
             int step = (int) Math.ceil(dataFileList.length * 1.0 / MAX_APPEND_EOF_FLAGS_THREAD_NUMBER);
 
@@ -62,4 +64,22 @@ public class DataBufferThreadContainer {
             buffers.add(dataBufferThread);
         }
     }
+
+    private static File[] listTextDataFiles(File parentDir) {
+        List<File> textFiles = new ArrayList<File>();
+        for (File file : parentDir.listFiles()) {
+            // 分段日志的索引文件
+            if (file.getName().startsWith(".")) {
+                continue;
+            }
+            try {
+                if (!SegmentFile.isSegmentFile(file)) {
+                    textFiles.add(file);
+                }
+            } catch (IOException e) {
+                logger.error("Failed to read data file[" + file.getName() + "].", e);
+            }
+        }
+        return textFiles.toArray(new File[textFiles.size()]);
+    }
 }
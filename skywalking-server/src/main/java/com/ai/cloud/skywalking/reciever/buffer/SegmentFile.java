@@ -0,0 +1,117 @@
+package com.ai.cloud.skywalking.reciever.buffer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * 缓存数据文件的分段日志格式<br/>
+ * 文件头：4位魔数(SWSG) + 4位版本号 + 8位创建时间<br/>
+ * 记录：4位数据长度 + 4位数据的CRC32 + 数据<br/>
+ * 文件尾：4位封存标识(-1) + 8位记录数 + 4位记录数的CRC32，写入文件尾之后不再追加<br/>
+ * 没有文件尾、且本进程不再写入的文件，以最后一条校验通过的记录为结束，之后的数据是崩溃时未写完的数据
+ */
+public final class SegmentFile {
+    public static final byte[] MAGIC = {'S', 'W', 'S', 'G'};
+    public static final int VERSION = 1;
+
+    public static final int HEADER_LENGTH = 16;
+    public static final int RECORD_HEADER_LENGTH = 8;
+    public static final int FOOTER_LENGTH = 16;
+    public static final int SEAL_MARKER = -1;
+
+    // 本进程中正在写入的文件名
+    private static final Set<String> ACTIVE_FILES = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private SegmentFile() {
+        // Non
+    }
+
+    /**
+     * 创建文件之前登记，读取线程据此区分写入中的文件与崩溃遗留的文件
+     */
+    static void markActive(String fileName) {
+        ACTIVE_FILES.add(fileName);
+    }
+
+    /**
+     * 写入文件尾之后注销
+     */
+    static void markInactive(String fileName) {
+        ACTIVE_FILES.remove(fileName);
+    }
+
+    public static boolean isActive(String fileName) {
+        return ACTIVE_FILES.contains(fileName);
+    }
+
+    /**
+     * @param file
+     * @return 是否为分段日志格式，否则为以EOF行结束的文本格式
+     */
+    public static boolean isSegmentFile(File file) throws IOException {
+        if (isActive(file.getName())) {
+            return true;
+        }
+        InputStream inputStream = new FileInputStream(file);
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            int length = 0;
+            int read;
+            while (length < magic.length && (read = inputStream.read(magic, length, magic.length - length)) > 0) {
+                length += read;
+            }
+            if (length == 0) {
+                return false;
+            }
+            // 崩溃时文件头可能未写完，只比较已写入的部分
+            for (int i = 0; i < length; i++) {
+                if (magic[i] != MAGIC[i]) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    static void writeHeader(ByteBuffer buffer, long createTime) {
+        buffer.put(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(createTime);
+    }
+
+    static void writeRecord(ByteBuffer buffer, byte[] data) {
+        buffer.putInt(data.length);
+        buffer.putInt(crc32(data, 0, data.length));
+        buffer.put(data);
+    }
+
+    static void writeFooter(ByteBuffer buffer, long recordCount) {
+        buffer.putInt(SEAL_MARKER);
+        buffer.putLong(recordCount);
+        buffer.putInt(crc32(recordCount));
+    }
+
+    public static int crc32(byte[] data, int offset, int length) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(data, offset, length);
+        return (int) crc32.getValue();
+    }
+
+    public static int crc32(long value) {
+        byte[] bytes = new byte[8];
+        for (int i = 7; i >= 0; i--) {
+            bytes[i] = (byte) value;
+            value >>>= 8;
+        }
+        return crc32(bytes, 0, bytes.length);
+    }
+}
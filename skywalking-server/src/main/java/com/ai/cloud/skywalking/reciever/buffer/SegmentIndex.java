@@ -0,0 +1,68 @@
+package com.ai.cloud.skywalking.reciever.buffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 分段日志文件的稀疏偏移量索引，与数据文件同目录，文件名为"."+数据文件名+".idx"<br/>
+ * 写入线程每写入约INDEX_INTERVAL字节，追加一条记录边界的位置：8位位置 + 4位位置的CRC32<br/>
+ * 读取线程恢复时从不大于已登记偏移量的最近索引位置开始校验，校验的数据量与文件大小无关
+ */
+public final class SegmentIndex {
+    public static final int ENTRY_LENGTH = 12;
+
+    private static final String INDEX_FILE_PREFIX = ".";
+    private static final String INDEX_FILE_SUFFIX = ".idx";
+
+    private SegmentIndex() {
+        // Non
+    }
+
+    public static File indexFile(File dataFile) {
+        return new File(dataFile.getParentFile(), INDEX_FILE_PREFIX + dataFile.getName() + INDEX_FILE_SUFFIX);
+    }
+
+    static void writeEntry(ByteBuffer buffer, long position) {
+        buffer.putLong(position);
+        buffer.putInt(SegmentFile.crc32(position));
+    }
+
+    /**
+     * @param dataFile
+     * @param offset
+     * @return 索引中不大于offset的最大记录位置，没有索引或索引不可用时返回文件头之后的位置
+     */
+    public static long floor(File dataFile, long offset) throws IOException {
+        long floor = SegmentFile.HEADER_LENGTH;
+        File indexFile = indexFile(dataFile);
+        if (!indexFile.exists()) {
+            return floor;
+        }
+        RandomAccessFile randomAccessFile = new RandomAccessFile(indexFile, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            ByteBuffer entry = ByteBuffer.allocate(ENTRY_LENGTH);
+            // 索引位置递增，从后往前找到第一条校验通过且不大于offset的记录，末尾可能是崩溃时未写完的记录
+            for (long entryPosition = (channel.size() / ENTRY_LENGTH - 1) * ENTRY_LENGTH; entryPosition >= 0;
+                 entryPosition -= ENTRY_LENGTH) {
+                entry.clear();
+                while (entry.hasRemaining()) {
+                    if (channel.read(entry, entryPosition + entry.position()) < 0) {
+                        return floor;
+                    }
+                }
+                entry.flip();
+                long position = entry.getLong();
+                if (entry.getInt() == SegmentFile.crc32(position) && position >= floor && position <= offset) {
+                    return position;
+                }
+            }
+            return floor;
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+}
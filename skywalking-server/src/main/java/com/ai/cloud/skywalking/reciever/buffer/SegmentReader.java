@@ -0,0 +1,151 @@
+package com.ai.cloud.skywalking.reciever.buffer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * 顺序读取{@link SegmentFile}格式的缓存数据文件<br/>
+ * 读取失败时不移动读取位置，文件仍在写入时可在稍后重试
+ */
+public class SegmentReader implements Closeable {
+    public enum Status {
+        /**
+         * 读到一条校验通过的记录
+         */
+        RECORD,
+        /**
+         * 读到文件尾，文件已封存
+         */
+        SEALED,
+        /**
+         * 数据不完整，文件仍在写入，或崩溃时未写完
+         */
+        INCOMPLETE,
+        /**
+         * 长度或CRC校验失败
+         */
+        CORRUPTED
+    }
+
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel channel;
+    private final ByteBuffer header = ByteBuffer.allocate(Math.max(SegmentFile.HEADER_LENGTH, SegmentFile.FOOTER_LENGTH));
+    private final int maxRecordLength;
+    private long position;
+    private byte[] record;
+
+    /**
+     * @param file
+     * @param maxRecordLength 超过该长度的记录视为损坏
+     * @throws IOException
+     */
+    public SegmentReader(File file, int maxRecordLength) throws IOException {
+        this.randomAccessFile = new RandomAccessFile(file, "r");
+        this.channel = randomAccessFile.getChannel();
+        this.maxRecordLength = maxRecordLength;
+    }
+
+    /**
+     * 读取并校验文件头，成功之后读取位置移到第一条记录
+     */
+    public Status readHeader() throws IOException {
+        if (!read(0, SegmentFile.HEADER_LENGTH)) {
+            return Status.INCOMPLETE;
+        }
+        byte[] magic = new byte[SegmentFile.MAGIC.length];
+        header.get(magic);
+        if (!Arrays.equals(magic, SegmentFile.MAGIC) || header.getInt() != SegmentFile.VERSION) {
+            return Status.CORRUPTED;
+        }
+        position = SegmentFile.HEADER_LENGTH;
+        return Status.RECORD;
+    }
+
+    /**
+     * 读取当前位置的记录，读到记录时读取位置移到下一条记录
+     */
+    public Status next() throws IOException {
+        if (!read(position, 4)) {
+            return Status.INCOMPLETE;
+        }
+        int length = header.getInt();
+        if (length == SegmentFile.SEAL_MARKER) {
+            if (!read(position, SegmentFile.FOOTER_LENGTH)) {
+                return Status.INCOMPLETE;
+            }
+            header.getInt();
+            long recordCount = header.getLong();
+            return header.getInt() == SegmentFile.crc32(recordCount) ? Status.SEALED : Status.CORRUPTED;
+        }
+        if (length < 0 || length > maxRecordLength) {
+            return Status.CORRUPTED;
+        }
+
+        if (!read(position, SegmentFile.RECORD_HEADER_LENGTH)) {
+            return Status.INCOMPLETE;
+        }
+        header.getInt();
+        int crc = header.getInt();
+        long dataPosition = position + SegmentFile.RECORD_HEADER_LENGTH;
+        if (channel.size() - dataPosition < length) {
+            return Status.INCOMPLETE;
+        }
+        byte[] data = new byte[length];
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, dataPosition + buffer.position()) < 0) {
+                return Status.INCOMPLETE;
+            }
+        }
+        if (SegmentFile.crc32(data, 0, length) != crc) {
+            return Status.CORRUPTED;
+        }
+        record = data;
+        position = dataPosition + length;
+        return Status.RECORD;
+    }
+
+    public byte[] getRecord() {
+        return record;
+    }
+
+    /**
+     * @return 下一条记录的位置
+     */
+    public long position() {
+        return position;
+    }
+
+    public void position(long position) {
+        this.position = position;
+    }
+
+    /**
+     * @return 当前位置之后未读取的字节数
+     */
+    public long remaining() throws IOException {
+        return channel.size() - position;
+    }
+
+    private boolean read(long from, int length) throws IOException {
+        header.clear();
+        header.limit(length);
+        while (header.hasRemaining()) {
+            if (channel.read(header, from + header.position()) < 0) {
+                return false;
+            }
+        }
+        header.flip();
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        randomAccessFile.close();
+    }
+}
@@ -8,20 +8,33 @@ public class Config {
         public static int PORT = 34000;
         // 最大数据处理线程数量
         public static int MAX_DEAL_DATA_THREAD_NUMBER = 3;
+        // 每个连接的字典允许的最大编号数量
+        public static int MAX_DICTIONARY_SIZE = 65536;
+        // 缓存已满、暂停读取连接时，是否向采集端发送繁忙帧，使其暂时切换到其他服务端；恢复读取时发送恢复帧，连接始终保持
+        public static boolean BUSY_FRAME_ENABLE = false;
     }
 
     // 数据缓存配置类
     public static class Buffer {
 
-        //每个线程最大缓存数量
+        //每个线程最大缓存数量，实际容量为不小于该值的2的幂
         public static int PER_THREAD_MAX_BUFFER_NUMBER = 1024;
 
-        // 无数据处理时轮询等待时间(单位:毫秒)
+        // 无数据处理时的最长等待时间(单位:毫秒)，有数据写入时立即唤醒
         public static long MAX_WAIT_TIME = 5000L;
 
-        // 数据冲突时等待时间(单位:毫秒)
+        // 缓存已满时，阻塞写入每次等待写入线程消费的时间(单位:毫秒)
         public static long DATA_CONFLICT_WAIT_TIME = 10L;
 
+        // 缓存已满时暂停读取的连接，在缓存占用率(百分比)降到该值以下时恢复读取
+        public static int RESUME_OCCUPANCY = 50;
+
+        // 写入线程无数据时的等待策略：block(锁等待)、park(LockSupport)、yield(自旋让出CPU)
+        public static String WAIT_STRATEGY = "block";
+
+        // 写入线程每次从缓存中取出的最大数量
+        public static int MAX_DRAIN_SIZE = 256;
+
         // 数据缓存文件目录
         public static String DATA_BUFFER_FILE_PARENT_DIRECTORY = "../data/buffer";
 
@@ -31,8 +44,11 @@ public class Config {
         // 每次缓存数据写入失败，最大尝试时间
         public static long WRITE_DATA_FAILURE_RETRY_INTERVAL =10 * 1000L;
 
-        //每次Flush的缓存数据的个数
-        public static int FLUSH_NUMBER_OF_CACHE = 30;
+        // 每批数据写入缓存文件之后是否fsync，开启之后应答模式下的数据在应答之前已落盘
+        public static boolean FSYNC_ON_COMMIT = false;
+
+        // 分段日志文件每写入该长度(单位:byte)记录一次稀疏索引，恢复时最多校验该长度的数据
+        public static int INDEX_INTERVAL = 1024 * 1024;
 
     }
 
@@ -41,13 +57,10 @@ public class Config {
     }
 
     public static class Persistence {
-        // 定位文件时,每次读取偏移量跳过大小
-        public static int STEP_SIZE_FOR_LOCATING_FILE_OFFSET = 2048;
-
         // 切换文件，等待时间
         public static long SWITCH_FILE_WAIT_TIME = 5000L;
 
-        // 追加EOF标志位的线程数量
+        // 为旧版本遗留的文本格式缓存文件追加EOF标志位的线程数量
         public static int MAX_APPEND_EOF_FLAGS_THREAD_NUMBER = 2;
 
         // 每次存储的最大数量
@@ -61,14 +74,29 @@ public class Config {
         // 偏移量注册文件的目录
         public static String REGISTER_FILE_PARENT_DIRECTORY = "../data/offset";
 
-        // 偏移量注册文件名
+        // 旧版本的偏移量注册文件名，启动时读取，其记录写入检查点日志之后删除
         public static String REGISTER_FILE_NAME = "offset.txt";
 
-        // 偏移量注册备份文件名
+        // 旧版本的偏移量注册备份文件名
         public static String REGISTER_BAK_FILE_NAME = "offset.txt.bak";
 
-        // 偏移量写入文件等待周期
+        // 偏移量检查点日志文件名
+        public static String REGISTER_JOURNAL_FILE_NAME = "offset.journal";
+
+        // 偏移量写入检查点日志的周期
         public static long OFFSET_WRITTEN_FILE_WAIT_CYCLE = 5000L;
+
+        // 检查点日志的fsync策略：checkpoint(每次检查点)、interval(间隔JOURNAL_FSYNC_INTERVAL)、none(由操作系统刷盘)
+        public static String JOURNAL_FSYNC_POLICY = "checkpoint";
+
+        // interval策略下的fsync间隔(单位:毫秒)
+        public static long JOURNAL_FSYNC_INTERVAL = 30000L;
+
+        // 检查点日志的记录数超过存活记录数的该倍数时压缩
+        public static int JOURNAL_COMPACT_RATIO = 4;
+
+        // 检查点日志的记录数少于该值时不压缩
+        public static int JOURNAL_COMPACT_MIN_RECORDS = 10000;
     }
 
     public static class HBaseConfig {
@@ -80,6 +108,19 @@ public class Config {
         public static String ZK_HOSTNAME;
 
         public static String CLIENT_PORT;
+
+        // 错误堆栈指纹与堆栈文本的对应表
+        public static String EXCEPTION_STACK_TABLE_NAME = "sw-exception-stack";
+
+        public static String EXCEPTION_STACK_FAMILY_COLUMN_NAME = "exception-stack";
+
+        // 本地缓存的错误堆栈指纹的最大数量
+        public static int EXCEPTION_STACK_CACHE_SIZE = 10000;
+
+        // 采集端预聚合的视点统计结果表，按(应用, 视点, 分钟)存储，每个进程写入各自的列
+        public static String METRIC_TABLE_NAME = "sw-viewpoint-metric";
+
+        public static String METRIC_FAMILY_COLUMN_NAME = "metric";
     }
 
     public static class StorageChain {
@@ -1,18 +1,204 @@
 package com.ai.cloud.skywalking.reciever.handler;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.ai.cloud.skywalking.protocol.BatchFrame;
+import com.ai.cloud.skywalking.protocol.DictionaryDecoder;
+import com.ai.cloud.skywalking.protocol.DictionaryFrame;
+import com.ai.cloud.skywalking.reciever.buffer.DataBufferThread;
 import com.ai.cloud.skywalking.reciever.buffer.DataBufferThreadContainer;
 import com.ai.cloud.skywalking.reciever.conf.Config;
+import com.ai.cloud.skywalking.reciever.selfexamination.ServerHealthCollector;
+import com.ai.cloud.skywalking.reciever.selfexamination.ServerHeathReading;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 
 public class CollectionServerDataHandler extends SimpleChannelInboundHandler<byte[]> {
+    private static Logger logger = LogManager.getLogger(CollectionServerDataHandler.class);
+
+    // 所有连接累计的暂停次数和暂停时间(单位:毫秒)，以及当前暂停中的连接数
+    private static final AtomicLong TOTAL_PAUSE_COUNT = new AtomicLong();
+    private static final AtomicLong TOTAL_PAUSED_TIME = new AtomicLong();
+    private static final AtomicInteger PAUSED_CHANNELS = new AtomicInteger();
+
+    // 每个连接一个Handler，字典只在该连接上有效，首次收到字典编码的数据时创建
+    private DictionaryDecoder dictionaryDecoder;
+
+    // 以下字段只在连接的事件循环中访问
+    // 缓存已满时暂停读取，已读出但未写入缓存的数据按顺序暂存，恢复之后再写入
+    private final Queue<PendingData> pendingData = new ArrayDeque<PendingData>();
+    private long pausedSince = -1;
+    private long pauseCount = 0;
+    private long pausedTime = 0;
 
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, byte[] msg) throws Exception {
         Thread.currentThread().setName("ServerReceiver");
         // 当接受到这条消息的是空，则忽略
         if (msg != null && msg.length >= 0 && msg.length < Config.DataPackage.MAX_DATA_PACKAGE) {
-            DataBufferThreadContainer.getDataBufferThread().saveTemporarily(msg);
+            try {
+                save(ctx, msg);
+            } catch (IllegalStateException e) {
+                // 字典状态已不可信，关闭连接，由采集端重建连接和字典
+                logger.error("Failed to decode data from " + ctx.channel().remoteAddress() + ", close the channel.", e);
+                ServerHealthCollector.getCurrentHeathReading("receiver").updateData(ServerHeathReading.ERROR,
+                        "Failed to decode data, channel closed. Cause:" + e.getMessage());
+                ctx.close();
+            }
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (pausedSince >= 0) {
+            // 连接断开，暂存的数据由采集端重发或丢弃
+            recordResumed(ctx);
+            pendingData.clear();
+        }
+        super.channelInactive(ctx);
+    }
+
+    private void save(ChannelHandlerContext ctx, byte[] msg) {
+        PendingData data;
+        if (BatchFrame.isAckedBatch(msg)) {
+            // 应答模式，数据写入缓存文件之后应答
+            data = new PendingData(decode(msg, BatchFrame.HEADER_LENGTH),
+                    new AckCallback(ctx.channel(), BatchFrame.getSequence(msg)));
+        } else {
+            data = new PendingData(decode(msg, 0), null);
+        }
+
+        if (pausedSince >= 0) {
+            // 暂停读取之前已读出的数据
+            pendingData.offer(data);
+            return;
+        }
+        DataBufferThread dataBufferThread = DataBufferThreadContainer.getDataBufferThread();
+        if (!dataBufferThread.trySaveTemporarily(data.data, data.afterWrittenCallback)) {
+            pendingData.offer(data);
+            pause(ctx, dataBufferThread);
+        }
+    }
+
+    /**
+     * 缓存已满，暂停读取该连接，不阻塞事件循环中的其他连接
+     */
+    private void pause(ChannelHandlerContext ctx, DataBufferThread dataBufferThread) {
+        pausedSince = System.currentTimeMillis();
+        pauseCount++;
+        TOTAL_PAUSE_COUNT.incrementAndGet();
+        PAUSED_CHANNELS.incrementAndGet();
+        ctx.channel().config().setAutoRead(false);
+        if (Config.Server.BUSY_FRAME_ENABLE) {
+            ctx.writeAndFlush(BatchFrame.newBusy());
+        }
+        ServerHealthCollector.getCurrentHeathReading("receiver").updateData(ServerHeathReading.WARNING,
+                "DataBuffer is full, pause reading channel " + ctx.channel().remoteAddress() + ".");
+        dataBufferThread.resumeWhenAvailable(new ResumeTask(ctx));
+    }
+
+    /**
+     * 按顺序写入暂存的数据，全部写入之后恢复读取；再次写满时继续等待
+     */
+    private void resume(ChannelHandlerContext ctx) {
+        if (pausedSince < 0 || !ctx.channel().isActive()) {
+            return;
+        }
+        PendingData data;
+        while ((data = pendingData.peek()) != null) {
+            DataBufferThread dataBufferThread = DataBufferThreadContainer.getDataBufferThread();
+            if (!dataBufferThread.trySaveTemporarily(data.data, data.afterWrittenCallback)) {
+                dataBufferThread.resumeWhenAvailable(new ResumeTask(ctx));
+                return;
+            }
+            pendingData.poll();
+        }
+        recordResumed(ctx);
+        ctx.channel().config().setAutoRead(true);
+        if (Config.Server.BUSY_FRAME_ENABLE) {
+            ctx.writeAndFlush(BatchFrame.newResume());
+        }
+    }
+
+    private void recordResumed(ChannelHandlerContext ctx) {
+        long paused = System.currentTimeMillis() - pausedSince;
+        pausedSince = -1;
+        pausedTime += paused;
+        TOTAL_PAUSED_TIME.addAndGet(paused);
+        PAUSED_CHANNELS.decrementAndGet();
+        ServerHealthCollector.getCurrentHeathReading("receiver").updateData(ServerHeathReading.INFO,
+                "channel " + ctx.channel().remoteAddress() + " resumed after " + paused + "ms, paused " + pauseCount
+                        + " times, " + pausedTime + "ms in total. all channels paused " + TOTAL_PAUSE_COUNT.get()
+                        + " times, " + TOTAL_PAUSED_TIME.get() + "ms in total, " + PAUSED_CHANNELS.get()
+                        + " channels pausing now.");
+    }
+
+    /**
+     * 去掉帧头，并在写入缓存文件之前还原字典编码的数据
+     */
+    private byte[] decode(byte[] msg, int offset) {
+        if (!DictionaryFrame.isDictionaryBatch(msg, offset)) {
+            return offset == 0 ? msg : Arrays.copyOfRange(msg, offset, msg.length);
+        }
+        if (dictionaryDecoder == null) {
+            dictionaryDecoder = new DictionaryDecoder(Config.Server.MAX_DICTIONARY_SIZE);
+        }
+        return dictionaryDecoder.decode(msg, offset);
+    }
+
+    private static class PendingData {
+        private final byte[] data;
+        private final Runnable afterWrittenCallback;
+
+        private PendingData(byte[] data, Runnable afterWrittenCallback) {
+            this.data = data;
+            this.afterWrittenCallback = afterWrittenCallback;
+        }
+    }
+
+    /**
+     * 由DataBufferThread在腾出空间之后调用，切换到连接的事件循环中恢复
+     */
+    private class ResumeTask implements Runnable {
+        private final ChannelHandlerContext ctx;
+
+        private ResumeTask(ChannelHandlerContext ctx) {
+            this.ctx = ctx;
+        }
+
+        @Override
+        public void run() {
+            ctx.executor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    resume(ctx);
+                }
+            });
+        }
+    }
+
+    private static class AckCallback implements Runnable {
+        private final Channel channel;
+        private final long sequence;
+
+        private AckCallback(Channel channel, long sequence) {
+            this.channel = channel;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            if (channel.isActive()) {
+                channel.writeAndFlush(BatchFrame.newAck(sequence));
+            }
         }
     }
 }
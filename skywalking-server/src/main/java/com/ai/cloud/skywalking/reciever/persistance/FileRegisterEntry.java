@@ -2,7 +2,7 @@ package com.ai.cloud.skywalking.reciever.persistance;
 
 public class FileRegisterEntry {
     private String fileName;
-    private int offset;
+    private long offset;
     private FileRegisterEntryStatus status;
 
     public FileRegisterEntry() {
@@ -12,12 +12,12 @@ public class FileRegisterEntry {
         this.fileName = fileName;
     }
 
-    public FileRegisterEntry(String fileName, int offset) {
+    public FileRegisterEntry(String fileName, long offset) {
         this.fileName = fileName;
         this.offset = offset;
     }
 
-    public FileRegisterEntry(String fileName, int offset, FileRegisterEntryStatus status) {
+    public FileRegisterEntry(String fileName, long offset, FileRegisterEntryStatus status) {
         this.fileName = fileName;
         this.offset = offset;
         this.status = status;
@@ -31,11 +31,11 @@ public class FileRegisterEntry {
         this.fileName = fileName;
     }
 
-    public int getOffset() {
+    public long getOffset() {
         return offset;
     }
 
-    public void setOffset(int offset) {
+    public void setOffset(long offset) {
         this.offset = offset;
     }
 
@@ -7,8 +7,11 @@ import org.apache.logging.log4j.Logger;
 import java.io.*;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import static com.ai.cloud.skywalking.reciever.conf.Config.RegisterPersistence.*;
@@ -16,19 +19,27 @@ import static com.ai.cloud.skywalking.reciever.conf.Config.RegisterPersistence.*
 public class MemoryRegister {
     private Logger logger = LogManager.getLogger(MemoryRegister.class);
     private Map<String, FileRegisterEntry> entries = new ConcurrentHashMap<String, FileRegisterEntry>();
-    private File file;
+    // 上次检查点之后变化的文件名，检查点只写入这些记录
+    private Set<String> dirtyEntries = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private RegisterJournal journal;
+    // 旧版本的偏移量文件，第一次检查点落盘之后删除
+    private boolean legacyFileLoaded;
+    private long lastForceTime = System.currentTimeMillis();
+    // 已写入检查点日志、尚未fsync
+    private boolean unforcedChanges;
     private static MemoryRegister memoryRegister = new MemoryRegister();
 
     public static MemoryRegister instance() {
         return memoryRegister;
     }
 
-    public void updateOffSet(String fileName, int offset) {
+    public void updateOffSet(String fileName, long offset) {
         if (logger.isDebugEnabled()) {
             logger.debug("Register entry[{}] offset[{}] into the memory register", fileName, offset);
         }
         if (entries.containsKey(fileName)) {
             entries.get(fileName).setOffset(offset);
+            dirtyEntries.add(fileName);
         }
     }
 
@@ -38,12 +49,14 @@ public class MemoryRegister {
         }
         if (entries.containsKey(fileName)) {
             entries.get(fileName).setStatus(FileRegisterEntry.FileRegisterEntryStatus.UNREGISTER);
+            dirtyEntries.add(fileName);
         }
     }
 
 
     public void removeEntry(String fileName) {
         entries.remove(fileName);
+        dirtyEntries.add(fileName);
     }
 
     public synchronized FileRegisterEntry doRegister(String fileName) {
@@ -62,11 +75,13 @@ public class MemoryRegister {
                 // 没有被别的线程处理
                 entry = entries.get(fileName);
                 entry.setStatus(FileRegisterEntry.FileRegisterEntryStatus.REGISTER);
+                dirtyEntries.add(fileName);
             }
         } else {
             // 以前没有被注册过的
             entry = new FileRegisterEntry(fileName, 0, FileRegisterEntry.FileRegisterEntryStatus.REGISTER);
             entries.put(fileName, entry);
+            dirtyEntries.add(fileName);
         }
 
         return entry;
@@ -77,27 +92,89 @@ public class MemoryRegister {
         return entries.values();
     }
 
-    public int getOffSet(String fileName) {
+    public long getOffSet(String fileName) {
         if (entries.containsKey(fileName)) {
             return entries.get(fileName).getOffset();
         }
         return -1;
     }
 
-    private void checkOffSetExists() {
-        file = new File(REGISTER_FILE_PARENT_DIRECTORY, REGISTER_FILE_NAME);
+    /**
+     * 将上次检查点之后变化的记录追加到检查点日志，按JOURNAL_FSYNC_POLICY落盘，日志过大时压缩<br/>
+     * 只由RegisterPersistenceThread调用
+     *
+     * @return 写入的记录数
+     */
+    public int checkpoint() throws IOException {
+        int count = 0;
+        Iterator<String> iterator = dirtyEntries.iterator();
+        while (iterator.hasNext()) {
+            String fileName = iterator.next();
+            // 先移除再读取，读取之后的修改会重新标记，在下次检查点写入
+            iterator.remove();
+            journal.append(fileName, entries.get(fileName));
+            count++;
+        }
+
+        if (count > 0 || legacyFileLoaded) {
+            unforcedChanges = true;
+        }
+        long now = System.currentTimeMillis();
+        boolean force = unforcedChanges && (legacyFileLoaded || "checkpoint".equals(JOURNAL_FSYNC_POLICY)
+                || ("interval".equals(JOURNAL_FSYNC_POLICY) && now - lastForceTime >= JOURNAL_FSYNC_INTERVAL));
+        journal.commit(force);
+        if (force) {
+            lastForceTime = now;
+            unforcedChanges = false;
+        }
+
+        if (legacyFileLoaded) {
+            new File(REGISTER_FILE_PARENT_DIRECTORY, REGISTER_FILE_NAME).delete();
+            new File(REGISTER_FILE_PARENT_DIRECTORY, REGISTER_BAK_FILE_NAME).delete();
+            legacyFileLoaded = false;
+        }
 
+        if (journal.needsCompaction(entries.size(), JOURNAL_COMPACT_RATIO, JOURNAL_COMPACT_MIN_RECORDS)) {
+            logger.info("Compact the offset journal, live entries size [{}]", entries.size());
+            journal.compact(entries.values());
+        }
+        return count;
+    }
+
+    /**
+     * 读取旧版本的偏移量文件，偏移量文件不存在时读取备份文件<br/>
+     * 旧文件在其记录写入检查点日志并落盘之后才删除，因此可能与检查点日志同时存在
+     */
+    private void loadLegacyFile(List<String> bufferFileNameList) throws IOException {
+        File file = new File(REGISTER_FILE_PARENT_DIRECTORY, REGISTER_FILE_NAME);
         if (!file.exists()) {
-            try {
-                file.createNewFile();
-            } catch (IOException e) {
-                logger.error("Create offset filed failed", e);
+            file = new File(REGISTER_FILE_PARENT_DIRECTORY, REGISTER_BAK_FILE_NAME);
+            if (!file.exists()) {
+                return;
             }
         }
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            String offsetData;
+            while ((offsetData = reader.readLine()) != null && !"EOF".equals(offsetData)) {
+                try {
+                    String[] ss = offsetData.split("\t");
+                    // 检查点日志中的记录更新
+                    if (bufferFileNameList.contains(ss[0]) && !entries.containsKey(ss[0])) {
+                        entries.put(ss[0], new FileRegisterEntry(ss[0], Long.valueOf(ss[1]), FileRegisterEntry.FileRegisterEntryStatus.UNREGISTER));
+                        dirtyEntries.add(ss[0]);
+                    }
+                } catch (Exception e) {
+                    continue;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        legacyFileLoaded = true;
     }
 
     private MemoryRegister() {
-        BufferedReader reader;
         // 在处理数据之前需要初始化处理文件的处理状态
 
         //去掉entries中无法与缓存数据文件匹配的文件
@@ -105,47 +182,24 @@ public class MemoryRegister {
         //上次未处理的缓存数据文件，entries内的数据主要以缓存
         List<String> bufferFileNameList = Arrays.asList(parentDir.list());
 
+        File offsetParentDir = new File(REGISTER_FILE_PARENT_DIRECTORY);
+        if (!offsetParentDir.exists()) {
+            offsetParentDir.mkdirs();
+        }
+        journal = new RegisterJournal(new File(REGISTER_FILE_PARENT_DIRECTORY, REGISTER_JOURNAL_FILE_NAME));
         try {
-            // 读取offset文件
-            file = new File(REGISTER_FILE_PARENT_DIRECTORY, REGISTER_FILE_NAME);
-            // offset File不存在
-            if (!file.exists()) {
-                File offsetBackUpFile = new File(REGISTER_FILE_PARENT_DIRECTORY, REGISTER_BAK_FILE_NAME);
-                // offset备份文件存在
-                if (offsetBackUpFile.exists()) {
-                    reader = new BufferedReader(new FileReader(offsetBackUpFile));
-                    String offsetData;
-                    while ((offsetData = reader.readLine()) != null && !"EOF".equals(offsetData)) {
-                        String[] ss = offsetData.split("\t");
-                        if (bufferFileNameList.contains(ss[0])) {
-                            entries.put(ss[0], new FileRegisterEntry(ss[0], Integer.valueOf(ss[1]), FileRegisterEntry.FileRegisterEntryStatus.UNREGISTER));
-                        }
-                    }
-                }
-                // 创建offset文件
-                file.createNewFile();
-            } else {
-                // 如果存在
-                reader = new BufferedReader(new FileReader(file));
-                String offsetData;
-                while ((offsetData = reader.readLine()) != null && !"EOF".equals(offsetData)) {
-                    try {
-                        String[] ss = offsetData.split("\t");
-                        if (bufferFileNameList.contains(ss[0])) {
-                            entries.put(ss[0], new FileRegisterEntry(ss[0], Integer.valueOf(ss[1]), FileRegisterEntry.FileRegisterEntryStatus.UNREGISTER));
-                        }
-                    } catch (Exception e) {
-                        continue;
-                    }
+            for (FileRegisterEntry entry : journal.replay().values()) {
+                if (bufferFileNameList.contains(entry.getFileName())) {
+                    entry.setStatus(FileRegisterEntry.FileRegisterEntryStatus.UNREGISTER);
+                    entries.put(entry.getFileName(), entry);
+                } else {
+                    // 已处理完的文件，写入删除记录，压缩时不再保留
+                    dirtyEntries.add(entry.getFileName());
                 }
             }
-
-
-        } catch (FileNotFoundException e) {
-            logger.error("The offset file does not exist.", e);
-            checkOffSetExists();
+            loadLegacyFile(bufferFileNameList);
         } catch (IOException e) {
-            logger.error("Read data from offset file failed.", e);
+            logger.error("Read data from offset journal failed.", e);
         }
     }
 }
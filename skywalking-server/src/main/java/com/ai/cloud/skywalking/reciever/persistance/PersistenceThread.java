@@ -1,5 +1,8 @@
 package com.ai.cloud.skywalking.reciever.persistance;
 
+import com.ai.cloud.skywalking.reciever.buffer.SegmentFile;
+import com.ai.cloud.skywalking.reciever.buffer.SegmentIndex;
+import com.ai.cloud.skywalking.reciever.buffer.SegmentReader;
 import com.ai.cloud.skywalking.reciever.conf.Config;
 import com.ai.cloud.skywalking.reciever.selfexamination.ServerHealthCollector;
 import com.ai.cloud.skywalking.reciever.selfexamination.ServerHeathReading;
@@ -10,11 +13,17 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 
+import static com.ai.cloud.skywalking.reciever.conf.Config.Buffer.DATA_FILE_MAX_LENGTH;
 import static com.ai.cloud.skywalking.reciever.conf.Config.Persistence.*;
 
 public class PersistenceThread extends Thread {
 
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
 	private Logger logger = LogManager.getLogger(PersistenceThread.class);
 
 	PersistenceThread(int threadIdx) {
@@ -24,8 +33,6 @@ public class PersistenceThread extends Thread {
 	@Override
 	public void run() {
 		File file1 = null;
-		BufferedReader bufferedReader = null;
-		int offset;
 		while (true) {
 			try {
 				file1 = getDataFiles();
@@ -38,83 +45,10 @@ public class PersistenceThread extends Thread {
 					continue;
 				}
 
-				bufferedReader = new BufferedReader(new FileReader(file1));
-				offset = moveOffSet(file1, bufferedReader);
-				if (logger.isDebugEnabled()) {
-					logger.debug("Get file[{}] offset [{}]", file1.getName(),
-							offset);
-				}
-				StringBuilder stringBuilder = new StringBuilder(
-						MAX_STORAGE_SIZE_PER_TIME);
-				String tmpData;
-				while (true) {
-					tmpData = bufferedReader.readLine();
-					// 文件结束
-					if (tmpData == null) {
-						if (stringBuilder != null && stringBuilder.length() > 0) {
-							MemoryRegister.instance().updateOffSet(
-									file1.getName(), offset);
-							StorageChainController.doStorage(stringBuilder
-									.toString());
-							stringBuilder.delete(0, stringBuilder.length());
-						}
-
-						try {
-							Thread.sleep(READ_ENDING_FILE_MAX_WAITE_TIME);
-						} catch (InterruptedException e) {
-							logger.error("Sleep failed", e);
-						}
-
-						continue;
-					}
-
-					// 文件读入/n字符串
-					if (tmpData.length() <= 0) {
-						// 加上回车的字符串长度
-						offset += 1;
-						continue;
-					}
-
-					ServerHealthCollector.getCurrentHeathReading(null)
-							.updateData(
-									ServerHeathReading.INFO,
-									"read " + tmpData.length()
-											+ " chars from local file:"
-											+ file1.getName());
-
-					if ("EOF".equals(tmpData)) {
-						if (stringBuilder != null && stringBuilder.length() > 0) {
-							StorageChainController.doStorage(stringBuilder
-									.toString());
-						}
-
-						bufferedReader.close();
-						logger.info(
-								"Data in file[{}] has been successfully processed",
-								file1.getName());
-						boolean deleteSuccess = false;
-						while (!deleteSuccess) {
-							deleteSuccess = FileUtils.deleteQuietly(new File(
-									file1.getParent(), file1.getName()));
-						}
-						logger.info("Delete file[{}] {}", file1.getName(),
-								(deleteSuccess ? "success" : "failed"));
-
-						MemoryRegister.instance().removeEntry(file1.getName());
-						break;
-					}
-
-					if (stringBuilder.length() + tmpData.length() >= MAX_STORAGE_SIZE_PER_TIME) {
-						StorageChainController.doStorage(stringBuilder
-								.toString());
-						stringBuilder.delete(0, stringBuilder.length());
-						MemoryRegister.instance().updateOffSet(file1.getName(),
-								offset);
-					}
-
-					stringBuilder.append(tmpData);
-					// 加上回车的字符串长度
-					offset += tmpData.length() + 1;
+				if (SegmentFile.isSegmentFile(file1)) {
+					processSegmentFile(file1);
+				} else {
+					processTextFile(file1);
 				}
 			} catch (FileNotFoundException e) {
 				logger.error("The data file could not be found.", e);
@@ -136,12 +70,6 @@ public class PersistenceThread extends Thread {
 				}catch (Throwable t) {
 					logger.error("unRegister file[{}] failure", file1.getName(), t);
 				}
-				try {
-					if (bufferedReader != null)
-						bufferedReader.close();
-				} catch (IOException e) {
-					logger.error("can't close data file", e);
-				}
 			}
 
 			try {
@@ -152,22 +80,220 @@ public class PersistenceThread extends Thread {
 		}
 	}
 
-	private int moveOffSet(File file1, BufferedReader bufferedReader)
-			throws IOException {
-		int offset = MemoryRegister.instance().getOffSet(file1.getName());
-		if (-1 == offset || offset == 0) {
-			offset = 0;
-		} else {
-			char[] cha = new char[STEP_SIZE_FOR_LOCATING_FILE_OFFSET];
-			int length = 0;
-			while (length + STEP_SIZE_FOR_LOCATING_FILE_OFFSET < offset) {
-				length += STEP_SIZE_FOR_LOCATING_FILE_OFFSET;
-				bufferedReader.read(cha);
+	/**
+	 * 读取分段日志格式的文件，读到文件尾之后删除；没有文件尾且不再写入的文件，读到最后一条校验通过的记录为止
+	 */
+	private void processSegmentFile(File file1) throws IOException {
+		SegmentReader reader = new SegmentReader(file1, DATA_FILE_MAX_LENGTH);
+		try {
+			// 文件头在创建文件之后写入，可能尚不完整
+			SegmentReader.Status status;
+			while ((status = reader.readHeader()) != SegmentReader.Status.RECORD) {
+				if (!SegmentFile.isActive(file1.getName())) {
+					logger.warn("Data file[{}] has no valid header, status:{}.", file1.getName(), status);
+					deleteDataFile(file1);
+					return;
+				}
+				waitForData(READ_ENDING_FILE_MAX_WAITE_TIME);
+			}
+
+			long offset = MemoryRegister.instance().getOffSet(file1.getName());
+			if (offset > SegmentFile.HEADER_LENGTH) {
+				reader.position(locateRecord(file1, reader, offset));
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Get file[{}] offset [{}]", file1.getName(), reader.position());
+			}
+
+			StringBuilder stringBuilder = new StringBuilder(MAX_STORAGE_SIZE_PER_TIME);
+			boolean writerClosed = false;
+			while (true) {
+				long recordPosition = reader.position();
+				status = reader.next();
+				if (status == SegmentReader.Status.RECORD) {
+					String tmpData = new String(reader.getRecord(), UTF_8);
+					ServerHealthCollector.getCurrentHeathReading(null).updateData(ServerHeathReading.INFO,
+							"read " + tmpData.length() + " chars from local file:" + file1.getName());
+					if (stringBuilder.length() > 0
+							&& stringBuilder.length() + tmpData.length() >= MAX_STORAGE_SIZE_PER_TIME) {
+						StorageChainController.doStorage(stringBuilder.toString());
+						stringBuilder.delete(0, stringBuilder.length());
+						MemoryRegister.instance().updateOffSet(file1.getName(), recordPosition);
+					}
+					stringBuilder.append(tmpData);
+					continue;
+				}
+
+				if (stringBuilder.length() > 0) {
+					StorageChainController.doStorage(stringBuilder.toString());
+					stringBuilder.delete(0, stringBuilder.length());
+					MemoryRegister.instance().updateOffSet(file1.getName(), recordPosition);
+				}
+
+				if (status == SegmentReader.Status.SEALED) {
+					logger.info("Data in file[{}] has been successfully processed", file1.getName());
+					deleteDataFile(file1);
+					return;
+				}
+
+				if (writerClosed) {
+					// 崩溃遗留的文件没有文件尾，之后的数据未写完，校验失败
+					logger.warn("Data file[{}] is not sealed, the torn tail of {} bytes after offset {} is discarded, status:{}.",
+							file1.getName(), reader.remaining(), recordPosition, status);
+					deleteDataFile(file1);
+					return;
+				}
+				if (!SegmentFile.isActive(file1.getName())) {
+					// 写入线程可能刚写入文件尾并注销，再读取一次
+					writerClosed = true;
+					continue;
+				}
+				waitForData(READ_ENDING_FILE_MAX_WAITE_TIME);
+			}
+		} finally {
+			try {
+				reader.close();
+			} catch (IOException e) {
+				logger.error("can't close data file", e);
 			}
-			bufferedReader.read(cha, 0, Math.abs(offset - length));
-			cha = null;
 		}
-		return offset;
+	}
+
+	/**
+	 * 从稀疏索引中不大于offset的位置开始逐条校验，确认offset是记录边界<br/>
+	 * 崩溃时已登记的偏移量可能超出实际写入的数据，此时从最后一条校验通过的记录之后开始读取
+	 *
+	 * @return 开始读取的位置
+	 */
+	private long locateRecord(File file1, SegmentReader reader, long offset) throws IOException {
+		long from = SegmentIndex.floor(file1, offset);
+		reader.position(from);
+		if (from > SegmentFile.HEADER_LENGTH && reader.next() != SegmentReader.Status.RECORD) {
+			// 索引先于数据落盘，索引位置处没有数据
+			from = SegmentFile.HEADER_LENGTH;
+		}
+		reader.position(from);
+		// 校验的数据量不超过INDEX_INTERVAL
+		long position = from;
+		while (position < offset && reader.next() == SegmentReader.Status.RECORD && reader.position() <= offset) {
+			position = reader.position();
+		}
+		if (position != offset) {
+			logger.warn("Offset {} of file[{}] is not a valid record boundary, resume from {}.", offset,
+					file1.getName(), position);
+		}
+		return position;
+	}
+
+	/**
+	 * 读取旧版本遗留的文本格式文件，以EOF行结束，偏移量为字节数
+	 */
+	private void processTextFile(File file1) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file1, "r");
+		try {
+			FileChannel channel = randomAccessFile.getChannel();
+			long offset = MemoryRegister.instance().getOffSet(file1.getName());
+			if (offset < 0 || offset > channel.size()) {
+				if (offset > 0) {
+					logger.warn("Offset {} of file[{}] exceeds file size {}, resume from 0.", offset,
+							file1.getName(), channel.size());
+				}
+				offset = 0;
+			}
+			channel.position(offset);
+			if (logger.isDebugEnabled()) {
+				logger.debug("Get file[{}] offset [{}]", file1.getName(),
+						offset);
+			}
+			TextLineReader lineReader = new TextLineReader(channel);
+			StringBuilder stringBuilder = new StringBuilder(
+					MAX_STORAGE_SIZE_PER_TIME);
+			byte[] line;
+			while (true) {
+				line = lineReader.readLine();
+				// 文件结束
+				if (line == null) {
+					if (stringBuilder.length() > 0) {
+						MemoryRegister.instance().updateOffSet(
+								file1.getName(), offset);
+						StorageChainController.doStorage(stringBuilder
+								.toString());
+						stringBuilder.delete(0, stringBuilder.length());
+					}
+
+					waitForData(READ_ENDING_FILE_MAX_WAITE_TIME);
+					continue;
+				}
+
+				// 文件读入/n字符串
+				if (line.length <= 0) {
+					// 加上回车的字节数
+					offset += 1;
+					continue;
+				}
+
+				String tmpData = new String(line, UTF_8);
+				ServerHealthCollector.getCurrentHeathReading(null)
+						.updateData(
+								ServerHeathReading.INFO,
+								"read " + tmpData.length()
+										+ " chars from local file:"
+										+ file1.getName());
+
+				if ("EOF".equals(tmpData)) {
+					if (stringBuilder.length() > 0) {
+						StorageChainController.doStorage(stringBuilder
+								.toString());
+					}
+
+					randomAccessFile.close();
+					logger.info(
+							"Data in file[{}] has been successfully processed",
+							file1.getName());
+					deleteDataFile(file1);
+					break;
+				}
+
+				if (stringBuilder.length() + tmpData.length() >= MAX_STORAGE_SIZE_PER_TIME) {
+					StorageChainController.doStorage(stringBuilder
+							.toString());
+					stringBuilder.delete(0, stringBuilder.length());
+					MemoryRegister.instance().updateOffSet(file1.getName(),
+							offset);
+				}
+
+				stringBuilder.append(tmpData);
+				// 加上回车的字节数
+				offset += line.length + 1;
+			}
+		} finally {
+			try {
+				randomAccessFile.close();
+			} catch (IOException e) {
+				logger.error("can't close data file", e);
+			}
+		}
+	}
+
+	private void deleteDataFile(File file1) {
+		boolean deleteSuccess = false;
+		while (!deleteSuccess) {
+			deleteSuccess = FileUtils.deleteQuietly(new File(
+					file1.getParent(), file1.getName()));
+		}
+		logger.info("Delete file[{}] {}", file1.getName(),
+				(deleteSuccess ? "success" : "failed"));
+		FileUtils.deleteQuietly(SegmentIndex.indexFile(file1));
+
+		MemoryRegister.instance().removeEntry(file1.getName());
+	}
+
+	private void waitForData(long time) {
+		try {
+			Thread.sleep(time);
+		} catch (InterruptedException e) {
+			logger.error("Sleep failed", e);
+		}
 	}
 
 	private File getDataFiles() {
@@ -196,4 +322,42 @@ public class PersistenceThread extends Thread {
 
 		return file1;
 	}
+
+	/**
+	 * 按字节读取以\n分隔的行，便于按字节数记录偏移量<br/>
+	 * 读到文件末尾时，没有换行符的部分暂存，文件追加数据之后继续读取
+	 */
+	static class TextLineReader {
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocate(8 * 1024);
+		private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+		TextLineReader(FileChannel channel) {
+			this.channel = channel;
+			buffer.flip();
+		}
+
+		/**
+		 * @return 不含换行符的一行，没有完整的行时返回null
+		 */
+		byte[] readLine() throws IOException {
+			while (true) {
+				while (buffer.hasRemaining()) {
+					byte b = buffer.get();
+					if (b == '\n') {
+						byte[] result = line.toByteArray();
+						line.reset();
+						return result;
+					}
+					line.write(b);
+				}
+				buffer.clear();
+				int length = channel.read(buffer);
+				buffer.flip();
+				if (length <= 0) {
+					return null;
+				}
+			}
+		}
+	}
 }
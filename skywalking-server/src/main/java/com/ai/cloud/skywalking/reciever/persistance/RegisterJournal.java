@@ -0,0 +1,214 @@
+package com.ai.cloud.skywalking.reciever.persistance;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 偏移量注册的检查点日志，只追加变化的记录，启动时按顺序重放<br/>
+ * 记录：4位数据长度 + 4位数据的CRC32 + 数据(1位类型 + 文件名 + 8位偏移量 + 1位状态)<br/>
+ * 崩溃时最后一条记录可能未写完，重放时截断到最后一条校验通过的记录<br/>
+ * 压缩时将存活的记录写入临时文件，fsync之后原子替换日志文件
+ */
+public class RegisterJournal implements Closeable {
+    private static final byte UPDATE = 0;
+    private static final byte REMOVE = 1;
+    private static final int RECORD_HEADER_LENGTH = 8;
+    // 文件名最长65535字节，超过该长度的记录视为损坏
+    private static final int MAX_RECORD_LENGTH = 64 * 1024;
+    private static final String COMPACT_FILE_SUFFIX = ".compact";
+
+    private Logger logger = LogManager.getLogger(RegisterJournal.class);
+    private final File file;
+    private RandomAccessFile randomAccessFile;
+    private FileChannel channel;
+    private final ByteArrayOutputStream staging = new ByteArrayOutputStream();
+    // 日志文件中的记录数
+    private long recordCount;
+
+    public RegisterJournal(File file) {
+        this.file = file;
+    }
+
+    /**
+     * 重放日志，截断崩溃时未写完的记录，之后可以追加
+     *
+     * @return 文件名及其最后一次记录的状态，已删除的文件不包含在内
+     */
+    public Map<String, FileRegisterEntry> replay() throws IOException {
+        Map<String, FileRegisterEntry> entries = new LinkedHashMap<String, FileRegisterEntry>();
+        long validLength = 0;
+        recordCount = 0;
+        if (file.exists()) {
+            DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                byte[] payload;
+                while ((payload = readRecord(inputStream)) != null) {
+                    applyRecord(entries, payload);
+                    validLength += RECORD_HEADER_LENGTH + payload.length;
+                    recordCount++;
+                }
+            } finally {
+                inputStream.close();
+            }
+        }
+
+        openForAppend();
+        if (channel.size() > validLength) {
+            logger.warn("The offset journal[{}] has a torn tail of {} bytes, truncate to {}.", file.getName(),
+                    channel.size() - validLength, validLength);
+            channel.truncate(validLength);
+        }
+        channel.position(validLength);
+        return entries;
+    }
+
+    /**
+     * 暂存一条记录，调用{@link #commit(boolean)}之后写入文件
+     *
+     * @param fileName
+     * @param entry    为null时表示文件已删除
+     */
+    public void append(String fileName, FileRegisterEntry entry) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream outputStream = new DataOutputStream(payload);
+        if (entry == null) {
+            outputStream.writeByte(REMOVE);
+            outputStream.writeUTF(fileName);
+        } else {
+            outputStream.writeByte(UPDATE);
+            outputStream.writeUTF(fileName);
+            outputStream.writeLong(entry.getOffset());
+            outputStream.writeByte(entry.getStatus() == null ? -1 : entry.getStatus().ordinal());
+        }
+        outputStream.flush();
+        writeRecord(new DataOutputStream(staging), payload.toByteArray());
+        recordCount++;
+    }
+
+    /**
+     * 将暂存的记录一次写入文件
+     *
+     * @param force 是否fsync
+     */
+    public void commit(boolean force) throws IOException {
+        if (staging.size() > 0) {
+            ByteBuffer data = ByteBuffer.wrap(staging.toByteArray());
+            staging.reset();
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+        if (force) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * @param liveEntries 存活的记录数
+     * @return 日志中的记录数是否超过存活记录数的compactRatio倍，且不少于minRecords
+     */
+    public boolean needsCompaction(int liveEntries, int compactRatio, int minRecords) {
+        return recordCount >= minRecords && recordCount > (long) liveEntries * compactRatio;
+    }
+
+    /**
+     * 只保留存活的记录，写入临时文件并fsync之后替换日志文件
+     */
+    public void compact(Collection<FileRegisterEntry> liveEntries) throws IOException {
+        commit(false);
+        File compactFile = new File(file.getParentFile(), file.getName() + COMPACT_FILE_SUFFIX);
+        FileOutputStream fileOutputStream = new FileOutputStream(compactFile);
+        long compactedCount = 0;
+        try {
+            for (FileRegisterEntry entry : liveEntries) {
+                append(entry.getFileName(), entry);
+                compactedCount++;
+            }
+            fileOutputStream.write(staging.toByteArray());
+            fileOutputStream.getChannel().force(false);
+        } finally {
+            staging.reset();
+            fileOutputStream.close();
+        }
+
+        close();
+        try {
+            Files.move(compactFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            recordCount = compactedCount;
+        } finally {
+            // 替换失败时继续追加到原日志文件
+            openForAppend();
+            channel.position(channel.size());
+        }
+    }
+
+    private void openForAppend() throws IOException {
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        channel = randomAccessFile.getChannel();
+    }
+
+    private void applyRecord(Map<String, FileRegisterEntry> entries, byte[] payload) throws IOException {
+        DataInputStream inputStream = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = inputStream.readByte();
+        String fileName = inputStream.readUTF();
+        if (type == REMOVE) {
+            entries.remove(fileName);
+            return;
+        }
+        long offset = inputStream.readLong();
+        byte status = inputStream.readByte();
+        entries.put(fileName, new FileRegisterEntry(fileName, offset,
+                status < 0 ? null : FileRegisterEntry.FileRegisterEntryStatus.values()[status]));
+    }
+
+    /**
+     * @return 校验通过的记录数据，到达文件末尾或记录损坏时返回null
+     */
+    private byte[] readRecord(DataInputStream inputStream) throws IOException {
+        try {
+            int length = inputStream.readInt();
+            int crc = inputStream.readInt();
+            if (length <= 0 || length > MAX_RECORD_LENGTH) {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            inputStream.readFully(payload);
+            return crc32(payload) == crc ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static void writeRecord(DataOutputStream outputStream, byte[] payload) throws IOException {
+        outputStream.writeInt(payload.length);
+        outputStream.writeInt(crc32(payload));
+        outputStream.write(payload);
+        outputStream.flush();
+    }
+
+    private static int crc32(byte[] data) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(data, 0, data.length);
+        return (int) crc32.getValue();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (randomAccessFile != null) {
+            randomAccessFile.close();
+            randomAccessFile = null;
+            channel = null;
+        }
+    }
+}
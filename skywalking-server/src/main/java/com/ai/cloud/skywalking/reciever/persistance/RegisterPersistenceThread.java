@@ -5,11 +5,7 @@ import com.ai.cloud.skywalking.reciever.selfexamination.ServerHeathReading;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.util.Collection;
 
 import static com.ai.cloud.skywalking.reciever.conf.Config.RegisterPersistence.*;
 
@@ -18,8 +14,6 @@ public class RegisterPersistenceThread extends Thread {
     private Logger logger = LogManager
             .getLogger(RegisterPersistenceThread.class);
 
-    private BufferedWriter writer;
-
     public RegisterPersistenceThread() {
         super("RegisterPersistenceThread");
         File offsetParentDir = new File(REGISTER_FILE_PARENT_DIRECTORY);
@@ -38,58 +32,16 @@ public class RegisterPersistenceThread extends Thread {
             }
 
             try {
-                File file = new File(REGISTER_FILE_PARENT_DIRECTORY,
-                        REGISTER_FILE_NAME);
-                File bakFile = new File(REGISTER_FILE_PARENT_DIRECTORY,
-                        REGISTER_BAK_FILE_NAME);
-                // 先删除备份文件
-                if (bakFile.exists()) {
-                    bakFile.delete();
-                }
-
-                // 将文件改名字
-                file.renameTo(bakFile);
-
-                //
-                if (!file.exists()) {
-                    file.createNewFile();
-                }
-
-                Collection<FileRegisterEntry> fileRegisterEntries = MemoryRegister
-                        .instance().getEntries();
-                logger.debug("file Register Entries size [{}]",
-                        fileRegisterEntries.size());
-                try {
-                    writer = new BufferedWriter(new FileWriter(file));
-                } catch (IOException e) {
-                    logger.error("Write The offset file anomalies.");
-                }
-
-                for (FileRegisterEntry fileRegisterEntry : fileRegisterEntries) {
-                    try {
-                        writer.write(fileRegisterEntry.toString() + "\n");
-                    } catch (IOException e) {
-                        logger.error(
-                                "Write file register entry to offset file failure", e);
-                    }
-                }
-                try {
-                    writer.write("EOF\n");
-                    writer.flush();
-                } catch (IOException e) {
-                    logger.error("Flush offset file failure", e);
-                } finally {
-                    try {
-                        writer.close();
-                    } catch (IOException e) {
-                        logger.error("close offset file failure", e);
-                    }
-                }
-            } catch (IOException e) {
-                logger.error("Failed to back up offset file.", e);
+                // 只写入上次检查点之后变化的记录
+                int count = MemoryRegister.instance().checkpoint();
+                logger.debug("checkpoint file register entries size [{}]", count);
+            } catch (Throwable e) {
+                logger.error("Write checkpoint to offset journal failure.", e);
+                ServerHealthCollector.getCurrentHeathReading(null).updateData(
+                        ServerHeathReading.ERROR, "write checkpoint to offset journal failure.");
+                continue;
             }
 
-
             ServerHealthCollector.getCurrentHeathReading(null).updateData(
                     ServerHeathReading.INFO, "flush memory register to file.");
         }
@@ -1,10 +1,13 @@
 package com.ai.cloud.skywalking.reciever.storage;
 
 import com.ai.cloud.skywalking.protocol.Span;
+import com.ai.cloud.skywalking.protocol.ViewPointMetric;
 import com.ai.cloud.skywalking.reciever.conf.Constants;
 import com.ai.cloud.skywalking.reciever.selfexamination.ServerHealthCollector;
 import com.ai.cloud.skywalking.reciever.selfexamination.ServerHeathReading;
 import com.ai.cloud.skywalking.reciever.storage.chain.AlarmChain;
+import com.ai.cloud.skywalking.reciever.storage.chain.ExceptionStackChain;
+import com.ai.cloud.skywalking.reciever.storage.chain.SaveMetricToHBase;
 import com.ai.cloud.skywalking.reciever.storage.chain.SaveToHBaseChain;
 import com.ai.cloud.skywalking.reciever.storage.chain.SaveToMySQLChain;
 import org.apache.logging.log4j.LogManager;
@@ -23,6 +26,7 @@ public class StorageChainController {
 
     static {
         if (STORAGE_TYPE.equalsIgnoreCase("hbase")) {
+            chainArray.add(new ExceptionStackChain());
             chainArray.add(new AlarmChain());
             chainArray.add(new SaveToHBaseChain());
         } else if (STORAGE_TYPE.equalsIgnoreCase("mysql")) {
@@ -38,11 +42,16 @@ public class StorageChainController {
             return;
         }
         List<Span> spans = new ArrayList<Span>();
+        List<ViewPointMetric> metrics = new ArrayList<ViewPointMetric>();
         for (String buriedPoint : buriedPointData) {
             try {
                 if (buriedPoint == null || buriedPoint.trim().length() == 0) {
                     continue;
                 }
+                if (ViewPointMetric.isMetric(buriedPoint)) {
+                    metrics.add(new ViewPointMetric(buriedPoint));
+                    continue;
+                }
                 spans.add(new Span(buriedPoint));
             } catch (Throwable e) {
                 logger.error("ready to save buriedPoint error, choose to ignore. data="
@@ -58,5 +67,23 @@ public class StorageChainController {
             ServerHealthCollector.getCurrentHeathReading("storage-chain").updateData(ServerHeathReading.ERROR,
                     "Failed to storage chain.Cause:" + e.getMessage());
         }
+
+        if (!metrics.isEmpty()) {
+            saveMetrics(metrics);
+        }
+    }
+
+    private static void saveMetrics(List<ViewPointMetric> metrics) {
+        if (!STORAGE_TYPE.equalsIgnoreCase("hbase")) {
+            logger.warn("view point metrics are only supported by hbase storage, {} metrics ignored.", metrics.size());
+            return;
+        }
+        try {
+            SaveMetricToHBase.save(metrics);
+        } catch (Throwable e) {
+            logger.error("Failed to save view point metrics.", e);
+            ServerHealthCollector.getCurrentHeathReading("storage-chain").updateData(ServerHeathReading.ERROR,
+                    "Failed to save view point metrics.Cause:" + e.getMessage());
+        }
     }
 }
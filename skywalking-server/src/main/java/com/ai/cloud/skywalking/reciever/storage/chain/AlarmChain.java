@@ -11,7 +11,9 @@ import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.exceptions.JedisConnectionException;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static com.ai.cloud.skywalking.reciever.conf.Config.Alarm.ALARM_EXCEPTION_STACK_LENGTH;
 import static com.ai.cloud.skywalking.reciever.conf.Config.Alarm.ALARM_EXPIRE_SECONDS;
@@ -57,10 +59,11 @@ public class AlarmChain implements IStorageChain {
 
     @Override
     public void doChain(List<Span> spans, Chain chain) {
+        Map<String, String> resolvedStacks = new HashMap<String, String>();
         for (Span span : spans) {
-            if (span.getStatusCode() != 1)
+            if (span.getStatusCode() != 1 || Config.Alarm.ALARM_OFF_FLAG)
                 continue;
-            String exceptionStack = span.getExceptionStack();
+            String exceptionStack = ExceptionStackChain.resolveExceptionStack(span, resolvedStacks);
             if (exceptionStack == null) {
                 exceptionStack = "";
             } else if (exceptionStack.length() > ALARM_EXCEPTION_STACK_LENGTH) {
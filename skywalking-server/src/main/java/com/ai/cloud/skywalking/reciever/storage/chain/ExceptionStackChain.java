@@ -0,0 +1,132 @@
+package com.ai.cloud.skywalking.reciever.storage.chain;
+
+import static com.ai.cloud.skywalking.reciever.conf.Config.HBaseConfig.EXCEPTION_STACK_CACHE_SIZE;
+import static com.ai.cloud.skywalking.reciever.conf.Config.HBaseConfig.EXCEPTION_STACK_FAMILY_COLUMN_NAME;
+import static com.ai.cloud.skywalking.reciever.conf.Config.HBaseConfig.EXCEPTION_STACK_TABLE_NAME;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.ai.cloud.skywalking.protocol.Span;
+import com.ai.cloud.skywalking.reciever.selfexamination.ServerHealthCollector;
+import com.ai.cloud.skywalking.reciever.selfexamination.ServerHeathReading;
+import com.ai.cloud.skywalking.reciever.storage.Chain;
+import com.ai.cloud.skywalking.reciever.storage.IStorageChain;
+
+/**
+ * 还原去重后的错误堆栈<br/>
+ * 带有完整堆栈的Span，将指纹与堆栈文本存入HBase，供webui查询；
+ * 只带有指纹的Span保持原样存储，需要堆栈文本的处理(如告警)通过{@link #resolveExceptionStack(Span, Map)}
+ * 从本地缓存或HBase中还原，不写回Span
+ */
+public class ExceptionStackChain implements IStorageChain {
+    private static Logger logger = LogManager.getLogger(ExceptionStackChain.class);
+
+    private static final byte[] STACK_COLUMN_NAME = Bytes.toBytes("stack");
+
+    private static final Map<String, String> CACHE = new LinkedHashMap<String, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > EXCEPTION_STACK_CACHE_SIZE;
+        }
+    };
+
+    @Override
+    public void doChain(List<Span> spans, Chain chain) {
+        List<Put> puts = new ArrayList<Put>();
+        for (Span span : spans) {
+            String fingerprint = span.getExceptionFingerprint();
+            if (fingerprint == null || fingerprint.length() == 0) {
+                continue;
+            }
+            String exceptionStack = span.getExceptionStack();
+            if (exceptionStack != null && exceptionStack.length() > 0 && cache(fingerprint, exceptionStack)) {
+                Put put = new Put(Bytes.toBytes(fingerprint));
+                put.addColumn(Bytes.toBytes(EXCEPTION_STACK_FAMILY_COLUMN_NAME), STACK_COLUMN_NAME,
+                        Bytes.toBytes(exceptionStack));
+                puts.add(put);
+            }
+        }
+        save(puts);
+        chain.doChain(spans);
+    }
+
+    /**
+     * 获取Span的堆栈文本，只带有指纹时还原堆栈，不修改Span
+     *
+     * @param span
+     * @param resolved 同一批数据中已还原的指纹，相同的指纹只查询一次
+     * @return 无法还原时返回null
+     */
+    static String resolveExceptionStack(Span span, Map<String, String> resolved) {
+        String exceptionStack = span.getExceptionStack();
+        String fingerprint = span.getExceptionFingerprint();
+        if ((exceptionStack != null && exceptionStack.length() > 0) || fingerprint == null
+                || fingerprint.length() == 0) {
+            return exceptionStack;
+        }
+        if (!resolved.containsKey(fingerprint)) {
+            resolved.put(fingerprint, resolve(fingerprint));
+        }
+        return resolved.get(fingerprint);
+    }
+
+    /**
+     * @return 是否为新的指纹
+     */
+    private static boolean cache(String fingerprint, String exceptionStack) {
+        synchronized (CACHE) {
+            return CACHE.put(fingerprint, exceptionStack) == null;
+        }
+    }
+
+    private static String resolve(String fingerprint) {
+        synchronized (CACHE) {
+            String exceptionStack = CACHE.get(fingerprint);
+            if (exceptionStack != null) {
+                return exceptionStack;
+            }
+        }
+        try {
+            Table table = SaveToHBaseChain.getConnection().getTable(TableName.valueOf(EXCEPTION_STACK_TABLE_NAME));
+            Result result = table.get(new Get(Bytes.toBytes(fingerprint)));
+            byte[] value = result.getValue(Bytes.toBytes(EXCEPTION_STACK_FAMILY_COLUMN_NAME), STACK_COLUMN_NAME);
+            if (value == null) {
+                // 携带完整堆栈的Span尚未到达，或已丢失
+                return null;
+            }
+            String exceptionStack = Bytes.toString(value);
+            cache(fingerprint, exceptionStack);
+            return exceptionStack;
+        } catch (IOException e) {
+            logger.error("Failed to resolve exception stack[" + fingerprint + "].", e);
+            return null;
+        }
+    }
+
+    private static void save(List<Put> puts) {
+        if (puts.isEmpty()) {
+            return;
+        }
+        try {
+            Table table = SaveToHBaseChain.getConnection().getTable(TableName.valueOf(EXCEPTION_STACK_TABLE_NAME));
+            table.put(puts);
+        } catch (IOException e) {
+            logger.error("Failed to save exception stacks.", e);
+            ServerHealthCollector.getCurrentHeathReading("hbase").updateData(ServerHeathReading.ERROR,
+                    "save " + puts.size() + " exception stacks failure.");
+        }
+    }
+}
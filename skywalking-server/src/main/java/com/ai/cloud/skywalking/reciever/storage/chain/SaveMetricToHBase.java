@@ -0,0 +1,80 @@
+package com.ai.cloud.skywalking.reciever.storage.chain;
+
+import static com.ai.cloud.skywalking.reciever.conf.Config.HBaseConfig.METRIC_FAMILY_COLUMN_NAME;
+import static com.ai.cloud.skywalking.reciever.conf.Config.HBaseConfig.METRIC_TABLE_NAME;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.ai.cloud.skywalking.protocol.ViewPointMetric;
+import com.ai.cloud.skywalking.reciever.selfexamination.ServerHealthCollector;
+import com.ai.cloud.skywalking.reciever.selfexamination.ServerHeathReading;
+import com.ai.cloud.skywalking.reciever.storage.ChainException;
+
+/**
+ * 保存采集端预聚合的视点统计结果<br/>
+ * RowKey：应用@视点@分钟，接收端的统计结果在视点之后追加-S<br/>
+ * 列：count(数量)、cost(总耗时，单位:微秒)、h桶序号(耗时分布)，列名之后追加@进程号@地址；
+ * 每个进程每分钟只发送一次统计结果，以Put写入各自的列，重发或重放时结果不变，读取时累加同一行的各进程的列
+ */
+public class SaveMetricToHBase {
+    private static final String SOURCE_SEPARATOR = "@";
+    private static final byte[] COUNT_COLUMN_NAME = Bytes.toBytes("count");
+    private static final byte[] COST_COLUMN_NAME = Bytes.toBytes("cost");
+    private static final byte[][] HISTOGRAM_COLUMN_NAMES = new byte[ViewPointMetric.HISTOGRAM_SIZE][];
+
+    static {
+        for (int i = 0; i < ViewPointMetric.HISTOGRAM_SIZE; i++) {
+            HISTOGRAM_COLUMN_NAMES[i] = Bytes.toBytes("h" + i);
+        }
+    }
+
+    private SaveMetricToHBase() {
+        // Non
+    }
+
+    public static void save(List<ViewPointMetric> metrics) {
+        byte[] family = Bytes.toBytes(METRIC_FAMILY_COLUMN_NAME);
+        List<Put> puts = new ArrayList<Put>(metrics.size());
+        for (ViewPointMetric metric : metrics) {
+            Put put = new Put(Bytes.toBytes(rowKey(metric)));
+            byte[] source = Bytes.toBytes(SOURCE_SEPARATOR + metric.getProcessNo() + SOURCE_SEPARATOR + metric.getAddress());
+            put.addColumn(family, Bytes.add(COUNT_COLUMN_NAME, source), Bytes.toBytes(metric.getCount()));
+            put.addColumn(family, Bytes.add(COST_COLUMN_NAME, source), Bytes.toBytes(metric.getTotalCostMicros()));
+            long[] histogram = metric.getHistogram();
+            for (int i = 0; i < histogram.length; i++) {
+                if (histogram[i] != 0) {
+                    put.addColumn(family, Bytes.add(HISTOGRAM_COLUMN_NAMES[i], source), Bytes.toBytes(histogram[i]));
+                }
+            }
+            puts.add(put);
+        }
+
+        try {
+            Table table = SaveToHBaseChain.getConnection().getTable(TableName.valueOf(METRIC_TABLE_NAME));
+            table.batch(puts, new Object[puts.size()]);
+        } catch (IOException e) {
+            throw new ChainException(e);
+        } catch (InterruptedException e) {
+            throw new ChainException(e);
+        }
+
+        ServerHealthCollector.getCurrentHeathReading("hbase").updateData(ServerHeathReading.INFO,
+                "save " + metrics.size() + " view point metrics.");
+    }
+
+    private static String rowKey(ViewPointMetric metric) {
+        StringBuilder rowKey = new StringBuilder();
+        rowKey.append(metric.getApplicationId()).append('@').append(metric.getViewPointId());
+        if (metric.isReceiver()) {
+            rowKey.append("-S");
+        }
+        return rowKey.append('@').append(metric.getMinute()).toString();
+    }
+}
@@ -32,6 +32,10 @@ public class SaveToHBaseChain implements IStorageChain {
         chain.doChain(spans);
     }
 
+    static Connection getConnection() {
+        return connection;
+    }
+
     private static void initHBaseClient() throws IOException {
         if (configuration == null) {
             configuration = HBaseConfiguration.create();
@@ -49,14 +53,22 @@ public class SaveToHBaseChain implements IStorageChain {
         try {
             initHBaseClient();
             Admin admin = connection.getAdmin();
-            if (!admin.isTableAvailable(TableName.valueOf(Config.HBaseConfig.TABLE_NAME))) {
-                HTableDescriptor tableDesc = new HTableDescriptor(TableName.valueOf(Config.HBaseConfig.TABLE_NAME));
-                tableDesc.addFamily(new HColumnDescriptor(Config.HBaseConfig.FAMILY_COLUMN_NAME));
-                admin.createTable(tableDesc);
-                logger.info("Create table [{}] ok!", Config.HBaseConfig.TABLE_NAME);
-            }
+            createTableIfAbsent(admin, Config.HBaseConfig.TABLE_NAME, Config.HBaseConfig.FAMILY_COLUMN_NAME);
+            createTableIfAbsent(admin, Config.HBaseConfig.EXCEPTION_STACK_TABLE_NAME,
+                    Config.HBaseConfig.EXCEPTION_STACK_FAMILY_COLUMN_NAME);
+            createTableIfAbsent(admin, Config.HBaseConfig.METRIC_TABLE_NAME,
+                    Config.HBaseConfig.METRIC_FAMILY_COLUMN_NAME);
         } catch (IOException e) {
-            logger.error("Create table[{}] failed", Config.HBaseConfig.TABLE_NAME, e);
+            logger.error("Create table failed", e);
+        }
+    }
+
+    private static void createTableIfAbsent(Admin admin, String tableName, String familyColumnName) throws IOException {
+        if (!admin.isTableAvailable(TableName.valueOf(tableName))) {
+            HTableDescriptor tableDesc = new HTableDescriptor(TableName.valueOf(tableName));
+            tableDesc.addFamily(new HColumnDescriptor(familyColumnName));
+            admin.createTable(tableDesc);
+            logger.info("Create table [{}] ok!", tableName);
         }
     }
 
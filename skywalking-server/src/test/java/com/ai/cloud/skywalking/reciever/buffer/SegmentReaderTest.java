@@ -0,0 +1,117 @@
+package com.ai.cloud.skywalking.reciever.buffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class SegmentReaderTest {
+
+    @Test
+    public void testSealedSegment() throws IOException {
+        File file = writeSegment(true, 0);
+        try {
+            assertTrue(SegmentFile.isSegmentFile(file));
+            SegmentReader reader = new SegmentReader(file, 1024);
+            try {
+                assertEquals(SegmentReader.Status.RECORD, reader.readHeader());
+                assertEquals(SegmentReader.Status.RECORD, reader.next());
+                assertArrayEquals("first".getBytes(), reader.getRecord());
+                assertEquals(SegmentReader.Status.RECORD, reader.next());
+                assertArrayEquals("second".getBytes(), reader.getRecord());
+                assertEquals(SegmentReader.Status.SEALED, reader.next());
+            } finally {
+                reader.close();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testTornTail() throws IOException {
+        // 第二条记录只写入了一部分
+        File file = writeSegment(false, 3);
+        try {
+            SegmentReader reader = new SegmentReader(file, 1024);
+            try {
+                assertEquals(SegmentReader.Status.RECORD, reader.readHeader());
+                assertEquals(SegmentReader.Status.RECORD, reader.next());
+                long position = reader.position();
+                assertEquals(SegmentReader.Status.INCOMPLETE, reader.next());
+                assertEquals(position, reader.position());
+            } finally {
+                reader.close();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testTextFile() throws IOException {
+        File file = File.createTempFile("buffer", ".txt");
+        try {
+            FileOutputStream outputStream = new FileOutputStream(file);
+            outputStream.write("1.0a2.1449124442153@~ @~0\nEOF\n".getBytes());
+            outputStream.close();
+            assertFalse(SegmentFile.isSegmentFile(file));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testIndexFloor() throws IOException {
+        File file = writeSegment(true, 0);
+        File indexFile = SegmentIndex.indexFile(file);
+        try {
+            assertEquals(SegmentFile.HEADER_LENGTH, SegmentIndex.floor(file, 100));
+
+            long second = SegmentFile.HEADER_LENGTH + SegmentFile.RECORD_HEADER_LENGTH + "first".length();
+            ByteBuffer buffer = ByteBuffer.allocate(SegmentIndex.ENTRY_LENGTH * 2);
+            SegmentIndex.writeEntry(buffer, second);
+            // 崩溃时未写完的索引
+            SegmentIndex.writeEntry(buffer, second + 100);
+            FileOutputStream outputStream = new FileOutputStream(indexFile);
+            try {
+                outputStream.write(buffer.array(), 0, buffer.capacity() - 1);
+            } finally {
+                outputStream.close();
+            }
+
+            assertEquals(SegmentFile.HEADER_LENGTH, SegmentIndex.floor(file, second - 1));
+            assertEquals(second, SegmentIndex.floor(file, second));
+            assertEquals(second, SegmentIndex.floor(file, second + 200));
+        } finally {
+            indexFile.delete();
+            file.delete();
+        }
+    }
+
+    private File writeSegment(boolean sealed, int truncatedBytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        SegmentFile.writeHeader(buffer, System.currentTimeMillis());
+        SegmentFile.writeRecord(buffer, "first".getBytes());
+        SegmentFile.writeRecord(buffer, "second".getBytes());
+        if (sealed) {
+            SegmentFile.writeFooter(buffer, 2);
+        }
+        buffer.flip();
+        File file = File.createTempFile("buffer", ".segment");
+        FileOutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(buffer.array(), 0, buffer.limit() - truncatedBytes);
+        } finally {
+            outputStream.close();
+        }
+        return file;
+    }
+}
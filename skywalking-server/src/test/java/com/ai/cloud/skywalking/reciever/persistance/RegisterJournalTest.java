@@ -0,0 +1,79 @@
+package com.ai.cloud.skywalking.reciever.persistance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class RegisterJournalTest {
+
+    @Test
+    public void testReplayTornTail() throws IOException {
+        File file = File.createTempFile("offset", ".journal");
+        try {
+            RegisterJournal journal = new RegisterJournal(file);
+            journal.replay();
+            journal.append("a", new FileRegisterEntry("a", 100, FileRegisterEntry.FileRegisterEntryStatus.REGISTER));
+            journal.append("b", new FileRegisterEntry("b", 200, FileRegisterEntry.FileRegisterEntryStatus.REGISTER));
+            journal.append("a", new FileRegisterEntry("a", 300, FileRegisterEntry.FileRegisterEntryStatus.UNREGISTER));
+            journal.append("b", null);
+            journal.commit(true);
+            long length = file.length();
+            journal.append("c", new FileRegisterEntry("c", 400, FileRegisterEntry.FileRegisterEntryStatus.REGISTER));
+            journal.commit(true);
+            journal.close();
+
+            // 最后一条记录只写入了一部分
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            randomAccessFile.setLength(file.length() - 1);
+            randomAccessFile.close();
+
+            journal = new RegisterJournal(file);
+            Map<String, FileRegisterEntry> entries = journal.replay();
+            journal.close();
+            assertEquals(length, file.length());
+            assertEquals(1, entries.size());
+            assertEquals(300, entries.get("a").getOffset());
+            assertEquals(FileRegisterEntry.FileRegisterEntryStatus.UNREGISTER, entries.get("a").getStatus());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testCompact() throws IOException {
+        File file = File.createTempFile("offset", ".journal");
+        try {
+            RegisterJournal journal = new RegisterJournal(file);
+            journal.replay();
+            for (int i = 0; i < 10; i++) {
+                journal.append("a", new FileRegisterEntry("a", i, FileRegisterEntry.FileRegisterEntryStatus.REGISTER));
+            }
+            journal.commit(false);
+            assertTrue(journal.needsCompaction(1, 4, 10));
+
+            journal.compact(Collections.singletonList(
+                    new FileRegisterEntry("a", 9, FileRegisterEntry.FileRegisterEntryStatus.REGISTER)));
+            assertFalse(journal.needsCompaction(1, 4, 1));
+            journal.append("b", new FileRegisterEntry("b", 1, FileRegisterEntry.FileRegisterEntryStatus.REGISTER));
+            journal.commit(true);
+            journal.close();
+
+            journal = new RegisterJournal(file);
+            Map<String, FileRegisterEntry> entries = journal.replay();
+            journal.close();
+            assertEquals(2, entries.size());
+            assertEquals(9, entries.get("a").getOffset());
+            assertEquals(1, entries.get("b").getOffset());
+        } finally {
+            file.delete();
+        }
+    }
+}
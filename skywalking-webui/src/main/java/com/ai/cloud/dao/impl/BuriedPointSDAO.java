@@ -54,12 +54,14 @@ public class BuriedPointSDAO implements IBuriedPointSDAO {
 		Result r = table.get(g);
 		Map<String, TraceLogEntry> traceLogMap = new HashMap<String, TraceLogEntry>();
 		Map<String, TraceLogEntry> rpcMap = new HashMap<String, TraceLogEntry>();
+		Map<String, String> resolvedStacks = new HashMap<String, String>();
 		for (Cell cell : r.rawCells()) {
 			if (cell.getValueArray().length > 0) {
 				String colId = Bytes.toString(cell.getQualifierArray(), cell.getQualifierOffset(),
 						cell.getQualifierLength());
 				TraceLogEntry tmpEntry = TraceLogEntry.convert(
 						Bytes.toString(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength()), colId);
+				resolveExceptionStack(tmpEntry, resolvedStacks);
 				// 特殊处理RPC的服务端信息
 				if (colId.endsWith(Constants.RPC_END_FLAG)) {
 					rpcMap.put(colId.substring(0, colId.lastIndexOf(Constants.RPC_END_FLAG)), tmpEntry);
@@ -73,6 +75,31 @@ public class BuriedPointSDAO implements IBuriedPointSDAO {
 		return traceLogMap;
 	}
 	
+	/***
+	 * 去重后的Span只携带错误堆栈的指纹，按指纹查询完整的堆栈
+	 * @param entry
+	 * @param resolvedStacks 同一调用链中已查询过的指纹
+	 * @throws IOException
+	 */
+	private void resolveExceptionStack(TraceLogEntry entry, Map<String, String> resolvedStacks) throws IOException {
+		String fingerprint = entry.getExceptionFingerprint();
+		if (StringUtil.isBlank(fingerprint) || !StringUtil.isBlank(entry.getExceptionStack())) {
+			return;
+		}
+		if (!resolvedStacks.containsKey(fingerprint)) {
+			Table table = HBaseConnectionUtil.getConnection().getTable(TableName.valueOf(Constants.TABLE_NAME_EXCEPTION_STACK));
+			byte[] value = table.get(new Get(Bytes.toBytes(fingerprint))).getValue(
+					Bytes.toBytes(Constants.FAMILY_COLUMN_EXCEPTION_STACK), Bytes.toBytes(Constants.COLUMN_EXCEPTION_STACK));
+			resolvedStacks.put(fingerprint, value == null ? null : Bytes.toString(value));
+		}
+		String exceptionStack = resolvedStacks.get(fingerprint);
+		if (exceptionStack == null) {
+			logger.warn("exception stack of fingerprint[{}] not found.", fingerprint);
+			return;
+		}
+		entry.setExceptionStack(exceptionStack);
+	}
+
 	/***
 	 * 合并处理RPC日志信息
 	 * @param rpcMap
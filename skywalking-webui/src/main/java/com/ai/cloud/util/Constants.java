@@ -34,6 +34,15 @@ public class Constants {
      * hbase表名
      */
     public static final String TABLE_NAME_CHAIN = "sw-call-chain";
+    /**
+     * 错误堆栈指纹与堆栈文本的对应表
+     */
+    public static final String TABLE_NAME_EXCEPTION_STACK = "sw-exception-stack";
+    /**
+     * 错误堆栈对应表的列簇名和列名
+     */
+    public static final String FAMILY_COLUMN_EXCEPTION_STACK = "exception-stack";
+    public static final String COLUMN_EXCEPTION_STACK = "stack";
     /**
      * 层级分割符
      */
@@ -48,6 +57,7 @@ public class Constants {
     public static final String SPAN_TYPE_W = "W";
     public static final String SPAN_TYPE_D = "D";
     public static final String SPAN_TYPE_U = "U";
+    public static final String SPAN_TYPE_T = "T";
     /**
      * SPAN_TYPE码表
      */
@@ -58,6 +68,7 @@ public class Constants {
             put("W", "WEB");
             put("D", "DUBBO");
             put("U", "UNKNOWN");
+            put("T", "THREAD");
         }
     };
 